@@ -18,6 +18,22 @@ rho = 0.75
 // In that case, the parameter 'm' is ignored.
 runtime = 10
 
+// If true, every chain cools down on its own schedule instead of waiting for the slowest chain
+// at the end of each temperature level. Chains then only share the Pareto frontier and, at the beginning
+// of each level, the mean neighbour statistics of the previous level (with a runtime, each chain spreads
+// its remaining time over its remaining levels):
+asyncCooling = false
+
+// Multithreading: all chains (including those of preparatory runs) share one work-stealing pool.
+// Number of threads (0 = number of available processors):
+threads = 0
+// Number of chains that are processed by the same task, e.g. to reduce the scheduling overhead
+// if there are many more chains than threads (0 = one task per thread):
+solutionBatchSize = 1
+// Number of neighbours that each chain draws and evaluates in parallel per iteration; all of them are
+// offered to the Pareto frontier, and at most one is accepted (useful if there are fewer chains than threads):
+neighboursPerIteration = 1
+
 numberOfTemperatureLevels = Math.ceil(Math.log(tmin / tmax) / Math.log(rho))
 
 // PSA Input:
@@ -27,6 +43,9 @@ inBasePath = "res/problem_instances/internet2"
 topologyFile = "topology"
 vnfLibFile = "vnfLib"
 requestsFile = "requests"
+// Each link line describes a single link from the first to the second node, e.g. for asymmetric capacities.
+// (A topology header like "12,15,directed" or "12,15,undirected" takes precedence.)
+directedTopology = false
 
 // Output:
 // Comment out if the file is not needed.
@@ -50,6 +69,8 @@ feasibleFrontier = "psa_feasible_frontier" // CSV of feasible pareto frontier (o
 solutionOrder = "psa_order" // CSV with an ordered list of solution IDs for each rank/weight combination
 weightVectors = "psa_weights" // uniform, entropy, coeff and std weights for all objectives
 rankingVectors = "psa_rankings" // SAW, MEW, TOPSIS and VIKOR ranks for all solutions
+// Cache (disabled by default, since it writes files next to the output):
+//shortestPathCache = ".cache" // directory for shortest path tables, reused by all runs on the same topology
 
 // Debug:
 //paretoFrontierDevObs = "psa_pareto_frontier_developement" // CSV of pareto frontier developement over time (objective space)
@@ -169,6 +190,25 @@ acceptIncomparable = (t / tmax * factorIncomp) * (better / incomp)
 acceptWorse = Math.min(acceptWorse, maxWorse)
 acceptIncomparable = Math.min(acceptIncomparable, maxIncomp)
 
+// Objective values of neighbour solutions are updated incrementally.
+// To bound the accumulation of floating point errors, they can be recalculated from scratch
+// after this number of changes (default: 0 = never):
+//fullRecalculationInterval = 1000
+
+// Neighbours whose placement has recently been visited by the same chain can be skipped
+// without evaluating them. This changes which neighbours are counted and accepted.
+// Number of remembered placements per chain (default: 0 = disabled):
+//visitedCacheSize = 4096
+
+// Rerouted flows can draw each sub-path among the k loopless shortest paths (wrt. delay)
+// of the respective node pair, preferring shorter ones. This widens the neighbourhood
+// (default: 1 = random BFS / Dijkstra shortest path):
+//kShortestPaths = 3
+
+// If enabled and the current solution has congested links, rerouted flows avoid links whose
+// residual bandwidth is smaller than their demand (whenever possible; default: false):
+//residualRouting = true
+
 // How much should randomness be influenced by weights:
 useWeights = true
 useDelayInWeights = true
@@ -0,0 +1,196 @@
+import de.uniwue.VNFP.model.Objs;
+import de.uniwue.VNFP.model.factory.VnfLibReader;
+import de.uniwue.VNFP.util.Config;
+import de.uniwue.VNFP.util.CoolingSchedule;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Stress test for the thread-safety of the config evaluation.
+ * The objective vectors and the cooling formulas are evaluated by many threads at once
+ * (starting with a fresh Config, so that the lazy initialization is raced as well),
+ * and every result has to match a single-threaded run bit for bit.
+ * This is done twice: once with the compiled functions and once with the JavaScript engine fallback,
+ * which is forced by appending statements to the config that cannot be compiled.
+ * <p>
+ * Both variants also have to agree with each other (up to the tolerance that the Config uses
+ * when it checks the compiled functions against the engine).
+ * <p>
+ * Arguments: [config path (default: res/config.js)] [number of threads (default: 32)] [rounds per thread (default: 5)]
+ */
+public class TestConfigConcurrency {
+    // Wraps the vector functions and adds a control flow statement, so that neither the functions
+    // nor the cooling schedule can be compiled (the results stay the same):
+    private static final String FORCE_ENGINE = "\n" +
+            "if (true) {\n" +
+            "    objectiveVector = (function(f) { return function(v) { return f(v) } })(objectiveVector)\n" +
+            "    unfeasibleVector = (function(f) { return function(v) { return f(v) } })(unfeasibleVector)\n" +
+            "}\n";
+
+    public static void main(String[] args) throws Exception {
+        Locale.setDefault(Locale.US);
+
+        String content = new String(Files.readAllBytes(Paths.get(args.length > 0 ? args[0] : "res/config.js")), StandardCharsets.UTF_8);
+        int threads = (args.length > 1 ? Integer.parseInt(args[1]) : 32);
+        int rounds = (args.length > 2 ? Integer.parseInt(args[2]) : 5);
+
+        Config c = Config.getInstance(stream(content));
+        Objs objs = new Objs(VnfLibReader.readFromFile(c.vnfLibFile).getResources());
+
+        double[][] compiled = run("compiled", content, objs, threads, rounds, true);
+        double[][] engine = run("engine", content + FORCE_ENGINE, objs, threads, rounds, false);
+        boolean passed = (compiled != null && engine != null);
+        for (int j = 0; passed && j < compiled.length; j++) {
+            passed = close(compiled[j], engine[j]);
+            if (!passed) {
+                System.out.println("Compiled and engine results differ: " + Arrays.toString(compiled[j]) + " vs. " + Arrays.toString(engine[j]));
+            }
+        }
+
+        System.out.println(passed ? "All results match." : "FAILED.");
+        if (!passed) System.exit(1);
+    }
+
+    /**
+     * Evaluates all test inputs with a single thread and with many threads, each on a fresh Config.
+     *
+     * @param name     Name of the run (for the output).
+     * @param content  The content of the config.
+     * @param objs     All objectives, including the node resources array.
+     * @param threads  Number of concurrent threads.
+     * @param rounds   Number of times that each thread evaluates all inputs.
+     * @param compiled Whether the cooling schedule is expected to be compiled.
+     * @return The single-threaded results, or null if any concurrent result does not match them.
+     */
+    private static double[][] run(String name, String content, Objs objs, int threads, int rounds, boolean compiled) throws Exception {
+        double[][] vals = objectiveInputs(objs, 64);
+        double[][] states = coolingInputs(Config.getInstance(), 64);
+
+        Config reference = new Config(stream(content));
+        if (reference.coolingSchedule.isCompiled() != compiled) {
+            System.out.println(name + ": cooling schedule is " + (compiled ? "not " : "") + "compiled.");
+            return null;
+        }
+        double[][] expected = evaluateAll(reference, objs, vals, states);
+
+        Config shared = new Config(stream(content));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CyclicBarrier start = new CyclicBarrier(threads);
+        ArrayList<Future<Integer>> futures = new ArrayList<>();
+        for (int k = 0; k < threads; k++) {
+            long seed = k;
+            futures.add(executor.submit(() -> {
+                start.await();
+                Random r = new Random(seed);
+                int mismatches = 0;
+                for (int round = 0; round < rounds; round++) {
+                    // Visit the inputs in a different order in every thread:
+                    List<Integer> order = new ArrayList<>();
+                    for (int j = 0; j < expected.length; j++) order.add(j);
+                    Collections.shuffle(order, r);
+
+                    for (int j : order) {
+                        double[] actual = evaluate(shared, objs, vals, states, j);
+                        if (!sameBits(expected[j], actual)) mismatches++;
+                    }
+                }
+                return mismatches;
+            }));
+        }
+
+        int mismatches = 0;
+        for (Future<Integer> f : futures) {
+            mismatches += f.get();
+        }
+        executor.shutdown();
+
+        System.out.println(name + ": " + threads + " threads, " + (threads * rounds * expected.length) + " evaluations, " + mismatches + " mismatches.");
+        return (mismatches == 0 ? expected : null);
+    }
+
+    /**
+     * @return Distinct value vectors (with integral and fractional entries) for every objective.
+     */
+    private static double[][] objectiveInputs(Objs objs, int count) {
+        Random r = new Random(42);
+        int length = objs.values().length;
+        double[][] vals = new double[count][length];
+        for (double[] v : vals) {
+            for (int i = 0; i < length; i++) {
+                v[i] = (r.nextBoolean() ? r.nextInt(100) : r.nextDouble() * 1000.0);
+            }
+        }
+        return vals;
+    }
+
+    /**
+     * @return States of the cooling schedule (t, i, better, incomp, n) for every temperature level of the config.
+     */
+    private static double[][] coolingInputs(Config c, int count) {
+        Random r = new Random(42);
+        CoolingSchedule.Level[] levels = c.coolingSchedule.levels(c.tmax, c.tmin, c.rho);
+        double[][] states = new double[count][];
+        for (int j = 0; j < count; j++) {
+            CoolingSchedule.Level l = levels[j % levels.length];
+            int n = r.nextInt(200);
+            int better = (n == 0 ? 0 : r.nextInt(n + 1));
+            int incomp = (n == 0 ? 0 : r.nextInt(n - better + 1));
+            states[j] = new double[]{l.t, l.index, better, incomp, n};
+        }
+        return states;
+    }
+
+    private static double[][] evaluateAll(Config c, Objs objs, double[][] vals, double[][] states) {
+        double[][] results = new double[Math.max(vals.length, states.length)][];
+        for (int j = 0; j < results.length; j++) {
+            results[j] = evaluate(c, objs, vals, states, j);
+        }
+        return results;
+    }
+
+    /**
+     * Evaluates both vector functions and all formulas of the cooling schedule for the j-th input.
+     *
+     * @return All results, concatenated.
+     */
+    private static double[] evaluate(Config c, Objs objs, double[][] vals, double[][] states, int j) {
+        double[] v = vals[j % vals.length];
+        double[] x = states[j % states.length];
+        double[] objective = c.objectiveVector(objs, v);
+        double[] unfeasible = c.unfeasibleVector(v);
+
+        double[] result = Arrays.copyOf(objective, objective.length + unfeasible.length + CoolingSchedule.Formula.values().length);
+        System.arraycopy(unfeasible, 0, result, objective.length, unfeasible.length);
+        int k = objective.length + unfeasible.length;
+        for (CoolingSchedule.Formula f : CoolingSchedule.Formula.values()) {
+            result[k++] = c.coolingSchedule.evaluate(f, x[0], (int) x[1], (int) x[2], (int) x[3], (int) x[4]);
+        }
+        return result;
+    }
+
+    private static boolean sameBits(double[] a, double[] b) {
+        if (a.length != b.length) return false;
+        for (int i = 0; i < a.length; i++) {
+            if (Double.doubleToRawLongBits(a[i]) != Double.doubleToRawLongBits(b[i])) return false;
+        }
+        return true;
+    }
+
+    private static boolean close(double[] a, double[] b) {
+        if (a.length != b.length) return false;
+        for (int i = 0; i < a.length; i++) {
+            if (Double.compare(a[i], b[i]) != 0 && Math.abs(a[i] - b[i]) > 1e-9 * Math.max(Math.abs(a[i]), Math.abs(b[i]))) return false;
+        }
+        return true;
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
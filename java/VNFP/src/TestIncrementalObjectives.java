@@ -0,0 +1,90 @@
+import de.uniwue.VNFP.algo.NeighbourSelection;
+import de.uniwue.VNFP.model.*;
+import de.uniwue.VNFP.model.factory.TopologyFileReader;
+import de.uniwue.VNFP.model.factory.TrafficRequestsReader;
+import de.uniwue.VNFP.model.factory.VnfLibReader;
+import de.uniwue.VNFP.model.solution.Solution;
+import de.uniwue.VNFP.model.solution.SolutionDelta;
+import de.uniwue.VNFP.util.Config;
+
+import java.io.FileInputStream;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Checks the incrementally maintained objective values against a calculation from scratch.
+ * Several chains perform random walks of neighbours (as drawn by PSA). After every step, the values of the
+ * neighbour are compared with {@link Solution#getInstance} for the same assignments, so that a placement
+ * has the same objective values regardless of how it was reached.
+ * One random solution serves as initial solution, so that the migration objectives are checked as well.
+ * Integral objectives (e.g. numbers of instances) have to match exactly, all others up to a relative
+ * tolerance of 1e-9 (incremental sums may round differently).
+ * <p>
+ * Arguments: [config path (default: res/config.js)] [number of chains (default: 4)] [steps per chain (default: 3000)] [seed (default: 1)]
+ */
+public class TestIncrementalObjectives {
+    public static void main(String[] args) throws Exception {
+        Locale.setDefault(Locale.US);
+
+        Config c = Config.getInstance(new FileInputStream(args.length > 0 ? args[0] : "res/config.js"));
+        int chains = (args.length > 1 ? Integer.parseInt(args[1]) : 4);
+        int steps = (args.length > 2 ? Integer.parseInt(args[2]) : 3000);
+        long seed = (args.length > 3 ? Long.parseLong(args[3]) : 1L);
+
+        VnfLib lib = VnfLibReader.readFromFile(c.vnfLibFile);
+        NetworkGraph ng = TopologyFileReader.readFromFile(c.topologyFile, lib, c.directedTopology);
+        TrafficRequest[] reqs = TrafficRequestsReader.readFromFile(c.requestsFile, ng, lib);
+        ProblemInstance pi = new ProblemInstance(ng, lib, reqs, new Objs(lib.getResources()));
+        Objs obj = pi.objectives;
+
+        Random r = new Random(seed);
+        pi.initialSolutions = new Solution[]{NeighbourSelection.randomSelection(reqs, Solution.createEmptyInstance(pi), r)};
+
+        int[] mismatches = new int[obj.values().length];
+        int moreInstances = 0;
+        for (int chain = 0; chain < chains; chain++) {
+            Solution current = NeighbourSelection.randomSelection(reqs, Solution.createEmptyInstance(pi), r);
+            for (int step = 0; step < steps; step++) {
+                SolutionDelta neigh = (r.nextBoolean()
+                        ? NeighbourSelection.replaceTrafficAssignment(current, 0.3, r)
+                        : NeighbourSelection.replaceVnfInstance(current, 0.3, r));
+                Solution incremental = neigh.toSolution();
+                Solution full = Solution.getInstance(incremental.pi, incremental.assignments);
+
+                for (Objs.Obj o : obj.values()) {
+                    if (!close(incremental.vals[o.i], full.vals[o.i])) {
+                        if (mismatches[o.i] == 0) {
+                            System.out.println("First mismatch of " + o.name + " (chain " + chain + ", step " + step + "): "
+                                    + incremental.vals[o.i] + " (incremental) vs. " + full.vals[o.i] + " (from scratch)");
+                        }
+                        mismatches[o.i]++;
+                    }
+                }
+                if (incremental.vals[obj.NUMBER_OF_VNF_INSTANCES.i] > full.vals[obj.NUMBER_OF_VNF_INSTANCES.i]) {
+                    moreInstances++;
+                }
+
+                current = incremental;
+            }
+        }
+
+        boolean passed = true;
+        for (Objs.Obj o : obj.values()) {
+            if (mismatches[o.i] > 0) {
+                System.out.println(o.name + ": " + mismatches[o.i] + " / " + (chains * steps) + " mismatches");
+                passed = false;
+            }
+        }
+        if (moreInstances > 0) {
+            System.out.println("Incremental packing used more instances than from scratch in " + moreInstances + " steps.");
+        }
+
+        System.out.println(passed ? "All " + (chains * steps) + " neighbours match." : "FAILED.");
+        if (!passed) System.exit(1);
+    }
+
+    private static boolean close(double a, double b) {
+        if (a == Math.rint(a) && b == Math.rint(b)) return a == b;
+        return Double.compare(a, b) == 0 || Math.abs(a - b) <= 1e-9 * Math.max(Math.abs(a), Math.abs(b));
+    }
+}
@@ -0,0 +1,101 @@
+import de.uniwue.VNFP.algo.PSA;
+import de.uniwue.VNFP.algo.ParetoFrontier;
+import de.uniwue.VNFP.model.NetworkGraph;
+import de.uniwue.VNFP.model.TrafficRequest;
+import de.uniwue.VNFP.model.VnfLib;
+import de.uniwue.VNFP.model.factory.TopologyFileReader;
+import de.uniwue.VNFP.model.factory.TrafficRequestsReader;
+import de.uniwue.VNFP.model.factory.VnfLibReader;
+import de.uniwue.VNFP.model.solution.Solution;
+import de.uniwue.VNFP.util.Config;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checks that seeded PSA runs with synchronous cooling are reproducible, i.e., that the resulting
+ * Pareto Frontier only depends on the seed, not on the number of threads or the batching of the chains.
+ * For 1 and 4 neighbours per iteration, the frontier of every combination of 1 or 8 threads and
+ * solution batch sizes 0, 1 and 2 has to match the single-threaded run with batch size 0:
+ * same solutions in the same order, with the same objective values (bit for bit), fingerprints and creation iterations.
+ * The runs use a fixed number of iterations per level instead of the runtime of the config.
+ * <p>
+ * Arguments: [config path (default: res/config.js)] [number of chains (default: 8)] [iterations per level (default: 100)] [seed (default: 1)]
+ */
+public class TestReproducibility {
+    private static final int[] THREADS = {1, 8};
+    private static final int[] BATCH_SIZES = {0, 1, 2};
+    private static final int[] NEIGHBOURS_PER_ITERATION = {1, 4};
+
+    public static void main(String[] args) throws Exception {
+        Locale.setDefault(Locale.US);
+
+        String content = new String(Files.readAllBytes(Paths.get(args.length > 0 ? args[0] : "res/config.js")), StandardCharsets.UTF_8);
+        int chains = (args.length > 1 ? Integer.parseInt(args[1]) : 8);
+        int m = (args.length > 2 ? Integer.parseInt(args[2]) : 100);
+        long seed = (args.length > 3 ? Long.parseLong(args[3]) : 1L);
+
+        boolean passed = true;
+        for (int neighbours : NEIGHBOURS_PER_ITERATION) {
+            // The PSA reads these settings from the global config:
+            Config c = Config.getInstance(new ByteArrayInputStream((content + "\n" +
+                    "asyncCooling = false\n" +
+                    "neighboursPerIteration = " + neighbours + "\n").getBytes(StandardCharsets.UTF_8)));
+            VnfLib lib = VnfLibReader.readFromFile(c.vnfLibFile);
+            NetworkGraph ng = TopologyFileReader.readFromFile(c.topologyFile, lib, c.directedTopology);
+            TrafficRequest[] reqs = TrafficRequestsReader.readFromFile(c.requestsFile, ng, lib);
+
+            ParetoFrontier expected = null;
+            for (int threads : THREADS) {
+                for (int batchSize : BATCH_SIZES) {
+                    ForkJoinPool pool = new ForkJoinPool(threads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+                    PSA psa = new PSA(ng, lib, reqs, chains, m, c.tmax, c.tmin, c.rho, 0.0, seed, batchSize, pool);
+                    ParetoFrontier front = psa.runPSARand();
+                    pool.shutdown();
+
+                    String name = neighbours + " neighbours per iteration, " + threads + " threads, batch size " + batchSize;
+                    if (expected == null) {
+                        expected = front;
+                        System.out.println(name + ": " + front.size() + " solutions (reference).");
+                        continue;
+                    }
+                    String difference = difference(expected, front);
+                    System.out.println(name + ": " + front.size() + " solutions" + (difference == null ? "." : ", " + difference));
+                    if (difference != null) passed = false;
+                }
+            }
+        }
+
+        System.out.println(passed ? "All frontiers match." : "FAILED.");
+        if (!passed) System.exit(1);
+    }
+
+    /**
+     * @return A description of the first difference between both frontiers, or null if they are identical.
+     */
+    private static String difference(ParetoFrontier expected, ParetoFrontier actual) {
+        if (expected.size() != actual.size()) {
+            return "expected " + expected.size() + " solutions.";
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            Solution a = expected.get(i);
+            Solution b = actual.get(i);
+            if (a.getFingerprint() != b.getFingerprint() || a.creationIteration != b.creationIteration || !sameBits(a.vals, b.vals)) {
+                return "solution " + i + " differs: " + b + " (expected: " + a + ").";
+            }
+        }
+        return null;
+    }
+
+    private static boolean sameBits(double[] a, double[] b) {
+        if (a.length != b.length) return false;
+        for (int i = 0; i < a.length; i++) {
+            if (Double.doubleToRawLongBits(a[i]) != Double.doubleToRawLongBits(b[i])) return false;
+        }
+        return true;
+    }
+}
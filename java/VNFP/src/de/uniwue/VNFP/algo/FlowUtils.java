@@ -1,13 +1,18 @@
 package de.uniwue.VNFP.algo;
 
+import de.uniwue.VNFP.model.KShortestPaths;
 import de.uniwue.VNFP.model.Link;
 import de.uniwue.VNFP.model.NetworkGraph;
 import de.uniwue.VNFP.model.Node;
+import de.uniwue.VNFP.model.PathSegment;
+import de.uniwue.VNFP.model.ResidualRouter;
 import de.uniwue.VNFP.model.TrafficRequest;
 import de.uniwue.VNFP.model.solution.NodeAssignment;
 import de.uniwue.VNFP.model.solution.TrafficAssignment;
 
 import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.ToDoubleFunction;
 
 /**
  * Contains static methods to faciliate TrafficAssignment creation by
@@ -125,51 +130,133 @@ public class FlowUtils {
         Objects.requireNonNull(ng);
         Objects.requireNonNull(backpointers);
 
+        return fromSegments(req, order, ng, (start, end) -> ng.getPathSegment(start, end, backpointers));
+    }
+
+    /**
+     * Find a path that contains all nodes in <tt>order</tt> as well as ingress and egress of the request.
+     * Each sub-path is drawn from the given k-shortest paths, so that repeated calls yield diverse routes
+     * without any shortest path search.
+     *
+     * @param req   TrafficRequest containing VNF-sequence, ingress und egress nodes.
+     * @param order The locations of the requested VNFs in the respective order.
+     * @param ng    The graph of the network topology.
+     * @param paths Precomputed k-shortest paths of <tt>ng</tt>.
+     * @param r     Object for random number generation.
+     * @return TrafficAssignment with a random path:
+     * <tt>Ingress -> ... -> VNF_1 -> ... -> VNF_2 -> ... -> VNF_n -> ... -> Egress</tt>.
+     */
+    public static TrafficAssignment fromVnfSequence(TrafficRequest req, Node[] order, NetworkGraph ng, KShortestPaths paths, Random r) {
+        Objects.requireNonNull(req);
+        Objects.requireNonNull(order);
+        Objects.requireNonNull(ng);
+        Objects.requireNonNull(paths);
+        Objects.requireNonNull(r);
+
+        return fromSegments(req, order, ng, (start, end) -> paths.sample(start, end, r));
+    }
+
+    /**
+     * Find a path that contains all nodes in <tt>order</tt> as well as ingress and egress of the request.
+     * Each sub-path avoids links whose residual bandwidth is smaller than the request's demand, if possible
+     * (see {@link ResidualRouter}).
+     *
+     * @param req      TrafficRequest containing VNF-sequence, ingress und egress nodes.
+     * @param order    The locations of the requested VNFs in the respective order.
+     * @param ng       The graph of the network topology.
+     * @param router   Router for <tt>ng</tt>.
+     * @param residual Remaining bandwidth of each link (without the request itself).
+     * @return TrafficAssignment with the residual-aware path:
+     * <tt>Ingress -> ... -> VNF_1 -> ... -> VNF_2 -> ... -> VNF_n -> ... -> Egress</tt>.
+     */
+    public static TrafficAssignment fromVnfSequence(TrafficRequest req, Node[] order, NetworkGraph ng, ResidualRouter router, ToDoubleFunction<Link> residual) {
+        Objects.requireNonNull(req);
+        Objects.requireNonNull(order);
+        Objects.requireNonNull(ng);
+        Objects.requireNonNull(router);
+        Objects.requireNonNull(residual);
+
+        return fromSegments(req, order, ng, (start, end) -> router.route(start, end, req.bandwidthDemand, residual));
+    }
+
+    /**
+     * Stitches the sub-paths between ingress, all VNF locations and egress together.
+     *
+     * @param req     TrafficRequest containing VNF-sequence, ingress und egress nodes.
+     * @param order   The locations of the requested VNFs in the respective order.
+     * @param ng      The graph of the network topology.
+     * @param segment Provides the sub-path between two nodes.
+     * @return TrafficAssignment with the stitched path.
+     */
+    private static TrafficAssignment fromSegments(TrafficRequest req, Node[] order, NetworkGraph ng, BiFunction<Node, Node, PathSegment> segment) {
         if (order.length != req.vnfSequence.length) {
             throw new IllegalArgumentException("array length mismatch: order.length = " + order.length + ", req.vnfSequence.length = " + req.vnfSequence.length + ":\n"
                 + "order=" + Arrays.toString(order) + "\n"
                 + "req.vnfSequence=" + Arrays.toString(req.vnfSequence));
         }
 
-        // Define path: (including ingress, excluding egress)
-        ArrayList<NodeAssignment> path = new ArrayList<>();
+        // Look up all segments: (ingress -> VNF_1, ..., VNF_n-1 -> VNF_n, VNF_n -> egress)
+        PathSegment[] parts = new PathSegment[order.length + 1];
         Node last = req.ingress;
+        int length = 0;
+        for (int i = 0; i < order.length; i++) {
+            parts[i] = segment.apply(last, order[i]);
+            // All nodes except of the first, and the first node of the path only if it differs from VNF_1's location:
+            length += parts[i].hops + (i == 0 && parts[i].hops > 0 ? 1 : 0) + (parts[i].hops == 0 ? 1 : 0);
+            last = order[i];
+        }
+        if (order.length == 0) {
+            length++;
+        }
+        if (!last.equals(req.egress)) {
+            parts[order.length] = segment.apply(last, req.egress);
+            length += parts[order.length].hops;
+        }
+
+        // Stitch the segments together:
+        int[] nodeIds = new int[length];
+        int[] linkIds = new int[length];
+        int[] vnfPositions = new int[order.length];
+        int k = 0;
         for (int i = 0; i < order.length; i++) {
-            ArrayList<NodeAssignment> part = createPath(last, order[i], backpointers);
+            PathSegment part = parts[i];
+            int n = part.nodes.length;
 
             // Special case: first node of the path
-            if (i == 0 && part.size() > 1) {
-                path.add(part.get(0));
+            if (i == 0 && n > 1) {
+                nodeIds[k] = part.nodes[0].id;
+                linkIds[k++] = -1;
             }
 
-            // All nodes except of first and last: (NodeAssignments without VNF instance)
-            for (int j = 1; j < part.size() - 1; j++) {
-                path.add(part.get(j));
+            // All nodes except of first and last: (without VNF instance)
+            for (int j = 1; j < n - 1; j++) {
+                nodeIds[k] = part.nodes[j].id;
+                linkIds[k++] = part.links[j].id;
             }
 
             // The instance is located on the last node of this sub-path:
-            NodeAssignment oldAssig = part.get(part.size() - 1);
-            path.add(new NodeAssignment(oldAssig.node, req.vnfSequence[i], oldAssig.prev));
-
-            last = order[i];
+            vnfPositions[i] = k;
+            nodeIds[k] = part.nodes[n - 1].id;
+            linkIds[k++] = (part.links[n - 1] == null ? -1 : part.links[n - 1].id);
         }
 
         // Special case: order.length == 0 --> add ingress (as the above special case has not been executed)
         if (order.length == 0) {
-            path.add(new NodeAssignment(req.ingress, null, null));
+            nodeIds[k] = req.ingress.id;
+            linkIds[k++] = -1;
         }
 
-        // Add egress:
-        if (!last.equals(req.egress)) {
-            ArrayList<NodeAssignment> part = createPath(last, req.egress, backpointers);
-
-            // All nodes except of the first: (NodeAssignments without VNF instance)
-            for (int j = 1; j < part.size(); j++) {
-                path.add(part.get(j));
+        // Add egress: (all nodes except of the first)
+        PathSegment part = parts[order.length];
+        if (part != null) {
+            for (int j = 1; j < part.nodes.length; j++) {
+                nodeIds[k] = part.nodes[j].id;
+                linkIds[k++] = part.links[j].id;
             }
         }
 
-        return new TrafficAssignment(req, path.toArray(new NodeAssignment[path.size()]), ng);
+        // All links have been taken from path segments, so they do not need to be checked again:
+        return TrafficAssignment.fromValidatedPath(req, nodeIds, linkIds, vnfPositions, ng);
     }
 
     /**
@@ -182,25 +269,10 @@ public class FlowUtils {
      * @return Shortest path from {@code start} to {@code end}.
      */
     public static ArrayList<NodeAssignment> createPath(Node start, Node end, HashMap<Node, HashMap<Node, Node.Att>> backpointers) {
-        ArrayList<NodeAssignment> path = new ArrayList<>();
-        HashMap<Node, Node.Att> prevs = backpointers.get(start);
-        Node current = end;
-
-        Link prev = prevs.get(current).pi;
-        path.add(new NodeAssignment(current, null, prev));
-
-        while (prev != null) {
-            current = prev.getOther(current);
-            prev = prevs.get(current).pi;
-            path.add(new NodeAssignment(current, null, prev));
-        }
-
-        // Mirror path:
-        int n = path.size();
-        for (int i = 0; i < n / 2; i++) {
-            NodeAssignment temp = path.get(i);
-            path.set(i, path.get(n - 1 - i));
-            path.set(n - 1 - i, temp);
+        PathSegment seg = PathSegment.of(start, end, backpointers.get(start));
+        ArrayList<NodeAssignment> path = new ArrayList<>(seg.nodes.length);
+        for (int i = 0; i < seg.nodes.length; i++) {
+            path.add(new NodeAssignment(seg.nodes[i], null, seg.links[i]));
         }
         return path;
     }
@@ -44,6 +44,7 @@ public class GreedyCentrality {
         HashMap<Node, HashMap<Node, Node.Att>> bp = ng.getDijkstraBackpointers();
         VnfLib vnfLib = null;
         Node[] cpuNodes = ng.getNodes().values().stream().filter(n -> n.resources[0] > 0).toArray(Node[]::new);
+        MiddleStations middleStations = ng.getMiddleStations(cpuNodes);
 
         // Create dummy node to compute the number of required instances for each type:
         double[] res = new double[lib.res.length];
@@ -79,7 +80,7 @@ public class GreedyCentrality {
             TrafficRequest req = reqs[i];
 
             // Find the shortest possible path with minimum 1 node with CPU resources:
-            Node middle = (req.vnfSequence.length == 0 ? req.ingress : ng.getShortestMiddleStation(req.ingress, req.egress, cpuNodes, bp));
+            Node middle = (req.vnfSequence.length == 0 ? req.ingress : middleStations.byDelay(req.ingress, req.egress));
 
             Node[] order = new Node[req.vnfSequence.length];
             Arrays.fill(order, middle);
@@ -88,9 +89,10 @@ public class GreedyCentrality {
             // Mark all CPU-nodes on the way with +1 for each requested VNF:
             for (VNF vnf : req.vnfSequence) {
                 HashMap<ObjectWeight<Node>, ObjectWeight<Node>> thisMap = nodeWeightSets.get(vnf);
-                for (NodeAssignment nAssig : tAssig.path) {
-                    if (nAssig.node.resources[0] > 0.0) {
-                        ObjectWeight<Node> thisNode = new ObjectWeight<>(nAssig.node, 0.0);
+                for (int n = 0; n < tAssig.pathLength(); n++) {
+                    Node node = tAssig.getNode(n);
+                    if (node.resources[0] > 0.0) {
+                        ObjectWeight<Node> thisNode = new ObjectWeight<>(node, 0.0);
                         if (thisMap.containsKey(thisNode)) {
                             thisNode = thisMap.get(thisNode);
                         }
@@ -159,10 +161,10 @@ public class GreedyCentrality {
                         break;
                     }
 
-                    if (Arrays.stream(tAssig.path).anyMatch(n -> n.node.equals(newLoc.content))) {
-                        IntStream.range(0, tAssig.path.length)
-                                .filter(n -> tAssig.path[n].node.resources[0] > 0.0)
-                                .mapToObj(n -> weights.get(new ObjectWeight<>(tAssig.path[n].node, 0.0)))
+                    if (IntStream.range(0, tAssig.pathLength()).anyMatch(n -> tAssig.getNode(n).equals(newLoc.content))) {
+                        IntStream.range(0, tAssig.pathLength())
+                                .filter(n -> tAssig.getNode(n).resources[0] > 0.0)
+                                .mapToObj(n -> weights.get(new ObjectWeight<>(tAssig.getNode(n), 0.0)))
                                 .forEach(w -> w.weight--);
                         it.remove();
                     }
@@ -3,6 +3,7 @@ package de.uniwue.VNFP.algo;
 import de.uniwue.VNFP.model.*;
 import de.uniwue.VNFP.model.solution.NodeAssignment;
 import de.uniwue.VNFP.model.solution.Solution;
+import de.uniwue.VNFP.model.solution.SolutionDelta;
 import de.uniwue.VNFP.model.solution.TrafficAssignment;
 import de.uniwue.VNFP.model.solution.VnfInstances;
 import de.uniwue.VNFP.model.solution.overview.NodeOverview;
@@ -23,6 +24,9 @@ import java.util.stream.IntStream;
  * @author alex
  */
 public class NeighbourSelection {
+    // Residual routers keep scratch arrays for their searches, so every thread uses its own:
+    private static final ThreadLocal<ResidualRouter> residualRouters = new ThreadLocal<>();
+
     /**
      * Creates a new Solution by replacing all flows that utilize
      * a chosen vnf instance.
@@ -32,9 +36,9 @@ public class NeighbourSelection {
      * @param neigh        Neighbour-Solution (base of this solution & used for weights).
      * @param pNewInstance Probability for creating an additional VNF instance.
      * @param r            Object for random number generation.
-     * @return A new solution with new TrafficAssignments for each flow that traversed the chosen VNF instance.
+     * @return A new neighbour with new TrafficAssignments for each flow that traversed the chosen VNF instance.
      */
-    public static Solution replaceVnfInstance(Solution neigh, double pNewInstance, Random r) {
+    public static SolutionDelta replaceVnfInstance(Solution neigh, double pNewInstance, Random r) {
         VnfInstances draw;
         Objs o = neigh.obj;
 
@@ -110,24 +114,22 @@ public class NeighbourSelection {
      *
      * @param neigh        Neighbour-Solution (base of this solution & used for weights).
      * @param pNewInstance Probability for creating an additional VNF instance.
-     * @param inst
+     * @param inst         The chosen VNF instance.
      * @param r            Object for random number generation.
-     * @return A new solution with new TrafficAssignments for each flow that traversed the chosen VNF instance.
+     * @return A new neighbour with new TrafficAssignments for each flow that traversed the chosen VNF instance.
      */
-    private static Solution replaceAllFlowsOfInstance(Solution neigh, double pNewInstance, VnfInstances inst, Random r) {
+    private static SolutionDelta replaceAllFlowsOfInstance(Solution neigh, double pNewInstance, VnfInstances inst, Random r) {
         NodeOverview nodeOv = neigh.nodeMap.get(inst.node);
 
-        TrafficRequest[] requests = Arrays.copyOf(neigh.requests, neigh.requests.length);
-        TrafficAssignment[] assignments = Arrays.copyOf(neigh.assignments, neigh.assignments.length);
-
         // Remove random TrafficAssignments until the number of VNFs decreases:
-        HashSet<TrafficAssignment> removedAssignments = new HashSet<>();
+        // (Indexed by request IDs, as there is exactly one assignment per request)
+        BitSet removedAssignments = new BitSet();
         int originalAmount = inst.loads.length;
         // Only 1 VNF of this type available, just remove all its assignments:
         if (originalAmount == 1) {
             for (NodeAssignment nAssig : nodeOv.getAssignments()) {
                 if (nAssig.vnf.equals(inst.type)) {
-                    removedAssignments.add(nAssig.traffAss);
+                    removedAssignments.set(nAssig.traffAss.request.id);
                 }
             }
         }
@@ -144,45 +146,30 @@ public class NeighbourSelection {
 
                 // Remove all NodeAssignments of its TrafficAssignment from the Overview-Instance:
                 TrafficAssignment tAssig = nAssig.traffAss;
-                for (NodeAssignment nAssig2 : tAssig.path) {
+                for (NodeAssignment nAssig2 : tAssig.getVnfAssignments()) {
                     if (nAssig2.node.equals(nAssig.node)) {
                         ovCopy.removeAssignment(nAssig2);
                     }
                 }
 
-                removedAssignments.add(tAssig);
+                removedAssignments.set(tAssig.request.id);
                 currentAmount = ovCopy.getVnfCapacities(inst.type).loads.length;
             }
         }
 
-        // Swap all selected Requests und Assignments to the end of the arrays:
-        int length = requests.length;
-        int i = 0;
-        while (i < length) {
-            if (removedAssignments.contains(assignments[i])) {
-                length--;
-
-                TrafficAssignment tAssigTemp = assignments[i];
-                assignments[i] = assignments[length];
-                assignments[length] = tAssigTemp;
-
-                TrafficRequest tReqTemp = requests[i];
-                requests[i] = requests[length];
-                requests[length] = tReqTemp;
-            }
-            else {
-                i++;
+        // Solve all removed assignments anew:
+        SolutionDelta delta = new SolutionDelta(neigh);
+        ArrayList<TrafficRequest> newReqs = new ArrayList<>();
+        for (TrafficAssignment assig : neigh.assignments) {
+            if (removedAssignments.get(assig.request.id)) {
+                delta.removeAssignment(assig);
+                newReqs.add(assig.request);
             }
         }
 
-        // Solve all removed assignments anew:
-        TrafficRequest[] newReqs = new TrafficRequest[requests.length - length];
-        System.arraycopy(requests, length, newReqs, 0, requests.length - length);
-
-        Solution neigh2 = Solution.removeAssignmentsFromSolution(neigh, requests, assignments, length - 1);
-
-        if (Config.getInstance().useWeights) return viterbiSelection(newReqs, neigh2, pNewInstance, r);
-        else return randomSelection(newReqs, neigh2, r);
+        if (Config.getInstance().useWeights) viterbiSelection(newReqs.toArray(new TrafficRequest[newReqs.size()]), delta, pNewInstance, r);
+        else randomSelection(newReqs.toArray(new TrafficRequest[newReqs.size()]), delta, r);
+        return delta;
     }
 
     /**
@@ -191,12 +178,11 @@ public class NeighbourSelection {
      * @param neigh        Neighbour-Solution (base of this solution & used for weights).
      * @param pNewInstance Probability for creating an additional VNF instance.
      * @param r            Object for random number generation.
-     * @return A new solution, with 1 Flow being altered.
+     * @return A new neighbour, with 1 Flow being altered.
      */
-    public static Solution replaceTrafficAssignment(Solution neigh, double pNewInstance, Random r) {
+    public static SolutionDelta replaceTrafficAssignment(Solution neigh, double pNewInstance, Random r) {
         Objs o = neigh.obj;
-        TrafficRequest[] reqs = Arrays.copyOf(neigh.requests, neigh.requests.length);
-        TrafficAssignment[] assigs = Arrays.copyOf(neigh.assignments, neigh.assignments.length);
+        TrafficAssignment[] assigs = neigh.assignments;
         int draw = -1;
 
         // Weight settings:
@@ -225,9 +211,10 @@ public class NeighbourSelection {
             draw = choices[r.nextInt(choices.length)];
         }
         else if (neigh.vals[o.NUMBER_OF_CONGESTED_LINKS.i] > 0.0) {
-            HashSet<Link> congested = neigh.linkMap.values().stream().filter(l -> l.remainingBandwidth() < 0.0).map(l -> l.link).collect(Collectors.toCollection(HashSet::new));
+            boolean[] congested = new boolean[neigh.graph.getLinkArray().length];
+            neigh.linkMap.values().stream().filter(l -> l.remainingBandwidth() < 0.0).forEach(l -> congested[l.link.id] = true);
             int[] choices = IntStream.range(0, assigs.length)
-                    .filter(i -> Arrays.stream(assigs[i].path).map(p -> p.prev).anyMatch(congested::contains))
+                    .filter(i -> IntStream.range(0, assigs[i].pathLength()).anyMatch(p -> assigs[i].getPrev(p) != null && congested[assigs[i].getPrev(p).id]))
                     .toArray();
             draw = choices[r.nextInt(choices.length)];
         }
@@ -244,21 +231,13 @@ public class NeighbourSelection {
             }
         }
 
-        // Swap stuff:
-        TrafficRequest temp = reqs[draw];
-        reqs[draw] = reqs[reqs.length - 1];
-        reqs[reqs.length - 1] = temp;
-
-        TrafficAssignment temp2 = assigs[draw];
-        assigs[draw] = assigs[assigs.length - 1];
-        assigs[assigs.length - 1] = temp2;
+        SolutionDelta delta = new SolutionDelta(neigh);
+        delta.removeAssignment(assigs[draw]);
+        TrafficRequest[] newReqs = new TrafficRequest[]{assigs[draw].request};
 
-        TrafficRequest[] newReqs = new TrafficRequest[]{temp};
-
-        Solution neigh2 = Solution.removeAssignmentsFromSolution(neigh, reqs, assigs, reqs.length - 2);
-
-        if (Config.getInstance().useWeights) return viterbiSelection(newReqs, neigh2, pNewInstance, r);
-        else return randomSelection(newReqs, neigh2, r);
+        if (Config.getInstance().useWeights) viterbiSelection(newReqs, delta, pNewInstance, r);
+        else randomSelection(newReqs, delta, r);
+        return delta;
     }
 
     /**
@@ -274,8 +253,23 @@ public class NeighbourSelection {
      * @return A new solution, including the given requests.
      */
     public static Solution viterbiSelection(TrafficRequest[] reqs, Solution neigh, double pNewInstance, Random r) {
-        HashMap<Node, HashMap<Node, Node.Att>> bfs = neigh.graph.getBfsBackpointers();
-        HashMap<Node, HashMap<Node, Node.Att>> dijkstra = neigh.graph.getDijkstraBackpointers();
+        SolutionDelta delta = new SolutionDelta(neigh);
+        viterbiSelection(reqs, delta, pNewInstance, r);
+        return delta.toSolution();
+    }
+
+    /**
+     * Picks VNF locations based on weights aquired by a viterbi-like algorithm
+     * (see {@link #viterbiSelection(TrafficRequest[], Solution, double, Random)}) and adds the new assignments to the given neighbour.
+     *
+     * @param reqs         All requests that should be reassigned. They must not be contained in <tt>neigh</tt>.
+     * @param neigh        Neighbour that is extended by the new assignments (also used for weights).
+     * @param pNewInstance Probability for creating an additional VNF instance.
+     * @param r            Object for random number generation.
+     */
+    private static void viterbiSelection(TrafficRequest[] reqs, SolutionDelta neigh, double pNewInstance, Random r) {
+        double[][] delayMatrix = neigh.graph.getDelayMatrix();
+        int[][] hopMatrix = neigh.graph.getHopMatrix();
 
         LinkedList<VnfInstances> newInstances = new LinkedList<>();
 
@@ -379,8 +373,8 @@ public class NeighbourSelection {
                     // Add the delay / hops towards the next node to the weights of the current stage:
                     Node last = (o < nodeWeights.length - 1 ? order[o] : req.egress);
                     for (ObjectWeights<Node> w : nodeWeights[o]) {
-                        w.w[0] += delaySoFar + dijkstra.get(w.content).get(last).d;
-                        w.w[1] += hopsSoFar + bfs.get(w.content).get(last).d;
+                        w.w[0] += delaySoFar + delayMatrix[w.content.id][last.id];
+                        w.w[1] += hopsSoFar + hopMatrix[w.content.id][last.id];
                     }
 
                     // Prepare values:
@@ -450,31 +444,31 @@ public class NeighbourSelection {
                     }
                     order[o - 1] = weights.get(currentIndex).content;
 
-                    delaySoFar += dijkstra.get(order[o - 1]).get(last).d;
-                    hopsSoFar += bfs.get(order[o - 1]).get(last).d;
+                    delaySoFar += delayMatrix[order[o - 1].id][last.id];
+                    hopsSoFar += hopMatrix[order[o - 1].id][last.id];
                 }
 
-                TrafficAssignment tassig = FlowUtils.fromVnfSequence(req, order, neigh.graph, neigh.graph.getRandomBackpointers(r));
-                Solution neigh2 = Solution.addAssignmentsToSolution(neigh, tassig);
+                TrafficAssignment tassig = randomRoute(req, order, neigh, r);
+                int[] instancesBefore = new int[order.length];
+                for (int i = 0; i < order.length; i++) {
+                    instancesBefore[i] = neigh.nodeMap.get(order[i]).getVnfCapacities(req.vnfSequence[i]).loads.length;
+                }
+                neigh.addAssignment(tassig);
 
                 // Check whether one of the chosen VNFs is a new instance:
                 for (int i = 0; i < order.length; i++) {
-                    VnfInstances before = neigh.nodeMap.get(order[i]).getVnfCapacities(req.vnfSequence[i]);
-                    VnfInstances after = neigh2.nodeMap.get(order[i]).getVnfCapacities(req.vnfSequence[i]);
-                    if (before.loads.length != after.loads.length) {
+                    VnfInstances after = neigh.nodeMap.get(order[i]).getVnfCapacities(req.vnfSequence[i]);
+                    if (instancesBefore[i] != after.loads.length) {
                         newInstances.add(after);
                     }
                 }
 
-                neigh = neigh2;
                 break;
             } while (true); // End of silly goto hack -> repeatPreparation :)
         }
 
         // For each newly created VNF instance, redirect flows that benefit from it
-        neigh = improveFlowsForInstance(neigh, newInstances);
-
-        return neigh;
+        improveFlowsForInstance(neigh, newInstances);
     }
 
     /**
@@ -487,13 +481,13 @@ public class NeighbourSelection {
      * @param currentStep List containing all nodes (including weights) of the current VNF type.
      *                    The current node might be added here.
      * @param node        The current node that might be added into the currentStep-list (including weights).
-     * @param ng          The problem graph (used for BFS and Dijkstra pointers).
+     * @param ng          The problem graph (used for delay and hop matrices).
      * @param pair        VnfPair-restrictions that need to be considered (may be null).
      * @param r           Object for random number generation.
      */
     private static void addNodeWithBestConnection(List<ObjectWeights<Node>> lastStep, List<ObjectWeights<Node>> currentStep, Node node, NetworkGraph ng, VnfLib.VnfPair pair, Random r) {
-        HashMap<Node, HashMap<Node, Node.Att>> bfs = ng.getBfsBackpointers();
-        HashMap<Node, HashMap<Node, Node.Att>> dijkstra = ng.getDijkstraBackpointers();
+        double[][] delayMatrix = ng.getDelayMatrix();
+        int[][] hopMatrix = ng.getHopMatrix();
 
         // Weights:
         boolean delayW = Config.getInstance().useDelayInWeights;
@@ -504,8 +498,8 @@ public class NeighbourSelection {
 
         for (int j = 0; j < lastStep.size(); j++) {
             ObjectWeights<Node> wPrev = lastStep.get(j);
-            delays[j] = wPrev.w[0] + dijkstra.get(wPrev.content).get(node).d;
-            hops[j] = wPrev.w[1] + bfs.get(wPrev.content).get(node).d;
+            delays[j] = wPrev.w[0] + delayMatrix[wPrev.content.id][node.id];
+            hops[j] = wPrev.w[1] + hopMatrix[wPrev.content.id][node.id];
         }
 
         double medianDelays = 1.0;
@@ -522,7 +516,7 @@ public class NeighbourSelection {
         for (int j = 0; j < lastStep.size(); j++) {
             ObjectWeights<Node> wPrev = lastStep.get(j);
             // Don't forget VnfPair restrictions:
-            if (pair == null || dijkstra.get(wPrev.content).get(node).d <= pair.latency) {
+            if (pair == null || delayMatrix[wPrev.content.id][node.id] <= pair.latency) {
                 if ((delayW == hopsW && delays[j]/medianDelays + hops[j]/medianHops < bestDelay/medianDelays + bestHops/medianHops)
                         || (hopsW && hops[j]< bestHops)
                         || (delayW && delays[j] < bestDelay)) {
@@ -540,22 +534,19 @@ public class NeighbourSelection {
      * This method may be called when a new instance is created.
      * It adjusts flows by rerouting them toward this VNF if it enhances their delays / hops.
      *
-     * @param solution  Solution before the reassignment.
+     * @param solution  Neighbour that is altered; several flows are reassigned if it enhances the overall delay / number of hops.
      * @param instances Newly created VNF instances.
-     * @return A new solution, possibly having several flows reassigned if it enhances the overall delay / number of hops.
      */
-    private static Solution improveFlowsForInstance(Solution solution, Collection<VnfInstances> instances) {
+    private static void improveFlowsForInstance(SolutionDelta solution, Collection<VnfInstances> instances) {
         Objects.requireNonNull(solution);
         Objects.requireNonNull(instances);
-        HashMap<Node, HashMap<Node, Node.Att>> dijkstra = solution.graph.getDijkstraBackpointers();
-        HashMap<Node, HashMap<Node, Node.Att>> bfs = solution.graph.getBfsBackpointers();
-
         // Weights:
         boolean delayW = Config.getInstance().useDelayInWeights;
         boolean hopsW = Config.getInstance().useHopsInWeights;
 
         for (VnfInstances inst : instances) {
-            HashSet<TrafficRequest> toRemove = new HashSet<>();
+            BitSet toRemove = new BitSet();
+            ArrayList<TrafficAssignment> removedAssigs = new ArrayList<>();
             ArrayList<TrafficAssignment> toAdd = new ArrayList<>();
 
             // The given instance may be outdated, more flows might have been added since its creation.
@@ -570,7 +561,7 @@ public class NeighbourSelection {
                     TrafficAssignment tassig = nassig.traffAss;
                     TrafficRequest req = tassig.request;
 
-                    if (!toRemove.contains(req)) {
+                    if (!toRemove.get(req.id)) {
                         LinkedList<Integer> replacedIndices = new LinkedList<>();
 
                         // Check for free capacities:
@@ -586,30 +577,30 @@ public class NeighbourSelection {
                             Node[] newOrder = new Node[req.vnfSequence.length];
                             int j = 0;
                             VNF type = inst.type;
-                            for (int i = 0; i < tassig.path.length; i++) {
-                                if (tassig.path[i].vnf != null) {
-                                    if (tassig.path[i].vnf.equals(type)) {
-                                        newOrder[j] = inst.node;
-                                        type = null;
-                                    }
-                                    else {
-                                        newOrder[j] = tassig.path[i].node;
-                                    }
-                                    j++;
+                            for (NodeAssignment nAssig : tassig.getVnfAssignments()) {
+                                if (nAssig.vnf.equals(type)) {
+                                    newOrder[j] = inst.node;
+                                    type = null;
+                                }
+                                else {
+                                    newOrder[j] = nAssig.node;
                                 }
+                                j++;
                             }
 
                             TrafficAssignment newAssigBfs = FlowUtils.fromVnfSequence(req, newOrder, solution.graph, solution.graph.getBfsBackpointers());
                             TrafficAssignment newAssigDij = FlowUtils.fromVnfSequence(req, newOrder, solution.graph, solution.graph.getDijkstraBackpointers());
 
                             if (newAssigBfs.delay <= tassig.delay && newAssigBfs.numberOfHops <= tassig.numberOfHops) {
-                                toRemove.add(req);
+                                toRemove.set(req.id);
+                                removedAssigs.add(tassig);
                                 toAdd.add(newAssigBfs);
 
                                 inst.loads[freeIndex] += req.bandwidthDemand;
                             }
                             else if (newAssigDij.delay <= tassig.delay && newAssigDij.numberOfHops <= tassig.numberOfHops) {
-                                toRemove.add(req);
+                                toRemove.set(req.id);
+                                removedAssigs.add(tassig);
                                 toAdd.add(newAssigDij);
 
                                 inst.loads[freeIndex] += req.bandwidthDemand;
@@ -619,34 +610,13 @@ public class NeighbourSelection {
                 }
             }
 
-            TrafficRequest[] reqs = Arrays.copyOf(solution.requests, solution.requests.length);
-            TrafficAssignment[] assigs = Arrays.copyOf(solution.assignments, solution.assignments.length);
-
-            // Remove all listed assignments -> push them to the end of the array
-            int lastIndex = reqs.length;
-            int i = 0;
-            while (i < lastIndex) {
-                if (toRemove.contains(reqs[i])) {
-                    lastIndex--;
-
-                    TrafficRequest temp = reqs[i];
-                    reqs[i] = reqs[lastIndex];
-                    reqs[lastIndex] = temp;
-
-                    TrafficAssignment temp2 = assigs[i];
-                    assigs[i] = assigs[lastIndex];
-                    assigs[lastIndex] = temp2;
-                }
-                else {
-                    i++;
-                }
+            for (TrafficAssignment assig : removedAssigs) {
+                solution.removeAssignment(assig);
+            }
+            for (TrafficAssignment assig : toAdd) {
+                solution.addAssignment(assig);
             }
-
-            solution = Solution.removeAssignmentsFromSolution(solution, reqs, assigs, lastIndex-1);
-            solution = Solution.addAssignmentsToSolution(solution, toAdd.toArray(new TrafficAssignment[toAdd.size()]));
         }
-
-        return solution;
     }
 
     /**
@@ -658,9 +628,23 @@ public class NeighbourSelection {
      * @return A new solution, including the given requests.
      */
     public static Solution randomSelection(TrafficRequest[] reqs, Solution neigh, Random r) {
-        Node[] possibleNodes = neigh.graph.getNodes().values().stream().filter(n -> n.resources[0] > 0.0).toArray(Node[]::new);
+        SolutionDelta delta = new SolutionDelta(neigh);
+        randomSelection(reqs, delta, r);
+        return delta.toSolution();
+    }
+
+    /**
+     * Picks VNF locations for the given requests by random choice (with equal probabilities)
+     * and adds the new assignments to the given neighbour.
+     *
+     * @param reqs         All requests that should be reassigned. They must not be contained in <tt>neigh</tt>.
+     * @param neigh        Neighbour that is extended by the new assignments.
+     * @param r            Object for random number generation.
+     */
+    private static void randomSelection(TrafficRequest[] reqs, SolutionDelta neigh, Random r) {
+        Node[] possibleNodes = Arrays.stream(neigh.graph.getNodeArray()).filter(n -> n.resources[0] > 0.0).toArray(Node[]::new);
         if (possibleNodes.length == 0) {
-            possibleNodes = neigh.graph.getNodes().values().toArray(new Node[neigh.graph.getNodes().size()]);
+            possibleNodes = neigh.graph.getNodeArray();
         }
 
         // For each request...
@@ -671,10 +655,37 @@ public class NeighbourSelection {
                 order[i] = possibleNodes[r.nextInt(possibleNodes.length)];
             }
 
-            TrafficAssignment tassig = FlowUtils.fromVnfSequence(req, order, neigh.graph, neigh.graph.getRandomBackpointers(r));
-            neigh = Solution.addAssignmentsToSolution(neigh, tassig);
+            TrafficAssignment tassig = randomRoute(req, order, neigh, r);
+            neigh.addAssignment(tassig);
         }
+    }
 
-        return neigh;
+    /**
+     * Routes the given request along the given VNF locations. If the neighbour's parent has congested links
+     * and residual routing is enabled, every sub-path avoids links without sufficient residual bandwidth.
+     * Otherwise, if k-shortest paths are enabled, every sub-path is drawn among the precomputed paths of its node pair;
+     * otherwise, BFS or Dijkstra shortest paths are chosen at random.
+     *
+     * @param req   TrafficRequest containing VNF-sequence, ingress und egress nodes.
+     * @param order The locations of the requested VNFs in the respective order.
+     * @param neigh Neighbour that the assignment will be added to.
+     * @param r     Object for random number generation.
+     * @return TrafficAssignment with the chosen path.
+     */
+    private static TrafficAssignment randomRoute(TrafficRequest req, Node[] order, SolutionDelta neigh, Random r) {
+        NetworkGraph ng = neigh.graph;
+        Config c = Config.getInstance();
+        if (c.residualRouting && neigh.parent.vals[neigh.parent.obj.NUMBER_OF_CONGESTED_LINKS.i] > 0.0) {
+            ResidualRouter router = residualRouters.get();
+            if (router == null || router.graph != ng) {
+                router = new ResidualRouter(ng);
+                residualRouters.set(router);
+            }
+            return FlowUtils.fromVnfSequence(req, order, ng, router, l -> neigh.linkMap.get(l).remainingBandwidth());
+        }
+        if (c.kShortestPaths > 1) {
+            return FlowUtils.fromVnfSequence(req, order, ng, ng.getKShortestPaths(c.kShortestPaths), r);
+        }
+        return FlowUtils.fromVnfSequence(req, order, ng, ng.getRandomBackpointers(r));
     }
 }
@@ -6,11 +6,14 @@ import de.uniwue.VNFP.model.factory.*;
 import de.uniwue.VNFP.model.log.Debugger;
 import de.uniwue.VNFP.model.log.PSAEventLogger;
 import de.uniwue.VNFP.model.solution.Solution;
+import de.uniwue.VNFP.model.solution.SolutionDelta;
 import de.uniwue.VNFP.model.solution.TrafficAssignment;
 import de.uniwue.VNFP.model.solution.overview.NodeOverview;
 import de.uniwue.VNFP.util.Config;
+import de.uniwue.VNFP.util.CoolingSchedule;
 import de.uniwue.VNFP.model.solution.VnfInstances;
 import de.uniwue.VNFP.util.HashWrapper;
+import de.uniwue.VNFP.util.SplitRandom;
 
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -18,11 +21,15 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * This class implements the main optimization procedure, inspired by PSA.
@@ -42,6 +49,12 @@ public class PSA {
     public final double rho;
     public final long seed;
     public final double runtime;
+    // Number of chains that are processed by the same task (0 = one task per thread):
+    public final int solutionBatchSize;
+
+    // Pool shared by all PSA instances that do not get their own executor (created on first use):
+    private static volatile ForkJoinPool sharedPool;
+    private final ExecutorService executor;
 
     private LinkedList<PSAEventLogger> loggers;
     private boolean executed;
@@ -85,12 +98,14 @@ public class PSA {
 
         // Read input
         VnfLib vnfLib = VnfLibReader.readFromFile(c.vnfLibFile);
-        NetworkGraph ng = TopologyFileReader.readFromFile(c.topologyFile, vnfLib);
+        NetworkGraph ng = TopologyFileReader.readFromFile(c.topologyFile, vnfLib, c.directedTopology);
+        ng.setPathCacheDirectory(c.shortestPathCache);
         TrafficRequest[] reqs = TrafficRequestsReader.readFromFile(c.requestsFile, ng, vnfLib);
 
         // Initialize PSA object
         PSA psa = new PSA(ng, vnfLib, reqs, c.s, c.m, c.tmax, c.tmin, c.rho, c.runtime);
         c.createAllEventLoggers().forEach(psa::addEventLogger);
+        psa.precomputePaths();
 
         // Execute actual algorithm
         ParetoFrontier front;
@@ -142,6 +157,7 @@ public class PSA {
 
     /**
      * Initializes a new PSA instance with the given seed.
+     * Its chains are run by the {@link #getSharedPool() shared pool}, batched as given by the config.
      * Note: if you want to execute a simple PSA optimization, execute {@link PSA#runPSA} instead.
      *
      * @param ng      Network graph (problem specific input)
@@ -156,6 +172,28 @@ public class PSA {
      * @param seed    Seed for the Random object.
      */
     public PSA(NetworkGraph ng, VnfLib lib, TrafficRequest[] reqs, int s, int m, double tmax, double tmin, double rho, double runtime, long seed) {
+        this(ng, lib, reqs, s, m, tmax, tmin, rho, runtime, seed, Config.getInstance().solutionBatchSize, getSharedPool());
+    }
+
+    /**
+     * Initializes a new PSA instance with the given seed and executor.
+     * Note: if you want to execute a simple PSA optimization, execute {@link PSA#runPSA} instead.
+     *
+     * @param ng                Network graph (problem specific input)
+     * @param reqs              All traffic demands (problem specific input)
+     * @param s                 Number of simultaneously optimized solutions
+     * @param m                 Number of iterations for every temperature level (may be overriden by runtime)
+     * @param tmax              Initial temperature (algorithm runs until {@code T <= Tmin})
+     * @param tmin              Final temperature (algorithm runs until {@code T <= Tmin})
+     * @param rho               Rate ({@code < 1}) of temperature cooling (algorithm runs until {@code T <= Tmin})
+     * @param runtime           Optional parameter; sets the algorithms runtime to the given value, in seconds.
+     *                          If set (> 0), the parameter <code>m</code> will be ignored.
+     * @param seed              Seed for the Random object.
+     * @param solutionBatchSize Number of chains that are processed by the same task (0 = one task per thread).
+     * @param executor          Runs all chains, including those of preparatory runs. It is not shut down by this instance.
+     */
+    public PSA(NetworkGraph ng, VnfLib lib, TrafficRequest[] reqs, int s, int m, double tmax, double tmin, double rho, double runtime, long seed,
+               int solutionBatchSize, ExecutorService executor) {
         this.ng = Objects.requireNonNull(ng);
         this.lib = Objects.requireNonNull(lib);
         this.reqs = Objects.requireNonNull(reqs);
@@ -166,6 +204,8 @@ public class PSA {
         this.tmin = tmin;
         this.rho = rho;
         this.runtime = runtime;
+        this.solutionBatchSize = solutionBatchSize;
+        this.executor = Objects.requireNonNull(executor);
 
         if (s < 1) throw new IllegalArgumentException("s=" + s);
         if (m < 1) throw new IllegalArgumentException("m=" + m);
@@ -173,12 +213,61 @@ public class PSA {
         if (tmin <= 0) throw new IllegalArgumentException("tmin=" + tmin);
         if (tmax <= tmin) throw new IllegalArgumentException("tmax=" + tmax + ", tmin=" + tmin);
         if (rho >= 1) throw new IllegalArgumentException("rho=" + rho);
+        if (solutionBatchSize < 0) throw new IllegalArgumentException("solutionBatchSize=" + solutionBatchSize);
 
         loggers = new LinkedList<>();
         this.seed = seed;
         r = new Random(seed);
     }
 
+    /**
+     * Returns the pool that runs the chains of all PSA instances without an explicitly given executor.
+     * Its number of threads is taken from the config when it is first used.
+     * Tasks are taken in FIFO order, and idle threads steal the tasks of busy ones.
+     *
+     * @return The shared ForkJoinPool.
+     */
+    public static ForkJoinPool getSharedPool() {
+        ForkJoinPool pool = sharedPool;
+        if (pool == null) {
+            synchronized (PSA.class) {
+                pool = sharedPool;
+                if (pool == null) {
+                    int threads = Config.getInstance().threads;
+                    pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors(),
+                            ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+                    sharedPool = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Computes all shortest path tables of the network graph that the neighbour selection uses
+     * (unless they are present already), so that this work is done once before the chains start.
+     */
+    public void precomputePaths() {
+        ng.getDijkstraPaths();
+        ng.getBfsPaths();
+        ng.getDijkstraBackpointers();
+        ng.getBfsBackpointers();
+        ng.getMiddleStations();
+        int k = Config.getInstance().kShortestPaths;
+        if (k > 1) {
+            ng.getKShortestPaths(k);
+        }
+    }
+
+    /**
+     * @return The number of chains that the executor can run at the same time.
+     */
+    private int parallelism() {
+        if (executor instanceof ForkJoinPool) return ((ForkJoinPool) executor).getParallelism();
+        if (executor instanceof ThreadPoolExecutor) return ((ThreadPoolExecutor) executor).getMaximumPoolSize();
+        return Runtime.getRuntime().availableProcessors();
+    }
+
     /**
      * Adds a new event logger to this instance.
      * It will be called in certain events during the execution of the algorithm.
@@ -250,7 +339,7 @@ public class PSA {
     public ParetoFrontier runPSAPrepPSA() throws InterruptedException, ExecutionException {
         if (s == 0) return new ParetoFrontier();
 
-        PSA preRun = new PSA(ng, lib, reqs, s / 4, m / 4, tmax, tmin, rho * rho, runtime / 4, r.nextLong());
+        PSA preRun = new PSA(ng, lib, reqs, s / 4, m / 4, tmax, tmin, rho * rho, runtime / 4, r.nextLong(), solutionBatchSize, executor);
         ArrayList<Solution> start = preRun.runPSARand();
 
         // Obtain s solutions from the prior Pareto Frontier:
@@ -272,6 +361,7 @@ public class PSA {
     public ParetoFrontier runPSAPrepDelay() throws InterruptedException, ExecutionException {
         HashMap<Node, HashMap<Node, Node.Att>> bp = ng.getDijkstraBackpointers();
         Node[] cpuNodes = ng.getNodes().values().stream().filter(n -> n.resources[0] > 0.0).toArray(Node[]::new);
+        MiddleStations middleStations = ng.getMiddleStations(cpuNodes);
         Solution[] solutions = new Solution[s];
 
         for (int k = 0; k < s; k++) {
@@ -280,7 +370,7 @@ public class PSA {
                 TrafficRequest req = reqs[i];
 
                 // Find a path with minimum 1 cpu-node and minimal delay:
-                Node middle = (req.vnfSequence.length == 0 ? req.ingress : ng.getShortestMiddleStation(req.ingress, req.egress, cpuNodes, bp));
+                Node middle = (req.vnfSequence.length == 0 ? req.ingress : middleStations.byDelay(req.ingress, req.egress));
 
                 // Place all VNFs of this chain on 1 random cpu-node of the given path:
                 ArrayList<Node> onPath = new ArrayList<>();
@@ -352,17 +442,18 @@ public class PSA {
 
         // Call loggers:
         for (PSAEventLogger logger : loggers) {
-            logger.psaStart(ng, reqs, seed);
+            logger.psaStart(ng, reqs, seed, parallelism());
         }
 
-        final int solutionBatchSize = 1;
         final int s = solutions.length;
         if (s == 0) return new ParetoFrontier();
+        final int threads = parallelism();
+        final int solutionBatchSize = (this.solutionBatchSize > 0 ? this.solutionBatchSize : (int) Math.ceil((double) s / threads));
         int numberOfTemperatureLevels = (int) Math.ceil(Math.log(tmin / tmax) / Math.log(rho));
 
         // Prepare acceptance probabilities by running one iteration silently:
         if (dominatingNeighboursLastTemp == null) {
-            PSA preRun = new PSA(ng, lib, reqs, 1, Math.min(m, 100), tmax, tmin, 0.0, Math.min(runtime, 10.0), r.nextLong());
+            PSA preRun = new PSA(ng, lib, reqs, 1, Math.min(m, 100), tmax, tmin, 0.0, Math.min(runtime, 10.0), r.nextLong(), solutionBatchSize, executor);
             preRun.dominatingNeighboursLastTemp = new int[]{Math.min(m/2, 50)};
             preRun.incomparableNeighboursLastTemp = new int[]{Math.min(m/2, 50)};
             preRun.iterationsLastTemp = new int[]{Math.min(m, 100)};
@@ -378,184 +469,465 @@ public class PSA {
             }
         }
 
-        // Create initial Pareto Frontier from the given solution set:
-        ParetoFrontier paretoFrontier = ParetoFrontier.bruteForce(solutions);
-        ParetoFrontier[] paretoFrontiers = new ParetoFrontier[s];
-        for (int i = 0; i < s; i++) {
-            paretoFrontiers[i] = paretoFrontier.copy();
-        }
+        // Create initial Pareto Frontier from the given solution set (shared and updated directly by all chains):
+        ParetoArchive archive = new ParetoArchive(solutions);
 
-        // Multithreading!!
-        int threads = Runtime.getRuntime().availableProcessors();
-        ExecutorService service = Executors.newFixedThreadPool(threads);
-        ArrayList<Future<?>> futures = new ArrayList<>((int) Math.ceil((double) s / solutionBatchSize));
+        // Recently visited placements of each chain (tabu list):
+        int visitedCacheSize = Config.getInstance().visitedCacheSize;
+        VisitedCache[] visited = (visitedCacheSize <= 0 ? null : new VisitedCache[s]);
+        if (visited != null) {
+            for (int i = 0; i < s; i++) {
+                visited[i] = new VisitedCache(visitedCacheSize);
+                visited[i].add(solutions[i].getFingerprint());
+            }
+        }
 
         // PSA main loop:
-        double t = tmax;
-        int iterationNumber = 0;
-        long startTime = System.currentTimeMillis();
-        while (t > tmin) {
-            // Call loggers:
-            for (PSAEventLogger logger : loggers) {
-                logger.beginTemperatureIteration(t, iterationNumber, paretoFrontier.copy(), solutions);
+        CoolingSchedule.Level[] levels = Config.getInstance().coolingSchedule.levels(tmax, tmin, rho);
+
+        // Independent random streams for every temperature level and chain, derived from the seed,
+        // so that a seeded run does not depend on the number of threads or their scheduling:
+        SplitRandom streams = new SplitRandom(r.nextLong());
+        SplitRandom[][] chainRandoms = new SplitRandom[levels.length][s];
+        for (SplitRandom[] levelRandoms : chainRandoms) {
+            SplitRandom levelStream = streams.split();
+            for (int i = 0; i < s; i++) {
+                levelRandoms[i] = levelStream.split();
             }
-            long endIteration = (runtime <= 0 ? 0 : startTime + (long) (runtime * 1000.0 * (iterationNumber+1) / numberOfTemperatureLevels));
+        }
+
+        // Multithreading!!
+        int numberOfBatches = (int) Math.ceil((double) s / solutionBatchSize);
+        LevelStatistics[] statistics = new LevelStatistics[levels.length];
+        for (int l = 0; l < levels.length; l++) {
+            statistics[l] = new LevelStatistics(s, numberOfBatches);
+        }
+        long startTime = System.currentTimeMillis();
+
+        // Synchronous cooling: all chains wait for each other at the end of every temperature level.
+        if (!Config.getInstance().asyncCooling) {
+            ArrayList<Future<?>> futures = new ArrayList<>(numberOfBatches);
+            for (int l = 0; l < levels.length; l++) {
+                CoolingSchedule.Level level = levels[l];
+                LevelStatistics levelStatistics = statistics[l];
+                SplitRandom[] levelRandoms = chainRandoms[l];
+
+                // Call loggers:
+                for (PSAEventLogger logger : loggers) {
+                    logger.beginTemperatureIteration(level.t, level.index, archive.snapshot(), solutions);
+                }
+                long endIteration = (runtime <= 0 ? 0 : startTime + (long) (runtime * 1000.0 * (level.index+1) / numberOfTemperatureLevels));
+
+                // Draw neighbours for each batch of solutions:
+                for (int i = 0; i < s; i = i + solutionBatchSize) {
+                    int from = i;
+                    int to = Math.min(i + solutionBatchSize, s);
+                    futures.add(executor.submit(() -> runLevel(level, from, to, endIteration, solutions, archive, visited, levelRandoms, levelStatistics)));
+                }
 
-            // Probabilities to remove and create instances:
-            double pReassignVnf = Config.getInstance().pReassignVnf(t, iterationNumber);
-            double pNewInstance = Config.getInstance().pNewInstance(t, iterationNumber);
+                // Wait for all threads:
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+                futures.clear();
 
-            final int[] acceptedNeighbours = new int[s];
-            final int[] totalNumOfNeighbours = new int[1];
+                endLevel(level, levelStatistics, archive, solutions);
+            }
+        }
 
-            // Draw one neighbor for each solution:
+        // Asynchronous cooling: every batch of chains runs through all temperature levels on its own.
+        // The next level of a batch is queued as soon as its previous level is finished, so no thread waits
+        // for the slowest chain. Chains interact through the archive and, at the beginning of each level,
+        // through the acceptance statistics that all chains have gathered so far during the previous level.
+        else {
+            long endTime = startTime + (long) (runtime * 1000.0);
+            // If there are more batches than threads, each batch only runs during this share of the time:
+            double share = Math.min(1.0, (double) threads / numberOfBatches);
+            for (PSAEventLogger logger : loggers) {
+                logger.beginTemperatureIteration(levels[0].t, levels[0].index, archive.snapshot(), solutions.clone());
+            }
+
+            CompletableFuture<?>[] batches = new CompletableFuture<?>[numberOfBatches];
             for (int i = 0; i < s; i = i + solutionBatchSize) {
-                int _i = i;
-                Random _r = new Random(r.nextLong());
-                double _t = t;
-                int _iterationNumber = iterationNumber;
-
-                Runnable runnable = () -> {
-                    double[] acceptIncomparable = new double[solutionBatchSize];
-                    double[] acceptWorse = new double[solutionBatchSize];
-
-                    for (int __i = _i; __i < _i + solutionBatchSize && __i < s; __i++) {
-                        // Acceptance probabilities:
-                        acceptIncomparable[__i - _i] = Config.getInstance().acceptIncomparable(_t, _iterationNumber, dominatingNeighboursLastTemp[__i], incomparableNeighboursLastTemp[__i], iterationsLastTemp[__i]);
-                        acceptWorse[__i - _i] = Config.getInstance().acceptWorse(_t, _iterationNumber, dominatingNeighboursLastTemp[__i], incomparableNeighboursLastTemp[__i], iterationsLastTemp[__i]);
-
-                        dominatingNeighboursLastTemp[__i] = 0;
-                        incomparableNeighboursLastTemp[__i] = 0;
-                        iterationsLastTemp[__i] = 0;
-                    }
+                int from = i;
+                int to = Math.min(i + solutionBatchSize, s);
+                CompletableFuture<Void> batch = CompletableFuture.completedFuture(null);
+                for (int l = 0; l < levels.length; l++) {
+                    int _l = l;
+                    batch = batch.thenRunAsync(() -> {
+                        // Spread the remaining runtime of this batch evenly over its remaining levels:
+                        long now = System.currentTimeMillis();
+                        long endIteration = (runtime <= 0 ? 0 : now + (long) (share * Math.max(0, endTime - now) / (levels.length - _l)));
+                        if (_l > 0) {
+                            statistics[_l - 1].exchange(from, to, dominatingNeighboursLastTemp, incomparableNeighboursLastTemp, iterationsLastTemp);
+                        }
+                        runLevel(levels[_l], from, to, endIteration, solutions, archive, visited, chainRandoms[_l], statistics[_l]);
+                        statistics[_l].share(from, to, solutions, dominatingNeighboursLastTemp, incomparableNeighboursLastTemp, iterationsLastTemp);
+
+                        // The last batch that finishes a level reports it (before it starts its next level).
+                        // Its population holds the state of every chain at the end of this level:
+                        if (statistics[_l].pendingBatches.decrementAndGet() == 0) {
+                            endLevel(levels[_l], statistics[_l], archive, statistics[_l].population);
+                            if (_l + 1 < levels.length) {
+                                for (PSAEventLogger logger : loggers) {
+                                    logger.beginTemperatureIteration(levels[_l + 1].t, levels[_l + 1].index, archive.snapshot(), statistics[_l].population.clone());
+                                }
+                            }
+                        }
+                    }, executor);
+                }
+                batches[i / solutionBatchSize] = batch;
+            }
 
-                    int tempIter = 0;
-                    while ((endIteration > 0 && System.currentTimeMillis() < endIteration)
-                            || (endIteration <= 0 && tempIter < m)) {
-                        Debugger.println("- New iteration... [T="+_t+",level="+_iterationNumber+",i="+tempIter+"]");
+            // Wait for all threads:
+            CompletableFuture.allOf(batches).get();
+        }
 
-                        for (int __i = _i; __i < _i + solutionBatchSize && __i < s; __i++) {
+        // Collect all Pareto-optimal points:
+        ParetoFrontier paretoFrontier = archive.snapshot();
 
-                            ParetoFrontier _paretoFrontier = paretoFrontiers[__i];
+        // Call loggers:
+        for (PSAEventLogger logger : loggers) {
+            logger.psaEnd(paretoFrontier);
+        }
 
-                            // Only relocate a single assignment (false)
-                            // or all assignments of a selected VNF (true)?
-                            boolean reassignVnf = (_r.nextDouble() <= pReassignVnf);
+        return paretoFrontier;
+    }
 
-                            Solution neigh;
-                            // Single assignment:
-                            if (!reassignVnf) {
-                                neigh = NeighbourSelection.replaceTrafficAssignment(solutions[__i], pNewInstance, _r);
-                            }
-                            // Relocate all assignments of a selected VNF:
-                            else {
-                                neigh = NeighbourSelection.replaceVnfInstance(solutions[__i], pNewInstance, _r);
-                            }
-                            if (solutions[__i].assignments.length != neigh.assignments.length) {
-                                throw new RuntimeException("Neighbour has "+neigh.assignments.length+" assignments (!= "+solutions[__i].assignments.length+")");
-                            }
+    /**
+     * Runs one temperature level for a batch of chains.
+     * Each chain only modifies its own entries of the given arrays, so that several batches may run concurrently.
+     *
+     * @param level        The temperature level.
+     * @param from         Index of the first chain of the batch.
+     * @param to           Index after the last chain of the batch.
+     * @param endIteration Deadline of this level (in milliseconds), or <tt>0</tt> to run <tt>m</tt> iterations instead.
+     * @param solutions    Current solution of every chain.
+     * @param archive      The Pareto Frontier shared by all chains.
+     * @param visited      Recently visited placements of every chain, or <tt>null</tt> if disabled.
+     * @param randoms      Random stream of every chain for this level.
+     * @param statistics   Neighbour counts of this level.
+     */
+    private void runLevel(CoolingSchedule.Level level, int from, int to, long endIteration, Solution[] solutions,
+                          ParetoArchive archive, VisitedCache[] visited, SplitRandom[] randoms, LevelStatistics statistics) {
+        double _t = level.t;
+        int _iterationNumber = level.index;
+        int neighboursPerIteration = Config.getInstance().neighboursPerIteration;
+
+        double[] acceptIncomparable = new double[to - from];
+        double[] acceptWorse = new double[to - from];
+        for (int __i = from; __i < to; __i++) {
+            // Acceptance probabilities:
+            acceptIncomparable[__i - from] = level.acceptIncomparable(dominatingNeighboursLastTemp[__i], incomparableNeighboursLastTemp[__i], iterationsLastTemp[__i]);
+            acceptWorse[__i - from] = level.acceptWorse(dominatingNeighboursLastTemp[__i], incomparableNeighboursLastTemp[__i], iterationsLastTemp[__i]);
+
+            dominatingNeighboursLastTemp[__i] = 0;
+            incomparableNeighboursLastTemp[__i] = 0;
+            iterationsLastTemp[__i] = 0;
+        }
 
-                            int dominance = ParetoFrontier.getDominance(solutions[__i].getObjectiveVector(), neigh.getObjectiveVector());
-                            if (dominance == 0) incomparableNeighboursLastTemp[__i]++;
-                            else if (dominance == +1) dominatingNeighboursLastTemp[__i]++;
-                            iterationsLastTemp[__i]++;
+        int tempIter = 0;
+        while ((endIteration > 0 && System.currentTimeMillis() < endIteration)
+                || (endIteration <= 0 && tempIter < m)) {
+            Debugger.println("- New iteration... [T="+_t+",level="+_iterationNumber+",i="+tempIter+"]");
 
-                            // Update Pareto Frontier, if necessary:
-                            if (ParetoFrontier.getDominance(solutions[__i].getObjectiveVector(), neigh.getObjectiveVector()) != -1) {
-                                neigh.creationTemperature = _t;
-                                neigh.creationIteration = _iterationNumber;
-                                int sizeBeforeUpdate = _paretoFrontier.size();
+            for (int __i = from; __i < to; __i++) {
+                SplitRandom _r = randoms[__i];
 
-                                ArrayList<Solution> removed = _paretoFrontier.updateParetoFrontier(neigh);
+                // Draw several neighbours at once:
+                if (neighboursPerIteration > 1) {
+                    runParallelIteration(__i, neighboursPerIteration, level, solutions, archive, visited, _r, statistics,
+                            acceptIncomparable[__i - from], acceptWorse[__i - from]);
+                    continue;
+                }
 
-                                // Call loggers:
-                                if (!removed.isEmpty() || _paretoFrontier.size() != sizeBeforeUpdate) {
-                                    for (PSAEventLogger logger : loggers) {
-                                        logger.newSolutionInParetoFrontier(_t, _iterationNumber, neigh);
-                                    }
-                                }
-                            }
+                // Neighbours are only turned into Solution objects if they are needed beyond this iteration:
+                SolutionDelta neigh = drawNeighbour(solutions[__i], level, _r);
 
-                            // Potentially accept neighbor 'neigh':
-                            double draw = r.nextDouble();
-                            if (draw <= acceptanceProbabilityDynamic(solutions[__i], neigh, acceptIncomparable[__i - _i], acceptWorse[__i - _i])) {
-                                solutions[__i] = neigh;
-                                acceptedNeighbours[__i]++;
+                // Skip the evaluation of placements that this chain has visited recently:
+                if (visited != null && visited[__i].add(neigh.getFingerprint())) {
+                    statistics.revisited[__i]++;
 
+                    // The chain stays at its current solution, as if the neighbour had been rejected:
+                    for (PSAEventLogger logger : loggers) {
+                        logger.innerIteration(_t, _iterationNumber, __i, solutions[__i]);
+                    }
+                    continue;
+                }
 
-                                double sumLoads = 0.0;
-                                double sumCaps = 0.0;
-                                for (NodeOverview nodeOv : neigh.nodeMap.values()) {
-                                    for (VnfInstances vnfInst : nodeOv.getVnfInstances().values()) {
-                                        sumLoads += Arrays.stream(vnfInst.loads).sum();
-                                        sumCaps += vnfInst.type.processingCapacity * vnfInst.loads.length;
-                                    }
-                                }
-                                Debugger.println("  - Accepting new solution with load " + (sumLoads / sumCaps) + ": " + neigh.toString());
+                int dominance = ParetoFrontier.getDominance(solutions[__i].getObjectiveVector(), neigh.getObjectiveVector());
+                if (dominance == 0) incomparableNeighboursLastTemp[__i]++;
+                else if (dominance == +1) dominatingNeighboursLastTemp[__i]++;
+                iterationsLastTemp[__i]++;
 
+                // Update Pareto Frontier, if necessary:
+                updateArchive(archive, neigh, dominance, level);
 
-                            }
-                            else {
+                // Potentially accept neighbor 'neigh':
+                double draw = _r.nextDouble();
+                if (draw <= acceptanceProbabilityDynamic(solutions[__i], neigh, acceptIncomparable[__i - from], acceptWorse[__i - from])) {
+                    solutions[__i] = neigh.toSolution();
+                    statistics.accepted[__i]++;
+                    debugAccepted(solutions[__i]);
+                }
+                else {
 
 
-                                Debugger.println("  - (Solution not accepted.)");
+                    Debugger.println("  - (Solution not accepted.)");
 
 
-                            }
+                }
 
-                            // Call loggers:
-                            for (PSAEventLogger logger : loggers) {
-                                logger.innerIteration(_t, _iterationNumber, __i, solutions[__i]);
-                            }
-                        }
-                        tempIter++;
-                    }
-                    for (int __i = _i; __i < _i + solutionBatchSize && __i < s; __i++) {
-                        totalNumOfNeighbours[0] += iterationsLastTemp[__i];
-                    }
-                };
-                futures.add(service.submit(runnable));
+                // Call loggers:
+                for (PSAEventLogger logger : loggers) {
+                    logger.innerIteration(_t, _iterationNumber, __i, solutions[__i]);
+                }
             }
+            tempIter++;
+        }
 
-            // Wait for all threads:
-            for (Future<?> future : futures) {
-                future.get();
-            }
-            futures.clear();
+        for (int __i = from; __i < to; __i++) {
+            statistics.visited[__i] = iterationsLastTemp[__i];
+        }
+    }
+
+    /**
+     * Draws several neighbours of a chain's current solution in parallel and accepts at most one of them.
+     * The neighbours are generated and evaluated by the pool of the calling thread (or the common pool).
+     * Each of them uses its own stream that is split off the chain's stream, so that the result
+     * does not depend on the scheduling.
+     * All evaluated neighbours are offered to the archive. Afterwards, the neighbour with the highest
+     * acceptance probability (see {@link #acceptanceProbabilityDynamic}) is selected, and a single random draw
+     * against this probability decides whether it replaces the current solution.
+     * (Ties are resolved in favour of the earlier stream.)
+     *
+     * @param i                  Index of the chain.
+     * @param k                  Number of neighbours.
+     * @param level              The temperature level.
+     * @param solutions          Current solution of every chain.
+     * @param archive            The Pareto Frontier shared by all chains.
+     * @param visited            Recently visited placements of every chain, or <tt>null</tt> if disabled.
+     * @param r                  Random stream of the chain.
+     * @param statistics         Neighbour counts of this level.
+     * @param acceptIncomparable Acceptance probability of incomparable neighbours.
+     * @param acceptWorse        Acceptance probability of dominated neighbours.
+     */
+    private void runParallelIteration(int i, int k, CoolingSchedule.Level level, Solution[] solutions, ParetoArchive archive,
+                                      VisitedCache[] visited, SplitRandom r, LevelStatistics statistics,
+                                      double acceptIncomparable, double acceptWorse) {
+        Solution current = solutions[i];
+        SplitRandom[] streams = new SplitRandom[k];
+        for (int j = 0; j < k; j++) {
+            streams[j] = r.split();
+        }
 
-            // Combine all Pareto Frontiers:
-            for (ParetoFrontier _front : paretoFrontiers) {
-                _front.forEach(paretoFrontier::updateParetoFrontier);
+        // Generate and evaluate all neighbours (except for recently visited ones) in parallel:
+        SolutionDelta[] candidates = IntStream.range(0, k).parallel().mapToObj(j -> {
+            SolutionDelta neigh = drawNeighbour(current, level, streams[j]);
+            if (visited == null || !visited[i].contains(neigh.getFingerprint())) {
+                neigh.getObjectiveVector();
+                neigh.getUnfeasibleVector();
             }
-            for (int i = 0; i < s; i++) {
-                paretoFrontiers[i] = paretoFrontier.copy();
+            return neigh;
+        }).toArray(SolutionDelta[]::new);
+
+        // Count and archive the neighbours in the order of their streams:
+        ArrayList<SolutionDelta> evaluated = new ArrayList<>(k);
+        for (SolutionDelta neigh : candidates) {
+            if (visited != null && visited[i].add(neigh.getFingerprint())) {
+                statistics.revisited[i]++;
+                continue;
             }
 
-            // Call loggers:
-            double acceptanceRatio = (double) Arrays.stream(acceptedNeighbours).sum() / (totalNumOfNeighbours[0]);
-            for (PSAEventLogger logger : loggers) {
-                logger.endTemperatureIteration(t, iterationNumber, paretoFrontier.copy(), solutions,
-                        "visited=" + totalNumOfNeighbours[0],
-                        "pReassignVnf=" + pReassignVnf,
-                        "acceptanceRatio=" + acceptanceRatio);
-            }
+            int dominance = ParetoFrontier.getDominance(current.getObjectiveVector(), neigh.getObjectiveVector());
+            if (dominance == 0) incomparableNeighboursLastTemp[i]++;
+            else if (dominance == +1) dominatingNeighboursLastTemp[i]++;
+            iterationsLastTemp[i]++;
 
-            t = t * rho;
-            iterationNumber++;
+            updateArchive(archive, neigh, dominance, level);
+            evaluated.add(neigh);
         }
-        service.shutdown();
 
-        // Collect all Pareto-optimal points:
-        for (ParetoFrontier _front : paretoFrontiers) {
-            _front.forEach(paretoFrontier::updateParetoFrontier);
+        // Select the most promising neighbour and potentially accept it with its own probability
+        // (if all neighbours were revisited, the chain stays at its current solution):
+        int best = 0;
+        double bestProbability = -1.0;
+        for (int j = 0; j < evaluated.size(); j++) {
+            double p = acceptanceProbabilityDynamic(current, evaluated.get(j), acceptIncomparable, acceptWorse);
+            if (p > bestProbability) {
+                best = j;
+                bestProbability = p;
+            }
+        }
+        boolean accepted = false;
+        if (!evaluated.isEmpty() && r.nextDouble() <= bestProbability) {
+            solutions[i] = evaluated.get(best).toSolution();
+            statistics.accepted[i]++;
+            debugAccepted(solutions[i]);
+            accepted = true;
+        }
+        if (!accepted) {
+            Debugger.println("  - (No solution accepted.)");
         }
 
         // Call loggers:
         for (PSAEventLogger logger : loggers) {
-            logger.psaEnd(paretoFrontier);
+            logger.innerIteration(level.t, level.index, i, solutions[i]);
         }
+    }
 
-        return paretoFrontier;
+    /**
+     * Draws a random neighbour of the given solution.
+     *
+     * @param current The current solution of a chain.
+     * @param level   The temperature level.
+     * @param r       Random stream of the chain.
+     * @return A new neighbour (not evaluated yet).
+     */
+    private static SolutionDelta drawNeighbour(Solution current, CoolingSchedule.Level level, Random r) {
+        // Only relocate a single assignment (false)
+        // or all assignments of a selected VNF (true)?
+        boolean reassignVnf = (r.nextDouble() <= level.pReassignVnf);
+
+        SolutionDelta neigh;
+        // Single assignment:
+        if (!reassignVnf) {
+            neigh = NeighbourSelection.replaceTrafficAssignment(current, level.pNewInstance, r);
+        }
+        // Relocate all assignments of a selected VNF:
+        else {
+            neigh = NeighbourSelection.replaceVnfInstance(current, level.pNewInstance, r);
+        }
+        if (current.assignments.length != neigh.numberOfAssignments()) {
+            throw new RuntimeException("Neighbour has "+neigh.numberOfAssignments()+" assignments (!= "+current.assignments.length+")");
+        }
+        return neigh;
+    }
+
+    /**
+     * Inserts a neighbour into the archive, unless it is dominated by its parent or rejected by the archive.
+     *
+     * @param archive   The Pareto Frontier shared by all chains.
+     * @param neigh     The evaluated neighbour.
+     * @param dominance Dominance between the neighbour's parent and the neighbour.
+     * @param level     The temperature level.
+     */
+    private void updateArchive(ParetoArchive archive, SolutionDelta neigh, int dominance, CoolingSchedule.Level level) {
+        if (dominance != -1 && !archive.rejects(neigh, level.index)) {
+            Solution neighSolution = neigh.toSolution();
+            neighSolution.creationTemperature = level.t;
+            neighSolution.creationIteration = level.index;
+
+            // Call loggers:
+            if (archive.update(neighSolution)) {
+                for (PSAEventLogger logger : loggers) {
+                    logger.newSolutionInParetoFrontier(level.t, level.index, neighSolution);
+                }
+            }
+        }
+    }
+
+    /**
+     * Prints the average VNF load of a newly accepted solution (for debugging).
+     *
+     * @param accepted The accepted solution.
+     */
+    private static void debugAccepted(Solution accepted) {
+        double sumLoads = 0.0;
+        double sumCaps = 0.0;
+        for (NodeOverview nodeOv : accepted.nodeMap.values()) {
+            for (VnfInstances vnfInst : nodeOv.getVnfInstances().values()) {
+                sumLoads += Arrays.stream(vnfInst.loads).sum();
+                sumCaps += vnfInst.type.processingCapacity * vnfInst.loads.length;
+            }
+        }
+        Debugger.println("  - Accepting new solution with load " + (sumLoads / sumCaps) + ": " + accepted.toString());
+    }
+
+    /**
+     * Reports the end of a temperature level to all loggers.
+     *
+     * @param level      The finished temperature level.
+     * @param statistics Neighbour counts of this level.
+     * @param archive    The Pareto Frontier shared by all chains.
+     * @param solutions  Current solution of every chain.
+     */
+    private void endLevel(CoolingSchedule.Level level, LevelStatistics statistics, ParetoArchive archive, Solution[] solutions) {
+        int totalNumOfNeighbours = Arrays.stream(statistics.visited).sum();
+        double acceptanceRatio = (double) Arrays.stream(statistics.accepted).sum() / totalNumOfNeighbours;
+        for (PSAEventLogger logger : loggers) {
+            logger.endTemperatureIteration(level.t, level.index, archive.snapshot(), solutions,
+                    "visited=" + totalNumOfNeighbours,
+                    "revisited=" + Arrays.stream(statistics.revisited).sum(),
+                    "pReassignVnf=" + level.pReassignVnf,
+                    "acceptanceRatio=" + acceptanceRatio);
+        }
+    }
+
+    /**
+     * Neighbour counts of all chains during one temperature level (indexed by chain).
+     */
+    private static final class LevelStatistics {
+        final int[] visited;
+        final int[] revisited;
+        final int[] accepted;
+        // Number of batches that have not finished this level yet (asynchronous cooling only):
+        final AtomicInteger pendingBatches;
+        // Solution of every chain at the end of this level (asynchronous cooling only):
+        final Solution[] population;
+        // Neighbour counts of all chains that have finished this level so far (asynchronous cooling only):
+        private long sharedDominating;
+        private long sharedIncomparable;
+        private long sharedIterations;
+        private int sharedChains;
+
+        LevelStatistics(int s, int numberOfBatches) {
+            this.visited = new int[s];
+            this.revisited = new int[s];
+            this.accepted = new int[s];
+            this.pendingBatches = new AtomicInteger(numberOfBatches);
+            this.population = new Solution[s];
+        }
+
+        /**
+         * Publishes the results of a batch that has finished this level.
+         *
+         * @param from         Index of the first chain of the batch.
+         * @param to           Index after the last chain of the batch.
+         * @param solutions    Current solution of every chain.
+         * @param dominating   Number of dominating neighbours of every chain during this level.
+         * @param incomparable Number of incomparable neighbours of every chain during this level.
+         * @param iterations   Number of evaluated neighbours of every chain during this level.
+         */
+        synchronized void share(int from, int to, Solution[] solutions, int[] dominating, int[] incomparable, int[] iterations) {
+            for (int i = from; i < to; i++) {
+                population[i] = solutions[i];
+                sharedDominating += dominating[i];
+                sharedIncomparable += incomparable[i];
+                sharedIterations += iterations[i];
+            }
+            sharedChains += to - from;
+        }
+
+        /**
+         * Replaces the neighbour counts of a batch with the mean counts of all chains that have finished
+         * this level so far (including the batch itself), so that the acceptance probabilities of the
+         * next level are based on the experience of every chain.
+         *
+         * @param from         Index of the first chain of the batch.
+         * @param to           Index after the last chain of the batch.
+         * @param dominating   Number of dominating neighbours of every chain during this level.
+         * @param incomparable Number of incomparable neighbours of every chain during this level.
+         * @param iterations   Number of evaluated neighbours of every chain during this level.
+         */
+        synchronized void exchange(int from, int to, int[] dominating, int[] incomparable, int[] iterations) {
+            if (sharedChains == 0) return;
+            for (int i = from; i < to; i++) {
+                dominating[i] = (int) Math.round((double) sharedDominating / sharedChains);
+                incomparable[i] = (int) Math.round((double) sharedIncomparable / sharedChains);
+                iterations[i] = (int) Math.round((double) sharedIterations / sharedChains);
+            }
+        }
     }
 
     /**
@@ -569,7 +941,7 @@ public class PSA {
      * <tt>acceptIncomparable</tt>: if x and y are incomparable |
      * <tt>acceptWorse</tt>: if y is dominated by x
      */
-    private static double acceptanceProbabilityDynamic(Solution x, Solution y, double acceptIncomparable, double acceptWorse) {
+    private static double acceptanceProbabilityDynamic(Solution x, SolutionDelta y, double acceptIncomparable, double acceptWorse) {
         if (!x.isFeasible() && y.isFeasible()) return 1.0;
         if (x.isFeasible() && !y.isFeasible()) return acceptWorse;
 
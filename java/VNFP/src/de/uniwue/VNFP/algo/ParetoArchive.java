@@ -0,0 +1,160 @@
+package de.uniwue.VNFP.algo;
+
+import de.uniwue.VNFP.model.solution.Solution;
+import de.uniwue.VNFP.model.solution.SolutionDelta;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Thread-safe Pareto Frontier that all chains of a PSA run update directly.
+ * Dominance is determined like in {@link ParetoFrontier#updateParetoFrontier(Solution)}.
+ * <p>
+ * The frontier is kept in an immutable snapshot that is replaced by compare-and-set (copy-on-write).
+ * Readers never block, rejected neighbours are detected before their Solution objects are created,
+ * and an insert that loses a race against another chain is simply repeated on the new snapshot.
+ * <p>
+ * Among solutions with equal objective vectors, the one with the smaller placement fingerprint
+ * (then: the smaller creation iteration) is kept. Therefore, the content of the frontier
+ * does not depend on the order of inserts, i.e., on the scheduling of the chains.
+ */
+public final class ParetoArchive {
+    // Orders snapshots independently of the insertion order:
+    private static final Comparator<Entry> ORDER = Comparator.<Entry, double[]>comparing(e -> e.vector, Arrays::compare)
+            .thenComparingLong(e -> e.solution.getFingerprint())
+            .thenComparingInt(e -> e.creationIteration);
+
+    private final AtomicReference<Entry[]> entries = new AtomicReference<>(new Entry[0]);
+
+    /**
+     * Creates a Pareto Frontier of the given solutions.
+     *
+     * @param solutions Initial solutions (may contain dominated ones).
+     */
+    public ParetoArchive(Solution[] solutions) {
+        for (Solution s : solutions) {
+            update(s);
+        }
+    }
+
+    /**
+     * Checks whether a neighbour would be rejected by {@link #update(Solution)}, without creating its Solution object.
+     * Since solutions only leave the frontier in favour of better ones, a rejected neighbour stays rejected.
+     *
+     * @param neigh             The neighbour in question.
+     * @param creationIteration Creation iteration that its Solution object would get.
+     * @return true, if the neighbour is dominated by (or not preferred over) a solution of the frontier.
+     */
+    public boolean rejects(SolutionDelta neigh, int creationIteration) {
+        double[] vector = extend(neigh.getObjectiveVector(), neigh.getVals()[neigh.parent.obj.UNFEASIBLE.i]);
+        for (Entry e : entries.get()) {
+            if (Arrays.equals(e.vector, vector)) {
+                if (!preferred(neigh.getFingerprint(), creationIteration, e)) return true;
+            }
+            else if (ParetoFrontier.getDominance(e.vector, vector) == -1) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Inserts a new solution, if it is not dominated by another solution already,
+     * and removes all solutions that are dominated by it.
+     * May be called by several threads concurrently.
+     *
+     * @param newSolution New solution that shall be inserted.
+     * @return true, if the solution was inserted; false, if the frontier remains unchanged.
+     */
+    public boolean update(Solution newSolution) {
+        Entry entry = new Entry(newSolution);
+        while (true) {
+            Entry[] current = entries.get();
+            Entry[] next = new Entry[current.length + 1];
+            int size = 0;
+            for (Entry e : current) {
+                // Is the new point equal to a preferred solution? -> Abort; otherwise, replace that solution.
+                if (Arrays.equals(e.vector, entry.vector)) {
+                    if (!preferred(newSolution.getFingerprint(), entry.creationIteration, e)) return false;
+                    continue;
+                }
+
+                // Is the new point dominated by an existing solution? -> Abort.
+                int dominance = ParetoFrontier.getDominance(e.vector, entry.vector);
+                if (dominance == -1) return false;
+
+                // Keep all solutions that are not dominated by the new point:
+                if (dominance == 0) {
+                    next[size++] = e;
+                }
+            }
+            next[size++] = entry;
+
+            if (entries.compareAndSet(current, Arrays.copyOf(next, size))) return true;
+        }
+    }
+
+    /**
+     * Returns a copy of the current frontier, e.g. for loggers.
+     * Its order does not depend on the order of inserts.
+     *
+     * @return A new ParetoFrontier object.
+     */
+    public ParetoFrontier snapshot() {
+        Entry[] current = entries.get().clone();
+        Arrays.sort(current, ORDER);
+
+        ParetoFrontier front = new ParetoFrontier(current.length);
+        for (Entry e : current) {
+            front.add(e.solution);
+        }
+        return front;
+    }
+
+    /**
+     * @return Current number of solutions in the frontier.
+     */
+    public int size() {
+        return entries.get().length;
+    }
+
+    /**
+     * Tie-breaker between solutions with equal objective vectors.
+     *
+     * @param fingerprint       Placement fingerprint of the new solution.
+     * @param creationIteration Creation iteration of the new solution.
+     * @param existing          Entry that is already part of the frontier.
+     * @return true, if the new solution replaces the existing one.
+     */
+    private static boolean preferred(long fingerprint, int creationIteration, Entry existing) {
+        long existingFingerprint = existing.solution.getFingerprint();
+        if (fingerprint != existingFingerprint) return fingerprint < existingFingerprint;
+        return creationIteration < existing.creationIteration;
+    }
+
+    /**
+     * @param vector     Objective vector.
+     * @param unfeasible Value of {@link de.uniwue.VNFP.model.Objs#UNFEASIBLE}.
+     * @return A copy of the vector with the unfeasibility appended.
+     */
+    private static double[] extend(double[] vector, double unfeasible) {
+        double[] extended = Arrays.copyOf(vector, vector.length + 1);
+        extended[vector.length] = unfeasible;
+        return extended;
+    }
+
+    /**
+     * A solution of the frontier, together with its (extended) objective vector
+     * and its creation iteration at the time of insertion.
+     */
+    private static final class Entry {
+        final Solution solution;
+        final double[] vector;
+        final int creationIteration;
+
+        Entry(Solution solution) {
+            this.solution = solution;
+            this.creationIteration = solution.creationIteration;
+            this.vector = extend(solution.getObjectiveVector(), solution.vals[solution.obj.UNFEASIBLE.i]);
+        }
+    }
+}
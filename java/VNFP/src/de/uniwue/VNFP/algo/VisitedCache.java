@@ -0,0 +1,59 @@
+package de.uniwue.VNFP.algo;
+
+/**
+ * Bounded, direct-mapped set of placement fingerprints (see {@link de.uniwue.VNFP.model.solution.Solution#getFingerprint()}).
+ * Each fingerprint has exactly one slot; a new fingerprint overwrites an older one in the same slot.
+ * Thus, the cache never grows and recently visited placements are remembered with high probability.
+ * Used by {@link PSA} as a tabu list, in order to skip the evaluation of recently visited neighbours.
+ * <p>
+ * Not thread-safe; every annealing chain uses its own instance.
+ */
+class VisitedCache {
+    private final long[] slots;
+    private final boolean[] used;
+    private final int mask;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param capacity Maximum number of stored fingerprints (rounded up to the next power of 2).
+     */
+    VisitedCache(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity=" + capacity);
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+
+        this.slots = new long[size];
+        this.used = new boolean[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Checks for the given fingerprint without storing it.
+     * May be called by several threads, as long as no thread calls {@link #add(long)} at the same time.
+     *
+     * @param fingerprint Fingerprint of a placement.
+     * @return true, if the fingerprint is contained; otherwise: false.
+     */
+    boolean contains(long fingerprint) {
+        int slot = (int) (fingerprint >>> 32) & mask;
+        return used[slot] && slots[slot] == fingerprint;
+    }
+
+    /**
+     * Stores the given fingerprint.
+     *
+     * @param fingerprint Fingerprint of a visited placement.
+     * @return true, if the fingerprint was already contained; otherwise: false.
+     */
+    boolean add(long fingerprint) {
+        // Fingerprints are already well mixed, so their upper bits can be used as index:
+        int slot = (int) (fingerprint >>> 32) & mask;
+        if (used[slot] && slots[slot] == fingerprint) {
+            return true;
+        }
+        slots[slot] = fingerprint;
+        used[slot] = true;
+        return false;
+    }
+}
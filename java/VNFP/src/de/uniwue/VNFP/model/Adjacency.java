@@ -0,0 +1,123 @@
+package de.uniwue.VNFP.model;
+
+/**
+ * Compressed sparse row (CSR) adjacency of a {@link NetworkGraph}, indexed by {@link Node#id} and {@link Link#id}.
+ * The outgoing links of node u are the entries {@code start[u] .. start[u+1]-1} of {@code node}, {@code link}
+ * and {@code delay} (in the iteration order of {@link Node#getNeighbors()}); the incoming links are the entries
+ * {@code inStart[u] .. inStart[u+1]-1} of {@code inNode} and {@code inLink}.
+ * In undirected graphs, both directions share the same arrays.
+ * Searches can iterate these arrays without allocating any objects.
+ * All arrays are shared between all callers and must not be modified.
+ */
+public final class Adjacency {
+    /**
+     * Offsets of the outgoing links of each node (length: number of nodes + 1).
+     */
+    public final int[] start;
+    /**
+     * Target node ids of all outgoing links.
+     */
+    public final int[] node;
+    /**
+     * Ids of all outgoing links.
+     */
+    public final int[] link;
+    /**
+     * Delays of all outgoing links.
+     */
+    public final double[] delay;
+    /**
+     * Offsets of the incoming links of each node (length: number of nodes + 1).
+     */
+    public final int[] inStart;
+    /**
+     * Source node ids of all incoming links.
+     */
+    public final int[] inNode;
+    /**
+     * Ids of all incoming links.
+     */
+    public final int[] inLink;
+    // Endpoints of all links, indexed by link id:
+    final int[] node1;
+    final int[] node2;
+
+    /**
+     * @param ng The network topology.
+     */
+    Adjacency(NetworkGraph ng) {
+        Node[] nodes = ng.getNodeArray();
+        Link[] links = ng.getLinkArray();
+
+        start = new int[nodes.length + 1];
+        for (Node u : nodes) {
+            start[u.id + 1] = start[u.id] + u.getNeighbors().size();
+        }
+        node = new int[start[nodes.length]];
+        link = new int[node.length];
+        delay = new double[node.length];
+        for (Node u : nodes) {
+            int e = start[u.id];
+            for (Link l : u.getNeighbors()) {
+                node[e] = l.getOther(u).id;
+                link[e] = l.id;
+                delay[e] = l.delay;
+                e++;
+            }
+        }
+
+        node1 = new int[links.length];
+        node2 = new int[links.length];
+        for (Link l : links) {
+            node1[l.id] = l.node1.id;
+            node2[l.id] = l.node2.id;
+        }
+
+        if (!ng.directed) {
+            inStart = start;
+            inNode = node;
+            inLink = link;
+        }
+        else {
+            // Counting sort of all links by their target node:
+            inStart = new int[nodes.length + 1];
+            for (Link l : links) {
+                inStart[l.node2.id + 1]++;
+            }
+            for (int u = 0; u < nodes.length; u++) {
+                inStart[u + 1] += inStart[u];
+            }
+            inNode = new int[links.length];
+            inLink = new int[links.length];
+            int[] next = new int[nodes.length];
+            for (Link l : links) {
+                int e = inStart[l.node2.id] + next[l.node2.id]++;
+                inNode[e] = l.node1.id;
+                inLink[e] = l.id;
+            }
+        }
+    }
+
+    /**
+     * @param l Link id.
+     * @param v Id of one endpoint of the link.
+     * @return Id of the other endpoint.
+     */
+    public int other(int l, int v) {
+        return (node1[l] == v ? node2[l] : node1[l]);
+    }
+
+    /**
+     * Looks up a link from u to v in {@code O(outdegree(u))}.
+     *
+     * @param u Id of the first node.
+     * @param v Id of the second node.
+     * @return Id of a link from u to v, or -1 if there is none.
+     */
+    public int findLink(int u, int v) {
+        for (int e = start[u]; e < start[u + 1]; e++) {
+            if (node[e] == v) return link[e];
+        }
+        return -1;
+    }
+}
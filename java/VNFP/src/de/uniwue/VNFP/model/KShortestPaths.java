@@ -0,0 +1,290 @@
+package de.uniwue.VNFP.model;
+
+import de.uniwue.VNFP.util.AliasSampler;
+import de.uniwue.VNFP.util.IndexedMinHeap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Up to {@code k} loopless shortest paths (wrt. delay) for every pair of nodes of a {@link NetworkGraph},
+ * computed with Yen's algorithm. Together with a weighted sampler per pair, this allows neighbour selection
+ * to route flows over diverse paths without any shortest path search in its inner loop.
+ * Paths are drawn with probabilities proportional to {@code shortestDelay / pathDelay}.
+ */
+public final class KShortestPaths {
+    /**
+     * Maximum number of paths per node pair.
+     */
+    public final int k;
+    /**
+     * Time that was needed to compute all paths (in milliseconds).
+     */
+    public final double computationTime;
+
+    // [start id][end id] -> paths, sorted by delay:
+    private final PathSegment[][][] paths;
+    private final AliasSampler[][] samplers;
+
+    /**
+     * @param paths           Paths for every pair, sorted by delay.
+     * @param samplers        Samplers for every pair.
+     * @param k               Maximum number of paths per node pair.
+     * @param computationTime Time that was needed to compute all paths (in milliseconds).
+     */
+    private KShortestPaths(PathSegment[][][] paths, AliasSampler[][] samplers, int k, double computationTime) {
+        this.paths = paths;
+        this.samplers = samplers;
+        this.k = k;
+        this.computationTime = computationTime;
+    }
+
+    /**
+     * Computes up to {@code k} loopless shortest paths for all pairs of nodes.
+     * The start nodes are processed in parallel (fork-join).
+     *
+     * @param ng The network topology.
+     * @param k  Maximum number of paths per node pair ({@code >= 1}).
+     * @return The paths for all pairs of nodes.
+     */
+    public static KShortestPaths compute(NetworkGraph ng, int k) {
+        if (k < 1) throw new IllegalArgumentException("k=" + k);
+
+        long start = System.nanoTime();
+        Node[] nodes = ng.getNodeArray();
+        Link[] links = ng.getLinkArray();
+        Adjacency adj = ng.getAdjacency();
+        int n = nodes.length;
+        PathSegment[][][] paths = new PathSegment[n][][];
+        AliasSampler[][] samplers = new AliasSampler[n][];
+
+        IntStream.range(0, n).parallel().forEach(s -> {
+            Yen yen = new Yen(adj, links, n);
+            paths[s] = new PathSegment[n][];
+            samplers[s] = new AliasSampler[n];
+
+            for (int t = 0; t < n; t++) {
+                ArrayList<Path> found = yen.kShortest(s, t, k);
+                PathSegment[] segments = new PathSegment[found.size()];
+                double[] weights = new double[found.size()];
+                for (int i = 0; i < segments.length; i++) {
+                    Path p = found.get(i);
+                    Node[] pNodes = new Node[p.nodes.length];
+                    Link[] pLinks = new Link[p.nodes.length];
+                    for (int j = 0; j < pNodes.length; j++) {
+                        pNodes[j] = nodes[p.nodes[j]];
+                        pLinks[j] = (p.links[j] < 0 ? null : links[p.links[j]]);
+                    }
+                    segments[i] = new PathSegment(pNodes, pLinks);
+                    weights[i] = (segments[i].delay > 0.0 ? segments[0].delay / segments[i].delay : 1.0);
+                }
+
+                paths[s][t] = segments;
+                samplers[s][t] = (segments.length == 0 ? null : new AliasSampler(weights));
+            }
+        });
+
+        return new KShortestPaths(paths, samplers, k, (System.nanoTime() - start) / 1e6);
+    }
+
+    /**
+     * @param start Beginning node of the paths.
+     * @param end   End node of the paths.
+     * @return Up to {@code k} loopless paths from start to end, sorted by delay (empty if end is unreachable).
+     *         Must not be modified.
+     */
+    public PathSegment[] get(Node start, Node end) {
+        return paths[start.id][end.id];
+    }
+
+    /**
+     * Draws one of the paths from {@code start} to {@code end} in {@code O(1)}.
+     *
+     * @param start Beginning node of the path.
+     * @param end   End node of the path.
+     * @param r     Object for random number generation.
+     * @return A random path, shorter paths are preferred.
+     */
+    public PathSegment sample(Node start, Node end, Random r) {
+        AliasSampler sampler = samplers[start.id][end.id];
+        if (sampler == null) {
+            throw new IllegalArgumentException("no path exists from " + start.name + " to " + end.name);
+        }
+        return paths[start.id][end.id][sampler.sample(r)];
+    }
+
+    /**
+     * Path in the compact form of Yen's algorithm: {@code links[i]} connects {@code nodes[i-1]} and {@code nodes[i]},
+     * {@code links[0] == -1}.
+     */
+    private static class Path implements Comparable<Path> {
+        final int[] nodes;
+        final int[] links;
+        final double delay;
+
+        Path(int[] nodes, int[] links, double delay) {
+            this.nodes = nodes;
+            this.links = links;
+            this.delay = delay;
+        }
+
+        @Override
+        public int compareTo(Path o) {
+            int c = Double.compare(delay, o.delay);
+            return (c != 0 ? c : Integer.compare(nodes.length, o.nodes.length));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Path path = (Path) o;
+            return Arrays.equals(links, path.links) && Arrays.equals(nodes, path.nodes);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(nodes) + Arrays.hashCode(links);
+        }
+    }
+
+    /**
+     * Yen's algorithm with reusable scratch arrays (one instance per thread).
+     */
+    private static class Yen {
+        private final Adjacency adj;
+        private final Link[] links;
+        private final double[] d;
+        private final int[] pred;
+        private final boolean[] blockedNode;
+        private final boolean[] blockedLink;
+        private final IndexedMinHeap q;
+
+        Yen(Adjacency adj, Link[] links, int numberOfNodes) {
+            this.adj = adj;
+            this.links = links;
+            this.d = new double[numberOfNodes];
+            this.pred = new int[numberOfNodes];
+            this.blockedNode = new boolean[numberOfNodes];
+            this.blockedLink = new boolean[links.length];
+            this.q = new IndexedMinHeap(numberOfNodes);
+        }
+
+        /**
+         * @param s Start node id.
+         * @param t End node id.
+         * @param k Maximum number of paths.
+         * @return Up to k loopless paths from s to t, sorted by delay.
+         */
+        ArrayList<Path> kShortest(int s, int t, int k) {
+            ArrayList<Path> a = new ArrayList<>(k);
+            Path first = dijkstra(s, t);
+            if (first == null) return a;
+            a.add(first);
+
+            PriorityQueue<Path> b = new PriorityQueue<>();
+            HashSet<Path> seen = new HashSet<>();
+            seen.add(first);
+
+            while (a.size() < k) {
+                Path prev = a.get(a.size() - 1);
+                double rootDelay = 0.0;
+                for (int i = 0; i < prev.nodes.length - 1; i++) {
+                    int spur = prev.nodes[i];
+                    if (i > 0) rootDelay += links[prev.links[i]].delay;
+
+                    // Remove the next links of all known paths that share this root:
+                    for (Path p : a) {
+                        if (p.nodes.length > i + 1 && sameRoot(p, prev, i)) {
+                            blockedLink[p.links[i + 1]] = true;
+                        }
+                    }
+                    // Remove the root's nodes (except of the spur node):
+                    for (int j = 0; j < i; j++) {
+                        blockedNode[prev.nodes[j]] = true;
+                    }
+
+                    Path spurPath = dijkstra(spur, t);
+
+                    for (Path p : a) {
+                        if (p.nodes.length > i + 1) blockedLink[p.links[i + 1]] = false;
+                    }
+                    for (int j = 0; j < i; j++) {
+                        blockedNode[prev.nodes[j]] = false;
+                    }
+
+                    if (spurPath != null) {
+                        int[] nodes = new int[i + spurPath.nodes.length];
+                        int[] links = new int[nodes.length];
+                        System.arraycopy(prev.nodes, 0, nodes, 0, i);
+                        System.arraycopy(prev.links, 0, links, 0, i + 1);
+                        System.arraycopy(spurPath.nodes, 0, nodes, i, spurPath.nodes.length);
+                        System.arraycopy(spurPath.links, 1, links, i + 1, spurPath.links.length - 1);
+
+                        Path total = new Path(nodes, links, rootDelay + spurPath.delay);
+                        if (seen.add(total)) {
+                            b.add(total);
+                        }
+                    }
+                }
+
+                if (b.isEmpty()) break;
+                a.add(b.poll());
+            }
+            return a;
+        }
+
+        private static boolean sameRoot(Path p, Path prev, int i) {
+            for (int j = 0; j <= i; j++) {
+                if (p.nodes[j] != prev.nodes[j] || p.links[j] != prev.links[j]) return false;
+            }
+            return true;
+        }
+
+        /**
+         * Dijkstra search from s to t that avoids blocked nodes and links.
+         *
+         * @return Shortest path, or null if t is unreachable.
+         */
+        private Path dijkstra(int s, int t) {
+            Arrays.fill(d, Double.POSITIVE_INFINITY);
+            q.clear();
+            d[s] = 0.0;
+            pred[s] = -1;
+            q.insertOrDecrease(s, 0.0);
+            while (!q.isEmpty()) {
+                int u = q.poll();
+                if (u == t) break;
+                for (int e = adj.start[u]; e < adj.start[u + 1]; e++) {
+                    int v = adj.node[e];
+                    if (blockedNode[v] || blockedLink[adj.link[e]]) continue;
+                    double dv = d[u] + adj.delay[e];
+                    if (d[v] > dv) {
+                        d[v] = dv;
+                        pred[v] = adj.link[e];
+                        q.insertOrDecrease(v, dv);
+                    }
+                }
+            }
+            if (d[t] == Double.POSITIVE_INFINITY) return null;
+
+            int length = 1;
+            for (int v = t; v != s; v = adj.other(pred[v], v)) {
+                length++;
+            }
+            int[] nodes = new int[length];
+            int[] links = new int[length];
+            int v = t;
+            for (int i = length - 1; i >= 0; i--) {
+                nodes[i] = v;
+                links[i] = (v == s ? -1 : pred[v]);
+                if (v != s) v = adj.other(pred[v], v);
+            }
+            return new Path(nodes, links, d[t]);
+        }
+    }
+}
@@ -4,7 +4,8 @@ import java.util.Objects;
 
 /**
  * Objects of this class represent links in the network, or edges in the graph,
- * between two {@link Node} objects. The default case is undirected.
+ * between two {@link Node} objects. The default case is undirected;
+ * directed links only lead from {@code node1} to {@code node2}.
  *
  * @author alex
  */
@@ -25,6 +26,16 @@ public class Link {
      * Latency. (μs)
      */
     public final double delay;
+    /**
+     * Dense index of this link inside its {@link NetworkGraph} (0 <= id < number of links),
+     * or -1 if the link does not belong to a graph.
+     */
+    public final int id;
+    /**
+     * True, if this link only leads from {@code node1} to {@code node2}.
+     */
+    public final boolean directed;
+    private final int hash;
 
     /**
      * Creates a new instance.
@@ -35,6 +46,33 @@ public class Link {
      * @param delay     Latency. (μs)
      */
     public Link(Node node1, Node node2, double bandwidth, double delay) {
+        this(node1, node2, bandwidth, delay, -1);
+    }
+
+    /**
+     * Creates a new instance with the given index.
+     *
+     * @param node1     First node of this link.
+     * @param node2     Second node of this link.
+     * @param bandwidth Available bandwidth. (Mbps)
+     * @param delay     Latency. (μs)
+     * @param id        Dense index of this link inside its {@link NetworkGraph}.
+     */
+    Link(Node node1, Node node2, double bandwidth, double delay, int id) {
+        this(node1, node2, bandwidth, delay, id, false);
+    }
+
+    /**
+     * Creates a new instance with the given index and direction.
+     *
+     * @param node1     First node of this link.
+     * @param node2     Second node of this link.
+     * @param bandwidth Available bandwidth. (Mbps)
+     * @param delay     Latency. (μs)
+     * @param id        Dense index of this link inside its {@link NetworkGraph}.
+     * @param directed  True, if this link only leads from {@code node1} to {@code node2}.
+     */
+    Link(Node node1, Node node2, double bandwidth, double delay, int id, boolean directed) {
         if (node1.equals(node2)) {
             throw new IllegalArgumentException("node linked to itself");
         }
@@ -43,6 +81,9 @@ public class Link {
         this.node2 = Objects.requireNonNull(node2);
         this.bandwidth = bandwidth;
         this.delay = delay;
+        this.id = id;
+        this.directed = directed;
+        this.hash = node1.hashCode() * node2.hashCode();
     }
 
     /**
@@ -63,14 +104,16 @@ public class Link {
 
         Link l = (Link) o;
 
+        // Directed links (a -> b) and (b -> a) differ:
+        if (directed != l.directed) return false;
         return (node1.equals(l.node1) && node2.equals(l.node2))
-                || (node1.equals(l.node2) && node2.equals(l.node1));
+                || (!directed && node1.equals(l.node2) && node2.equals(l.node1));
 
     }
 
     @Override
     public int hashCode() {
-        return node1.hashCode() * node2.hashCode();
+        return hash;
     }
 
     @Override
@@ -0,0 +1,129 @@
+package de.uniwue.VNFP.model;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * For every pair of nodes (s, t), the hosting node h that minimizes the length of the path s -> h -> t,
+ * once wrt. delay and once wrt. hops. Only nodes of a fixed set of hosting nodes are considered.
+ * The table stores node ids only; the corresponding distances are looked up in the graph's shortest path matrices,
+ * so all queries take {@code O(1)}.
+ */
+public final class MiddleStations {
+    /**
+     * Time that was needed to compute both tables (in milliseconds).
+     */
+    public final double computationTime;
+
+    private final Node[] nodes;
+    private final double[][] delay;
+    private final double[][] hops;
+    // [start id][end id] -> id of the best hosting node (-1 if there is none):
+    private final int[][] byDelay;
+    private final int[][] byHops;
+
+    private MiddleStations(Node[] nodes, double[][] delay, double[][] hops, int[][] byDelay, int[][] byHops, double computationTime) {
+        this.nodes = nodes;
+        this.delay = delay;
+        this.hops = hops;
+        this.byDelay = byDelay;
+        this.byHops = byHops;
+        this.computationTime = computationTime;
+    }
+
+    /**
+     * Computes the best hosting node for all pairs of nodes.
+     * The start nodes are processed in parallel (fork-join).
+     *
+     * @param ng      The network topology.
+     * @param choices All available hosting nodes.
+     * @return The tables for the given hosting nodes.
+     */
+    public static MiddleStations compute(NetworkGraph ng, Node[] choices) {
+        long start = System.nanoTime();
+        Node[] nodes = ng.getNodeArray();
+        double[][] delay = ng.getDelayMatrix();
+        double[][] hops = ng.getBfsPaths().dist;
+        int[] hosts = Arrays.stream(choices).mapToInt(n -> n.id).toArray();
+
+        int n = nodes.length;
+        int[][] byDelay = new int[n][];
+        int[][] byHops = new int[n][];
+        IntStream.range(0, n).parallel().forEach(s -> {
+            byDelay[s] = bestHosts(delay, s, hosts);
+            byHops[s] = bestHosts(hops, s, hosts);
+        });
+
+        return new MiddleStations(nodes, delay, hops, byDelay, byHops, (System.nanoTime() - start) / 1e6);
+    }
+
+    /**
+     * @param dist  Distance matrix.
+     * @param s     Start node id.
+     * @param hosts Ids of all hosting nodes.
+     * @return For each end node t, the first host h with minimal {@code dist[s][h] + dist[h][t]} (-1 if none is reachable).
+     */
+    private static int[] bestHosts(double[][] dist, int s, int[] hosts) {
+        int n = dist.length;
+        int[] best = new int[n];
+        double[] d = new double[n];
+        Arrays.fill(best, -1);
+        Arrays.fill(d, Double.POSITIVE_INFINITY);
+
+        // Iterate over hosts in the outer loop, so that the inner loop runs over a single row:
+        double[] fromS = dist[s];
+        for (int h : hosts) {
+            double toH = fromS[h];
+            if (toH == Double.POSITIVE_INFINITY) continue;
+            double[] fromH = dist[h];
+            for (int t = 0; t < n; t++) {
+                double current = toH + fromH[t];
+                if (current < d[t]) {
+                    d[t] = current;
+                    best[t] = h;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @param start Starting node of the desired path.
+     * @param end   End node of the desired path.
+     * @return The hosting node on a shortest (wrt. delay) path start -> middle -> end, or null if there is none.
+     */
+    public Node byDelay(Node start, Node end) {
+        int h = byDelay[start.id][end.id];
+        return (h < 0 ? null : nodes[h]);
+    }
+
+    /**
+     * @param start Starting node of the desired path.
+     * @param end   End node of the desired path.
+     * @return The hosting node on a shortest (wrt. hops) path start -> middle -> end, or null if there is none.
+     */
+    public Node byHops(Node start, Node end) {
+        int h = byHops[start.id][end.id];
+        return (h < 0 ? null : nodes[h]);
+    }
+
+    /**
+     * @param start Starting node of the desired path.
+     * @param end   End node of the desired path.
+     * @return Delay of a shortest path start -> middle -> end ({@code +Infinity} if there is none).
+     */
+    public double delay(Node start, Node end) {
+        int h = byDelay[start.id][end.id];
+        return (h < 0 ? Double.POSITIVE_INFINITY : delay[start.id][h] + delay[h][end.id]);
+    }
+
+    /**
+     * @param start Starting node of the desired path.
+     * @param end   End node of the desired path.
+     * @return Number of hops of a shortest path start -> middle -> end ({@code +Infinity} if there is none).
+     */
+    public double hops(Node start, Node end) {
+        int h = byHops[start.id][end.id];
+        return (h < 0 ? Double.POSITIVE_INFINITY : hops[start.id][h] + hops[h][end.id]);
+    }
+}
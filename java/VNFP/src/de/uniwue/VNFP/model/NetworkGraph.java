@@ -1,11 +1,16 @@
 package de.uniwue.VNFP.model;
 
-import de.uniwue.VNFP.algo.FlowUtils;
-
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -24,8 +29,27 @@ public class NetworkGraph {
     public boolean hasGeoCoordinates;
 
     private HashMap<String, Node> nodes;
-    private HashMap<Node, HashMap<Node, Node.Att>> backpointerDij;
-    private HashMap<Node, HashMap<Node, Node.Att>> backpointerBfs;
+    private ArrayList<Node> nodesById;
+    private ArrayList<Link> linksById;
+    private volatile Node[] nodeArray;
+    private volatile Link[] linkArray;
+    private volatile double[] linkDelays;
+    private volatile Adjacency adjacency;
+    // Shortest paths of both searches as dense matrices (the backpointer maps are derived from them):
+    private volatile ShortestPaths pathsDij;
+    private volatile ShortestPaths pathsBfs;
+    private volatile int[][] hopMatrix;
+    private volatile KShortestPaths kShortestPaths;
+    // Best hosting nodes for all pairs, per list of hosting nodes (and for all nodes with resources):
+    private final ConcurrentHashMap<List<Node>, MiddleStations> middleStations = new ConcurrentHashMap<>();
+    private volatile Node[] hostNodes;
+    private volatile MiddleStations hostMiddleStations;
+    private volatile Path pathCacheDirectory;
+    private volatile HashMap<Node, HashMap<Node, Node.Att>> backpointerDij;
+    private volatile HashMap<Node, HashMap<Node, Node.Att>> backpointerBfs;
+    // Path segments of both searches, indexed by [start id * number of nodes + end id] (filled on demand):
+    private volatile AtomicReferenceArray<PathSegment> segmentsDij;
+    private volatile AtomicReferenceArray<PathSegment> segmentsBfs;
 
     /**
      * Creates a new, empty graph.
@@ -35,6 +59,8 @@ public class NetworkGraph {
     public NetworkGraph(boolean directed) {
         this.directed = directed;
         nodes = new HashMap<>();
+        nodesById = new ArrayList<>();
+        linksById = new ArrayList<>();
     }
 
     /**
@@ -45,15 +71,16 @@ public class NetworkGraph {
      * @return Newly created Node object,
      */
     public Node addNode(String name, double[] resources) {
-        Node n = new Node(name, resources);
+        Node n = new Node(name, resources, null, nodesById.size());
 
         if (nodes.containsKey(name)) {
             throw new IllegalArgumentException("node " + n.name + " added twice");
         }
 
         nodes.put(name, n);
-        backpointerDij = null;
-        backpointerBfs = null;
+        nodesById.add(n);
+        nodeArray = null;
+        invalidatePaths();
         return n;
     }
 
@@ -67,10 +94,12 @@ public class NetworkGraph {
      * @return Newly created Link object.
      */
     public Link addLink(Node n1, Node n2, double bandwidth, double delay) {
-        backpointerDij = null;
-        backpointerBfs = null;
-        if (directed) return n1.addNeighbourDirected(n2, bandwidth, delay);
-        else return n1.addNeighbour(n2, bandwidth, delay);
+        invalidatePaths();
+        Link l;
+        if (directed) l = n1.addNeighbourDirected(n2, bandwidth, delay, linksById.size());
+        else l = n1.addNeighbour(n2, bandwidth, delay, linksById.size());
+        addLinkIndex(l);
+        return l;
     }
 
     /**
@@ -88,11 +117,41 @@ public class NetworkGraph {
             throw new IllegalStateException("Attempting to add directed links to an undirected graph");
         }
 
+        invalidatePaths();
+        Link l1 = n1.addNeighbourDirected(n2, bandwidth, delay, linksById.size());
+        addLinkIndex(l1);
+        Link l2 = n2.addNeighbourDirected(n1, bandwidth, delay, linksById.size());
+        addLinkIndex(l2);
+        return new Link[]{l1, l2};
+    }
+
+    /**
+     * Discards all shortest path information after the topology has been changed.
+     */
+    private void invalidatePaths() {
+        adjacency = null;
+        pathsDij = null;
+        pathsBfs = null;
+        hopMatrix = null;
+        kShortestPaths = null;
+        middleStations.clear();
+        hostNodes = null;
+        hostMiddleStations = null;
         backpointerDij = null;
         backpointerBfs = null;
-        Link l1 = n1.addNeighbourDirected(n2, bandwidth, delay);
-        Link l2 = n2.addNeighbourDirected(n1, bandwidth, delay);
-        return new Link[]{l1, l2};
+        segmentsDij = null;
+        segmentsBfs = null;
+    }
+
+    /**
+     * Registers a newly created link under its index.
+     *
+     * @param l The new link; {@code l.id} must equal the current number of links.
+     */
+    private void addLinkIndex(Link l) {
+        linksById.add(l);
+        linkArray = null;
+        linkDelays = null;
     }
 
     /**
@@ -104,6 +163,63 @@ public class NetworkGraph {
         return nodes;
     }
 
+    /**
+     * Returns all nodes, indexed by their {@link Node#id}.
+     * The array is shared between all callers and must not be modified.
+     *
+     * @return An array with {@code getNodeArray()[n.id] == n} for every node n of this graph.
+     */
+    public Node[] getNodeArray() {
+        if (nodeArray == null) {
+            nodeArray = nodesById.toArray(new Node[nodesById.size()]);
+        }
+        return nodeArray;
+    }
+
+    /**
+     * Returns all links, indexed by their {@link Link#id}.
+     * The array is shared between all callers and must not be modified.
+     *
+     * @return An array with {@code getLinkArray()[l.id] == l} for every link l of this graph.
+     */
+    public Link[] getLinkArray() {
+        if (linkArray == null) {
+            linkArray = linksById.toArray(new Link[linksById.size()]);
+        }
+        return linkArray;
+    }
+
+    /**
+     * Returns the latencies of all links, indexed by their {@link Link#id}.
+     * The array is shared between all callers and must not be modified.
+     *
+     * @return An array with {@code getLinkDelays()[l.id] == l.delay} for every link l of this graph.
+     */
+    public double[] getLinkDelays() {
+        if (linkDelays == null) {
+            Link[] links = getLinkArray();
+            double[] delays = new double[links.length];
+            for (int i = 0; i < links.length; i++) {
+                delays[i] = links[i].delay;
+            }
+            linkDelays = delays;
+        }
+        return linkDelays;
+    }
+
+    /**
+     * Returns the compressed (CSR) in- and outgoing adjacency of this graph.
+     * The object is shared between all callers and must not be modified.
+     *
+     * @return Adjacency arrays, indexed by node and link ids.
+     */
+    public Adjacency getAdjacency() {
+        if (adjacency == null) {
+            adjacency = new Adjacency(this);
+        }
+        return adjacency;
+    }
+
     /**
      * Collects all links in the graph and returns the Collection.
      *
@@ -116,19 +232,144 @@ public class NetworkGraph {
                 .collect(Collectors.toCollection(HashSet::new));
     }
 
+    /**
+     * Returns the shortest paths (wrt. delay) between all pairs of nodes, indexed by {@link Node#id}.
+     *
+     * @return Result of a Dijkstra search from every node.
+     */
+    public ShortestPaths getDijkstraPaths() {
+        if (pathsDij == null) {
+            pathsDij = computePaths("dijkstra", ShortestPaths::dijkstra);
+        }
+        return pathsDij;
+    }
+
+    /**
+     * @return The result of {@link #getDijkstraPaths()}, or null if it has not been computed yet.
+     */
+    public ShortestPaths getDijkstraPathsIfComputed() {
+        return pathsDij;
+    }
+
+    /**
+     * Returns the shortest paths (wrt. hops) between all pairs of nodes, indexed by {@link Node#id}.
+     *
+     * @return Result of a BFS from every node.
+     */
+    public ShortestPaths getBfsPaths() {
+        if (pathsBfs == null) {
+            pathsBfs = computePaths("bfs", ShortestPaths::bfs);
+        }
+        return pathsBfs;
+    }
+
+    /**
+     * @return The result of {@link #getBfsPaths()}, or null if it has not been computed yet.
+     */
+    public ShortestPaths getBfsPathsIfComputed() {
+        return pathsBfs;
+    }
+
+    /**
+     * Returns up to {@code k} loopless shortest paths (wrt. delay) between all pairs of nodes.
+     * The result is computed on the first call and kept for subsequent calls with the same {@code k}.
+     *
+     * @param k Maximum number of paths per node pair.
+     * @return Result of Yen's algorithm for every pair of nodes.
+     */
+    public KShortestPaths getKShortestPaths(int k) {
+        KShortestPaths paths = kShortestPaths;
+        if (paths == null || paths.k != k) {
+            // Expensive, so concurrent chains must not compute it more than once:
+            synchronized (this) {
+                paths = kShortestPaths;
+                if (paths == null || paths.k != k) {
+                    paths = KShortestPaths.compute(this, k);
+                    kShortestPaths = paths;
+                }
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * @return The result of the last call of {@link #getKShortestPaths(int)}, or null if there was none.
+     */
+    public KShortestPaths getKShortestPathsIfComputed() {
+        return kShortestPaths;
+    }
+
+    /**
+     * Sets a directory in which the shortest path tables of this topology are cached across runs.
+     * The tables are keyed by a content hash of the topology, so a directory can be shared by different topologies.
+     *
+     * @param directory Cache directory (created on demand), or null to disable caching.
+     */
+    public void setPathCacheDirectory(Path directory) {
+        this.pathCacheDirectory = directory;
+    }
+
+    private ShortestPaths computePaths(String search, Function<NetworkGraph, ShortestPaths> compute) {
+        Path directory = pathCacheDirectory;
+        if (directory == null) {
+            return compute.apply(this);
+        }
+        return new ShortestPathCache(directory, this).get(this, search, compute);
+    }
+
+    /**
+     * Returns the delays of shortest paths between all pairs of nodes.
+     * The array is shared between all callers and must not be modified.
+     *
+     * @return {@code delay[s][t]} with the minimal delay from s to t ({@code +Infinity} if unreachable).
+     */
+    public double[][] getDelayMatrix() {
+        return getDijkstraPaths().dist;
+    }
+
+    /**
+     * Returns the hop counts of shortest paths between all pairs of nodes.
+     * The array is shared between all callers and must not be modified.
+     *
+     * @return {@code hops[s][t]} with the minimal number of hops from s to t ({@code Integer.MAX_VALUE} if unreachable).
+     */
+    public int[][] getHopMatrix() {
+        if (hopMatrix == null) {
+            double[][] dist = getBfsPaths().dist;
+            int[][] hops = new int[dist.length][dist.length];
+            for (int s = 0; s < dist.length; s++) {
+                for (int t = 0; t < dist.length; t++) {
+                    hops[s][t] = (dist[s][t] == Double.POSITIVE_INFINITY ? Integer.MAX_VALUE : (int) dist[s][t]);
+                }
+            }
+            hopMatrix = hops;
+        }
+        return hopMatrix;
+    }
+
     /**
      * Returns shortest path pointers after a Dijkstra search.
+     * (Adapter for {@link #getDijkstraPaths()}; prefer the matrices in time-critical code.)
      *
      * @return Backpointers after performing Dijkstra
      */
     public HashMap<Node, HashMap<Node, Node.Att>> getDijkstraBackpointers() {
-        if (backpointerDij == null) {
-            backpointerDij = new HashMap<>();
-            for (Node n : nodes.values()) {
-                backpointerDij.put(n, FlowUtils.dijkstra(n));
+        HashMap<Node, HashMap<Node, Node.Att>> bp = backpointerDij;
+        if (bp == null) {
+            // The maps are compared by identity (see getPathSegment), so concurrent chains must share one instance:
+            synchronized (this) {
+                bp = backpointerDij;
+                if (bp == null) {
+                    ShortestPaths paths = getDijkstraPaths();
+                    bp = new HashMap<>();
+                    for (Node n : nodes.values()) {
+                        bp.put(n, paths.toBackpointers(this, n));
+                    }
+                    backpointerDij = bp;
+                }
             }
         }
-        return backpointerDij;
+        return bp;
     }
 
     /**
@@ -144,17 +385,128 @@ public class NetworkGraph {
 
     /**
      * Returns shortest path pointers after a BFS.
+     * (Adapter for {@link #getBfsPaths()}; prefer the matrices in time-critical code.)
      *
      * @return Backpointers after performing BFS
      */
     public HashMap<Node, HashMap<Node, Node.Att>> getBfsBackpointers() {
-        if (backpointerBfs == null) {
-            backpointerBfs = new HashMap<>();
-            for (Node n : nodes.values()) {
-                backpointerBfs.put(n, FlowUtils.bfs(n));
+        HashMap<Node, HashMap<Node, Node.Att>> bp = backpointerBfs;
+        if (bp == null) {
+            // The maps are compared by identity (see getPathSegment), so concurrent chains must share one instance:
+            synchronized (this) {
+                bp = backpointerBfs;
+                if (bp == null) {
+                    ShortestPaths paths = getBfsPaths();
+                    bp = new HashMap<>();
+                    for (Node n : nodes.values()) {
+                        bp.put(n, paths.toBackpointers(this, n));
+                    }
+                    backpointerBfs = bp;
+                }
+            }
+        }
+        return bp;
+    }
+
+    /**
+     * Returns the path from {@code start} to {@code end} that is given by the backpointers.
+     * If the backpointers are the ones of {@link #getDijkstraBackpointers()} or {@link #getBfsBackpointers()},
+     * the segment is cached, so that later calls do not need to follow the backpointers again.
+     *
+     * @param start        Beginning node of the path.
+     * @param end          End node of the path.
+     * @param backpointers Result of a shortest path search.
+     * @return Shortest path from {@code start} to {@code end}.
+     */
+    public PathSegment getPathSegment(Node start, Node end, HashMap<Node, HashMap<Node, Node.Att>> backpointers) {
+        AtomicReferenceArray<PathSegment> segments;
+        if (backpointers == backpointerDij) {
+            segments = segmentsDij;
+            if (segments == null) {
+                synchronized (this) {
+                    segments = segmentsDij;
+                    if (segments == null) {
+                        segments = segmentsDij = new AtomicReferenceArray<>(nodesById.size() * nodesById.size());
+                    }
+                }
+            }
+        }
+        else if (backpointers == backpointerBfs) {
+            segments = segmentsBfs;
+            if (segments == null) {
+                synchronized (this) {
+                    segments = segmentsBfs;
+                    if (segments == null) {
+                        segments = segmentsBfs = new AtomicReferenceArray<>(nodesById.size() * nodesById.size());
+                    }
+                }
             }
         }
-        return backpointerBfs;
+        else {
+            return PathSegment.of(start, end, backpointers.get(start));
+        }
+
+        int n = nodesById.size();
+        if (start.id < 0 || end.id < 0 || start.id >= n || end.id >= n || segments.length() != n * n) {
+            return PathSegment.of(start, end, backpointers.get(start));
+        }
+        // (Concurrent threads may create the same segment twice; all of them continue with the first one)
+        int i = start.id * n + end.id;
+        PathSegment seg = segments.get(i);
+        if (seg == null) {
+            seg = PathSegment.of(start, end, backpointers.get(start));
+            if (!segments.compareAndSet(i, null, seg)) {
+                seg = segments.get(i);
+            }
+        }
+        return seg;
+    }
+
+    /**
+     * Returns all nodes that provide any resources (and may thus host VNFs), in the order of their ids.
+     * The array is shared between all callers and must not be modified.
+     *
+     * @return All nodes with at least one positive resource.
+     */
+    public Node[] getHostNodes() {
+        if (hostNodes == null) {
+            hostNodes = Arrays.stream(getNodeArray())
+                    .filter(n -> Arrays.stream(n.resources).anyMatch(d -> d > 0.0))
+                    .toArray(Node[]::new);
+        }
+        return hostNodes;
+    }
+
+    /**
+     * Returns the best hosting nodes (see {@link #getHostNodes()}) for all pairs of nodes.
+     * The table is computed on the first call.
+     *
+     * @return Shortest paths start -> middle -> end for all pairs of nodes.
+     */
+    public MiddleStations getMiddleStations() {
+        if (hostMiddleStations == null) {
+            hostMiddleStations = getMiddleStations(getHostNodes());
+        }
+        return hostMiddleStations;
+    }
+
+    /**
+     * @return The result of {@link #getMiddleStations()}, or null if it has not been computed yet.
+     */
+    public MiddleStations getMiddleStationsIfComputed() {
+        return hostMiddleStations;
+    }
+
+    /**
+     * Returns the best middle nodes out of the given choices for all pairs of nodes.
+     * The table is computed on the first call with the same choices (in the same order).
+     *
+     * @param choices All available nodes for the middle-choice. (e.g. all nodes with <tt>cpuCapacity > 0</tt>)
+     * @return Shortest paths start -> middle -> end for all pairs of nodes.
+     */
+    public MiddleStations getMiddleStations(Node[] choices) {
+        Objects.requireNonNull(choices);
+        return middleStations.computeIfAbsent(List.of(choices), c -> MiddleStations.compute(this, choices));
     }
 
     /**
@@ -178,6 +530,14 @@ public class NetworkGraph {
             throw new IllegalArgumentException("choices array is empty");
         }
 
+        // Use the precomputed tables for the graph's own searches:
+        if (bp == backpointerDij) {
+            return getMiddleStations(choices).byDelay(start, end);
+        }
+        if (bp == backpointerBfs) {
+            return getMiddleStations(choices).byHops(start, end);
+        }
+
         Node middle = null;
         double d = Double.POSITIVE_INFINITY;
         for (Node n : choices) {
@@ -194,8 +554,11 @@ public class NetworkGraph {
     @Override
     public String toString() {
         HashSet<Link> links = getLinks();
-        StringBuilder sb = new StringBuilder("# Number of nodes, Number of links");
+        StringBuilder sb = new StringBuilder("# Number of nodes, Number of links" + (directed ? ", Direction" : ""));
         sb.append("\n").append(nodes.size()).append(",").append(links.size());
+        if (directed) {
+            sb.append(",directed");
+        }
         sb.append("\n\n# Node ID, Resources");
 
         for (Node n : nodes.values()) {
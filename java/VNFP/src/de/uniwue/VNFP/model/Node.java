@@ -3,7 +3,6 @@ package de.uniwue.VNFP.model;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Objects;
-import java.util.stream.Collectors;
 
 import de.uniwue.VNFP.model.solution.VnfInstances;
 import de.uniwue.VNFP.util.Point;
@@ -20,6 +19,11 @@ public class Node implements Comparable<Node> {
      * Name / ID of this node.
      */
     public final String name;
+    /**
+     * Dense index of this node inside its {@link NetworkGraph} (0 <= id < number of nodes),
+     * or -1 if the node does not belong to a graph.
+     */
+    public final int id;
     /**
      * Amount of available computational resources.
      */
@@ -30,7 +34,9 @@ public class Node implements Comparable<Node> {
     public Point geo;
 
     private HashSet<Link> neighbors;
-    private HashSet<Link> inNeighbors;
+    // Links in the form of (*, this) and (this, *):
+    private HashSet<Link> inLinks;
+    private HashSet<Link> outLinks;
 
     /**
      * Creates a new instance with the given name and resources. This node will be created without geo coordinates.
@@ -50,11 +56,25 @@ public class Node implements Comparable<Node> {
      * @param geo       Relative position to display this node in a GUI.
      */
     public Node(String name, double[] resources, Point geo) {
+        this(name, resources, geo, -1);
+    }
+
+    /**
+     * Creates a new instance with the given name, resources, geo coordinates and index.
+     *
+     * @param name      Name / ID of this node.
+     * @param resources Amount of available computational resources.
+     * @param geo       Relative position to display this node in a GUI.
+     * @param id        Dense index of this node inside its {@link NetworkGraph}.
+     */
+    Node(String name, double[] resources, Point geo, int id) {
         this.name = Objects.requireNonNull(name);
+        this.id = id;
         this.resources = Objects.requireNonNull(Arrays.copyOf(resources, resources.length));
         this.geo = geo;
         neighbors = new HashSet<>();
-        inNeighbors = new HashSet<>();
+        inLinks = new HashSet<>();
+        outLinks = new HashSet<>();
     }
 
     /**
@@ -68,11 +88,24 @@ public class Node implements Comparable<Node> {
      * @return Newly created Link object.
      */
     public Link addNeighbour(Node neigh, double bandwidth, double delay) {
+        return addNeighbour(neigh, bandwidth, delay, -1);
+    }
+
+    /**
+     * Adds the given node to this node's neighbors (undirected link).
+     *
+     * @param neigh     New neighbor of this node.
+     * @param bandwidth Available bandwidth of this link. (Mbps)
+     * @param delay     Latency of the link. (μs)
+     * @param id        Dense index of the new link inside its {@link NetworkGraph}.
+     * @return Newly created Link object.
+     */
+    Link addNeighbour(Node neigh, double bandwidth, double delay, int id) {
         if (this.equals(neigh)) {
             throw new IllegalArgumentException("node linked to itself");
         }
 
-        Link link = new Link(this, neigh, bandwidth, delay);
+        Link link = new Link(this, neigh, bandwidth, delay, id);
 
         if (neighbors.contains(link) || neigh.neighbors.contains(link)) {
             throw new IllegalArgumentException("link " + link.node1.name + " - " + link.node2.name + " added twice");
@@ -80,8 +113,8 @@ public class Node implements Comparable<Node> {
 
         neighbors.add(link);
         neigh.neighbors.add(link);
-        inNeighbors.add(link);
-        neigh.inNeighbors.add(link);
+        outLinks.add(link);
+        neigh.inLinks.add(link);
 
         return link;
     }
@@ -97,18 +130,32 @@ public class Node implements Comparable<Node> {
      * @return Newly created Link object.
      */
     public Link addNeighbourDirected(Node neigh, double bandwidth, double delay) {
+        return addNeighbourDirected(neigh, bandwidth, delay, -1);
+    }
+
+    /**
+     * Adds the given node to this node's neighbors (directed link).
+     *
+     * @param neigh     New neighbor of this node.
+     * @param bandwidth Available bandwidth of this link. (Mbps)
+     * @param delay     Latency of the link. (μs)
+     * @param id        Dense index of the new link inside its {@link NetworkGraph}.
+     * @return Newly created Link object.
+     */
+    Link addNeighbourDirected(Node neigh, double bandwidth, double delay, int id) {
         if (this.equals(neigh)) {
             throw new IllegalArgumentException("node linked to itself");
         }
 
-        Link link = new Link(this, neigh, bandwidth, delay);
+        Link link = new Link(this, neigh, bandwidth, delay, id, true);
 
         if (neighbors.contains(link)) {
             throw new IllegalArgumentException("link " + link.node1.name + " -> " + link.node2.name + " added twice");
         }
 
         neighbors.add(link);
-        neigh.inNeighbors.add(link);
+        outLinks.add(link);
+        neigh.inLinks.add(link);
 
         return link;
     }
@@ -126,21 +173,23 @@ public class Node implements Comparable<Node> {
     /**
      * Returns a set of all links that end in this node.
      * Only makes sense in the directed (or full duplex) case.
+     * The set is shared between all callers and must not be modified.
      *
      * @return A HashSet with all links in the form of (*, this).
      */
     public HashSet<Link> getInLinks() {
-        return inNeighbors.stream().filter(l -> l.node2.equals(this)).collect(Collectors.toCollection(HashSet::new));
+        return inLinks;
     }
 
     /**
      * Returns a set of all links that start in this node.
      * Only makes sense in the directed (or full duplex) case.
+     * The set is shared between all callers and must not be modified.
      *
      * @return A HashSet with all links in the form of (this, *).
      */
     public HashSet<Link> getOutLinks() {
-        return neighbors.stream().filter(l -> l.node1.equals(this)).collect(Collectors.toCollection(HashSet::new));
+        return outLinks;
     }
 
     @Override
@@ -0,0 +1,82 @@
+package de.uniwue.VNFP.model;
+
+import java.util.HashMap;
+import java.util.Objects;
+
+/**
+ * Immutable path between two nodes, taken from the result of a shortest path search (BFS or Dijkstra)
+ * or from {@link KShortestPaths}. Since every link was taken from the search's result, consecutive nodes are guaranteed to be adjacent.
+ * Segments of the graph's own searches are cached by {@link NetworkGraph#getPathSegment(Node, Node, HashMap)}.
+ */
+public final class PathSegment {
+    /**
+     * Nodes of the path, from start to end (inclusive). Must not be modified.
+     */
+    public final Node[] nodes;
+    /**
+     * {@code links[i]} connects {@code nodes[i-1]} and {@code nodes[i]}; {@code links[0]} is null. Must not be modified.
+     */
+    public final Link[] links;
+    /**
+     * Sum of all link delays.
+     */
+    public final double delay;
+    /**
+     * Number of links.
+     */
+    public final int hops;
+
+    /**
+     * @param nodes Nodes of the path, from start to end (inclusive).
+     * @param links Links towards the previous node of each node.
+     */
+    PathSegment(Node[] nodes, Link[] links) {
+        this.nodes = nodes;
+        this.links = links;
+        this.hops = links.length - 1;
+
+        double d = 0.0;
+        for (int i = 1; i < links.length; i++) {
+            d += links[i].delay;
+        }
+        this.delay = d;
+    }
+
+    /**
+     * Uses the result of a shortest path search to create the path from {@code start} to {@code end}.
+     *
+     * @param start Beginning node of this path.
+     * @param end   End node of this path.
+     * @param prevs Result of a shortest path search starting at {@code start}.
+     * @return Shortest path from {@code start} to {@code end}.
+     */
+    public static PathSegment of(Node start, Node end, HashMap<Node, Node.Att> prevs) {
+        Objects.requireNonNull(start);
+        Objects.requireNonNull(end);
+
+        // Count nodes first, so that the arrays can be filled from the back:
+        int n = 1;
+        Node current = end;
+        Link prev = prevs.get(current).pi;
+        while (prev != null) {
+            current = prev.getOther(current);
+            prev = prevs.get(current).pi;
+            n++;
+        }
+        if (!current.equals(start)) {
+            throw new IllegalArgumentException("backpointers do not lead from " + end.name + " to " + start.name);
+        }
+
+        Node[] nodes = new Node[n];
+        Link[] links = new Link[n];
+        current = end;
+        for (int i = n - 1; i >= 0; i--) {
+            nodes[i] = current;
+            links[i] = prevs.get(current).pi;
+            if (links[i] != null) {
+                current = links[i].getOther(current);
+            }
+        }
+        return new PathSegment(nodes, links);
+    }
+}
@@ -1,6 +1,7 @@
 package de.uniwue.VNFP.model;
 
 import de.uniwue.VNFP.algo.ParetoFrontier;
+import de.uniwue.VNFP.model.solution.MigrationIndex;
 import de.uniwue.VNFP.model.solution.Solution;
 
 import java.util.Objects;
@@ -35,6 +36,8 @@ public class ProblemInstance {
      */
     public ParetoFrontier solution;
 
+    private MigrationIndex migrationIndex;
+
     /**
      * Creates a new ProblemInstance from the given input objects.
      *
@@ -84,6 +87,27 @@ public class ProblemInstance {
      * @return Clone of this ProblemInstance with new Request array.
      */
     public ProblemInstance copyWith(TrafficRequest[] newReqs) {
-        return new ProblemInstance(ng, vnfLib, newReqs, objectives, initialSolutions);
+        ProblemInstance pi = new ProblemInstance(ng, vnfLib, newReqs, objectives, initialSolutions);
+        synchronized (this) {
+            pi.migrationIndex = migrationIndex;
+        }
+        return pi;
+    }
+
+    /**
+     * Returns the index of the initial solutions, which is built on the first call
+     * (and again after {@code initialSolutions} has been replaced).
+     * Copies created by {@link #copyWith(TrafficRequest[])} share the index.
+     *
+     * @return The migration index, or null if there are no initial solutions.
+     */
+    public synchronized MigrationIndex getMigrationIndex() {
+        if (initialSolutions == null) {
+            return null;
+        }
+        if (migrationIndex == null || migrationIndex.initialSolutions != initialSolutions) {
+            migrationIndex = new MigrationIndex(this, initialSolutions);
+        }
+        return migrationIndex;
     }
 }
@@ -0,0 +1,140 @@
+package de.uniwue.VNFP.model;
+
+import de.uniwue.VNFP.util.IndexedMinHeap;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Computes paths that avoid links without sufficient residual bandwidth.
+ * Paths are ordered lexicographically by the number of links whose residual bandwidth is smaller than the demand,
+ * then by delay. Since residual costs are never smaller than delays, the search is bounded in two ways:
+ * <ul>
+ * <li>If the static shortest path (wrt. delay) has enough capacity on every link, it is returned without any search.</li>
+ * <li>Otherwise, an A* search uses the static delay matrix as heuristic, so only the region around
+ * the congested links is explored. Scratch arrays are reset lazily, so a search costs nothing for unvisited nodes.</li>
+ * </ul>
+ * Not thread-safe; every thread should use its own instance.
+ */
+public final class ResidualRouter {
+    /**
+     * The network topology of this router.
+     */
+    public final NetworkGraph graph;
+
+    private final Node[] nodes;
+    private final Link[] links;
+    private final Adjacency adj;
+    // Added to the cost of each link without sufficient capacity (larger than the delay of any loopless path):
+    private final double penalty;
+
+    private final double[] g;
+    private final int[] pred;
+    private final int[] stamp;
+    private final IndexedMinHeap q;
+    private int currentStamp;
+
+    /**
+     * @param graph The network topology.
+     */
+    public ResidualRouter(NetworkGraph graph) {
+        this.graph = Objects.requireNonNull(graph);
+        this.nodes = graph.getNodeArray();
+        this.links = graph.getLinkArray();
+        this.adj = graph.getAdjacency();
+
+        double sum = 1.0;
+        for (Link l : links) {
+            sum += l.delay;
+        }
+        this.penalty = sum;
+
+        this.g = new double[nodes.length];
+        this.pred = new int[nodes.length];
+        this.stamp = new int[nodes.length];
+        this.q = new IndexedMinHeap(nodes.length);
+    }
+
+    /**
+     * Finds a path from {@code start} to {@code end} that uses as few links with insufficient residual bandwidth
+     * as possible, and has minimal delay among those paths.
+     *
+     * @param start    Beginning node of the path.
+     * @param end      End node of the path.
+     * @param demand   Bandwidth demand of the flow.
+     * @param residual Remaining bandwidth of each link.
+     * @return The chosen path.
+     */
+    public PathSegment route(Node start, Node end, double demand, ToDoubleFunction<Link> residual) {
+        ShortestPaths sp = graph.getDijkstraPaths();
+        if (sp.dist[start.id][end.id] == Double.POSITIVE_INFINITY) {
+            throw new IllegalArgumentException("no path exists from " + start.name + " to " + end.name);
+        }
+
+        // Fast path: the static shortest path is optimal if none of its links is congested.
+        int[] p = sp.pred[start.id];
+        boolean sufficient = true;
+        for (int v = end.id; v != start.id; v = adj.other(p[v], v)) {
+            if (residual.applyAsDouble(links[p[v]]) < demand) {
+                sufficient = false;
+                break;
+            }
+        }
+        if (sufficient) {
+            return graph.getPathSegment(start, end, graph.getDijkstraBackpointers());
+        }
+
+        // A* search with the static delays towards the end node as (consistent) heuristic:
+        double[][] h = sp.dist;
+        int s = start.id;
+        int t = end.id;
+        if (++currentStamp == 0) {
+            Arrays.fill(stamp, 0);
+            currentStamp = 1;
+        }
+        q.clear();
+        visit(s, 0.0, -1);
+        q.insertOrDecrease(s, h[s][t]);
+        while (!q.isEmpty()) {
+            int u = q.poll();
+            if (u == t) break;
+            for (int e = adj.start[u]; e < adj.start[u + 1]; e++) {
+                int v = adj.node[e];
+                if (h[v][t] == Double.POSITIVE_INFINITY) continue;
+                double cost = adj.delay[e];
+                if (residual.applyAsDouble(links[adj.link[e]]) < demand) {
+                    cost += penalty;
+                }
+                double gv = g[u] + cost;
+                if (stamp[v] != currentStamp || gv < g[v]) {
+                    visit(v, gv, adj.link[e]);
+                    q.insertOrDecrease(v, gv + h[v][t]);
+                }
+            }
+        }
+
+        // Collect the path backwards:
+        int length = 1;
+        for (int v = t; v != s; v = adj.other(pred[v], v)) {
+            length++;
+        }
+        Node[] pNodes = new Node[length];
+        Link[] pLinks = new Link[length];
+        int v = t;
+        for (int i = length - 1; i >= 0; i--) {
+            pNodes[i] = nodes[v];
+            if (v != s) {
+                pLinks[i] = links[pred[v]];
+                v = adj.other(pred[v], v);
+            }
+        }
+        return new PathSegment(pNodes, pLinks);
+    }
+
+    private void visit(int v, double gv, int link) {
+        stamp[v] = currentStamp;
+        g[v] = gv;
+        pred[v] = link;
+    }
+}
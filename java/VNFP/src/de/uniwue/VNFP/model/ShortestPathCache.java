@@ -0,0 +1,179 @@
+package de.uniwue.VNFP.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * On-disk cache for the {@link ShortestPaths} of a topology.
+ * Each table is stored in its own binary file, named after a content hash of the topology
+ * (nodes, links and their delays) and the type of search. Files are read via {@link FileChannel#map},
+ * so a warm start does not need to compute any paths.
+ * <p>
+ * File layout (big endian): magic, version, number of nodes n, followed by the
+ * {@code n*n} entries of {@code dist} (double), {@code pred} (int) and {@code nextHop} (int), row by row.
+ */
+final class ShortestPathCache {
+    private static final int MAGIC = 0x564E5350; // "VNSP"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 3 * Integer.BYTES;
+
+    private final Path directory;
+    private final String topologyHash;
+
+    /**
+     * @param directory Directory of the cache files (created on demand).
+     * @param ng        The network topology.
+     */
+    ShortestPathCache(Path directory, NetworkGraph ng) {
+        this.directory = Objects.requireNonNull(directory);
+        this.topologyHash = topologyHash(ng);
+    }
+
+    /**
+     * Loads the table of the given search from the cache. If it does not exist (or cannot be read),
+     * it is computed and stored instead.
+     *
+     * @param ng      The network topology.
+     * @param search  Name of the search ({@code "dijkstra"} or {@code "bfs"}).
+     * @param compute Computes the table if it is not cached.
+     * @return The shortest paths of the given search.
+     */
+    ShortestPaths get(NetworkGraph ng, String search, Function<NetworkGraph, ShortestPaths> compute) {
+        Path file = directory.resolve(topologyHash + "-" + search + ".bin");
+        int n = ng.getNodeArray().length;
+        if (fileSize(n) > Integer.MAX_VALUE) {
+            // Too large for a single mapped buffer:
+            return compute.apply(ng);
+        }
+
+        if (Files.isRegularFile(file)) {
+            try {
+                return read(file, n);
+            }
+            catch (IOException | RuntimeException e) {
+                System.err.println("Ignoring unreadable shortest path cache file " + file + ": " + e);
+            }
+        }
+
+        ShortestPaths paths = compute.apply(ng);
+        try {
+            write(file, paths);
+        }
+        catch (IOException e) {
+            System.err.println("Could not write shortest path cache file " + file + ": " + e);
+        }
+        return paths;
+    }
+
+    private static ShortestPaths read(Path file, int n) throws IOException {
+        long start = System.nanoTime();
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() != fileSize(n)) {
+                throw new IOException("unexpected file size " + ch.size());
+            }
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION || buf.getInt() != n) {
+                throw new IOException("header mismatch");
+            }
+
+            double[][] dist = new double[n][n];
+            int[][] pred = new int[n][n];
+            int[][] nextHop = new int[n][n];
+
+            DoubleBuffer d = slice(buf, HEADER_SIZE).asDoubleBuffer();
+            for (double[] row : dist) d.get(row);
+            IntBuffer p = slice(buf, HEADER_SIZE + (long) n * n * Double.BYTES).asIntBuffer();
+            for (int[] row : pred) p.get(row);
+            for (int[] row : nextHop) p.get(row);
+
+            return new ShortestPaths(dist, pred, nextHop, (System.nanoTime() - start) / 1e6, true);
+        }
+    }
+
+    private void write(Path file, ShortestPaths paths) throws IOException {
+        int n = paths.dist.length;
+        Files.createDirectories(directory);
+
+        // Write into a temporary file first, so that concurrent runs never see incomplete files:
+        Path tmp = Files.createTempFile(directory, topologyHash, ".tmp");
+        try {
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(n));
+                buf.putInt(MAGIC).putInt(VERSION).putInt(n);
+
+                DoubleBuffer d = slice(buf, HEADER_SIZE).asDoubleBuffer();
+                for (double[] row : paths.dist) d.put(row);
+                IntBuffer p = slice(buf, HEADER_SIZE + (long) n * n * Double.BYTES).asIntBuffer();
+                for (int[] row : paths.pred) p.put(row);
+                for (int[] row : paths.nextHop) p.put(row);
+                buf.force();
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static long fileSize(int n) {
+        return HEADER_SIZE + (long) n * n * (Double.BYTES + 2 * Integer.BYTES);
+    }
+
+    private static ByteBuffer slice(ByteBuffer buf, long offset) {
+        ByteBuffer dup = buf.duplicate();
+        dup.position((int) offset);
+        return dup.slice();
+    }
+
+    /**
+     * Computes a SHA-256 hash over everything that influences the shortest paths:
+     * the direction mode, all nodes (id and name) and all links (id, endpoints and delay).
+     *
+     * @param ng The network topology.
+     * @return Hexadecimal hash string.
+     */
+    static String topologyHash(NetworkGraph ng) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate(Integer.BYTES * 3 + Long.BYTES);
+        buf.putInt(ng.directed ? 1 : 0);
+        md.update(buf.array(), 0, buf.position());
+        for (Node n : ng.getNodeArray()) {
+            buf.clear();
+            buf.putInt(n.id);
+            md.update(buf.array(), 0, buf.position());
+            md.update(n.name.getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0);
+        }
+        for (Link l : ng.getLinkArray()) {
+            buf.clear();
+            buf.putInt(l.id).putInt(l.node1.id).putInt(l.node2.id).putLong(Double.doubleToLongBits(l.delay));
+            md.update(buf.array(), 0, buf.position());
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (byte b : md.digest()) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,208 @@
+package de.uniwue.VNFP.model;
+
+import de.uniwue.VNFP.util.IndexedMinHeap;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.stream.IntStream;
+
+/**
+ * All-pairs shortest paths of a {@link NetworkGraph}, stored in dense matrices that are indexed by {@link Node#id}.
+ * Depending on the search, the distances are either link delays (Dijkstra) or numbers of hops (BFS).
+ * All matrices are shared between all callers and must not be modified.
+ */
+public final class ShortestPaths {
+    /**
+     * {@code dist[s][t]} is the length of a shortest path from s to t ({@code +Infinity} if t is unreachable).
+     */
+    public final double[][] dist;
+    /**
+     * {@code pred[s][t]} is the id of the last link on the shortest path from s to t
+     * (-1 if {@code s == t} or t is unreachable).
+     */
+    public final int[][] pred;
+    /**
+     * {@code nextHop[s][t]} is the id of the node after s on the shortest path from s to t
+     * (-1 if {@code s == t} or t is unreachable).
+     */
+    public final int[][] nextHop;
+    /**
+     * Time that was needed to compute (or load) all matrices (in milliseconds).
+     */
+    public final double computationTime;
+    /**
+     * True, if the matrices were loaded from a {@link ShortestPathCache} instead of being computed.
+     */
+    public final boolean fromCache;
+
+    /**
+     * @param dist            Distance matrix.
+     * @param pred            Predecessor link matrix.
+     * @param nextHop         Next hop matrix.
+     * @param computationTime Time that was needed to compute (or load) all matrices (in milliseconds).
+     * @param fromCache       True, if the matrices were loaded from a cache.
+     */
+    ShortestPaths(double[][] dist, int[][] pred, int[][] nextHop, double computationTime, boolean fromCache) {
+        this.dist = dist;
+        this.pred = pred;
+        this.nextHop = nextHop;
+        this.computationTime = computationTime;
+        this.fromCache = fromCache;
+    }
+
+    /**
+     * Performs a Dijkstra search (wrt. link delays) from every node of the given graph.
+     * The sources are processed in parallel (fork-join); each search uses an {@link IndexedMinHeap}
+     * and does not allocate objects during relaxations.
+     *
+     * @param ng The network topology.
+     * @return Shortest paths wrt. delay.
+     */
+    public static ShortestPaths dijkstra(NetworkGraph ng) {
+        long start = System.nanoTime();
+        Adjacency adj = ng.getAdjacency();
+        int n = adj.start.length - 1;
+        double[][] dist = new double[n][];
+        int[][] pred = new int[n][];
+
+        IntStream.range(0, n).parallel().forEach(s -> {
+            double[] d = new double[n];
+            int[] p = new int[n];
+            Arrays.fill(d, Double.POSITIVE_INFINITY);
+            Arrays.fill(p, -1);
+
+            IndexedMinHeap q = new IndexedMinHeap(n);
+            d[s] = 0.0;
+            q.insertOrDecrease(s, 0.0);
+            while (!q.isEmpty()) {
+                int u = q.poll();
+                for (int e = adj.start[u]; e < adj.start[u + 1]; e++) {
+                    int v = adj.node[e];
+                    double dv = d[u] + adj.delay[e];
+                    if (d[v] > dv) {
+                        d[v] = dv;
+                        p[v] = adj.link[e];
+                        q.insertOrDecrease(v, dv);
+                    }
+                }
+            }
+            dist[s] = d;
+            pred[s] = p;
+        });
+
+        return new ShortestPaths(dist, pred, nextHops(adj, pred), (System.nanoTime() - start) / 1e6, false);
+    }
+
+    /**
+     * Performs a BFS (wrt. number of hops) from every node of the given graph.
+     * The sources are processed in parallel (fork-join).
+     *
+     * @param ng The network topology.
+     * @return Shortest paths wrt. hops.
+     */
+    public static ShortestPaths bfs(NetworkGraph ng) {
+        long start = System.nanoTime();
+        Adjacency adj = ng.getAdjacency();
+        int n = adj.start.length - 1;
+        double[][] dist = new double[n][];
+        int[][] pred = new int[n][];
+
+        IntStream.range(0, n).parallel().forEach(s -> {
+            double[] d = new double[n];
+            int[] p = new int[n];
+            int[] q = new int[n];
+            Arrays.fill(d, Double.POSITIVE_INFINITY);
+            Arrays.fill(p, -1);
+
+            int head = 0;
+            int tail = 0;
+            d[s] = 0.0;
+            q[tail++] = s;
+            while (head < tail) {
+                int u = q[head++];
+                for (int e = adj.start[u]; e < adj.start[u + 1]; e++) {
+                    int v = adj.node[e];
+
+                    // If the neighbor has not been visited yet:
+                    if (d[v] == Double.POSITIVE_INFINITY) {
+                        d[v] = d[u] + 1;
+                        p[v] = adj.link[e];
+                        q[tail++] = v;
+                    }
+                }
+            }
+            dist[s] = d;
+            pred[s] = p;
+        });
+
+        return new ShortestPaths(dist, pred, nextHops(adj, pred), (System.nanoTime() - start) / 1e6, false);
+    }
+
+    /**
+     * Derives the next hop matrix from the predecessor matrix.
+     *
+     * @param adj  Adjacency of the graph.
+     * @param pred Predecessor link matrix.
+     * @return Next hop matrix.
+     */
+    private static int[][] nextHops(Adjacency adj, int[][] pred) {
+        int n = pred.length;
+        int[][] nextHop = new int[n][];
+        IntStream.range(0, n).parallel().forEach(s -> {
+            int[] p = pred[s];
+            int[] next = new int[n];
+            Arrays.fill(next, -2);
+            next[s] = -1;
+
+            for (int t = 0; t < n; t++) {
+                if (next[t] != -2) continue;
+                if (p[t] < 0) {
+                    next[t] = -1;
+                    continue;
+                }
+
+                // Walk back until a node with known next hop is found, then fill in the walked nodes:
+                int v = t;
+                while (next[v] == -2) {
+                    int u = adj.other(p[v], v);
+                    if (u == s) {
+                        next[v] = v;
+                        break;
+                    }
+                    v = u;
+                }
+                int hop = next[v];
+                v = t;
+                while (next[v] == -2) {
+                    next[v] = hop;
+                    v = adj.other(p[v], v);
+                }
+            }
+            nextHop[s] = next;
+        });
+        return nextHop;
+    }
+
+    /**
+     * Creates the backpointer mapping (Node -> Backpointer) of a search from {@code start},
+     * in the format of {@link NetworkGraph#getDijkstraBackpointers()}. Unreachable nodes are not contained.
+     *
+     * @param ng    The network topology.
+     * @param start Starting node of the search.
+     * @return A path-mapping with the distances and predecessor links of this object.
+     */
+    HashMap<Node, Node.Att> toBackpointers(NetworkGraph ng, Node start) {
+        Node[] nodes = ng.getNodeArray();
+        Link[] links = ng.getLinkArray();
+        double[] d = dist[start.id];
+        int[] p = pred[start.id];
+
+        HashMap<Node, Node.Att> att = new HashMap<>();
+        for (int t = 0; t < nodes.length; t++) {
+            if (d[t] < Double.POSITIVE_INFINITY) {
+                att.put(nodes[t], new Node.Att(nodes[t], 2, d[t], (p[t] < 0 ? null : links[p[t]])));
+            }
+        }
+        return att;
+    }
+}
@@ -36,8 +36,10 @@ public class TrafficRequest implements Comparable<TrafficRequest> {
     public final VNF[] vnfSequence;
     /**
      * Unique ID for equals/hashCode (in case of 2 distinct requests with equal ingress, egress, ...)
+     * The readers assign dense IDs (0 <= id < number of requests), so that it may also be used as an array index.
      */
     public final int id;
+    private final double vnfDelay;
     private double shortestDelay;
     private double shortestHops;
 
@@ -52,6 +54,9 @@ public class TrafficRequest implements Comparable<TrafficRequest> {
      * @param vnfSequence     Array of {@link VNF}s which should be applied to this flow.
      */
     public TrafficRequest(int id, Node ingress, Node egress, double bandwidthDemand, double expectedDelay, VNF[] vnfSequence) {
+        if (id < 0) {
+            throw new IllegalArgumentException("id = " + id);
+        }
         this.id = id;
         this.ingress = Objects.requireNonNull(ingress);
         this.egress = Objects.requireNonNull(egress);
@@ -70,6 +75,7 @@ public class TrafficRequest implements Comparable<TrafficRequest> {
                 throw new IllegalArgumentException("processingCapacity of " + vnf + " too small for bandwidth " + bandwidthDemand);
             }
         }
+        this.vnfDelay = Arrays.stream(vnfSequence).mapToDouble(vnf -> vnf.delay).sum();
     }
 
     @Override
@@ -111,6 +117,13 @@ public class TrafficRequest implements Comparable<TrafficRequest> {
         return ret;
     }
 
+    /**
+     * @return Sum of the processing delays of all VNFs in {@code vnfSequence}.
+     */
+    public double getVnfDelay() {
+        return vnfDelay;
+    }
+
     /**
      * Returns the latency of a shortest possible (ingress -> VNF -> egress) path.
      *
@@ -124,6 +137,22 @@ public class TrafficRequest implements Comparable<TrafficRequest> {
         return shortestDelay;
     }
 
+    /**
+     * Returns the latency of a shortest possible (ingress -> VNF -> egress) path,
+     * looked up in the graph's precomputed tables ({@link NetworkGraph#getMiddleStations()}).
+     *
+     * @param ng The network topology.
+     * @return delay(shortest path) without the VNFs' latencies
+     */
+    public double getShortestDelay(NetworkGraph ng) {
+        if (shortestDelay == Double.POSITIVE_INFINITY) {
+            shortestDelay = (vnfSequence.length == 0
+                    ? ng.getDelayMatrix()[ingress.id][egress.id]
+                    : ng.getMiddleStations().delay(ingress, egress));
+        }
+        return shortestDelay;
+    }
+
     /**
      * Returns the hop count of a shortest possible (ingress -> VNF -> egress) path.
      *
@@ -137,6 +166,22 @@ public class TrafficRequest implements Comparable<TrafficRequest> {
         return shortestHops;
     }
 
+    /**
+     * Returns the hop count of a shortest possible (ingress -> VNF -> egress) path,
+     * looked up in the graph's precomputed tables ({@link NetworkGraph#getMiddleStations()}).
+     *
+     * @param ng The network topology.
+     * @return number_of_hops(shortest path)
+     */
+    public double getShortestHops(NetworkGraph ng) {
+        if (shortestHops == Double.POSITIVE_INFINITY) {
+            shortestHops = (vnfSequence.length == 0
+                    ? ng.getBfsPaths().dist[ingress.id][egress.id]
+                    : ng.getMiddleStations().hops(ingress, egress));
+        }
+        return shortestHops;
+    }
+
     /**
      * Returns the distance of a shortest possible (ingress -> VNF -> egress) path,
      * depending on the given backpointer.
@@ -41,6 +41,11 @@ public class VNF {
      * Pointer towards the VNF library that this type is a part of.
      */
     public VnfLib vnfLib;
+    /**
+     * Dense index of this type inside its {@link VnfLib} (0 <= id < number of VNF types),
+     * or -1 if it has not been added to a library yet. Set by {@link VnfLib#addVnf(String, VNF[])}.
+     */
+    public int id = -1;
 
     /**
      * Creates a new instance with the given contents.
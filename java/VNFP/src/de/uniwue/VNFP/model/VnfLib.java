@@ -13,7 +13,8 @@ import java.util.stream.Collectors;
 public class VnfLib {
     private final ArrayList<String> resources;
     private final HashMap<String, VNF[]> vnfs;
-    private final HashMap<String, VnfPair> pairs;
+    private final ArrayList<VNF> vnfsById;
+    private VnfPair[][] pairs;
 
     /**
      * This variable is meant as a shortcut for {@link VnfLib#getResources}.
@@ -32,7 +33,8 @@ public class VnfLib {
     public VnfLib() {
         resources = new ArrayList<>();
         vnfs = new HashMap<>();
-        pairs = new HashMap<>();
+        vnfsById = new ArrayList<>();
+        pairs = new VnfPair[0][0];
         res = new String[0];
     }
 
@@ -78,6 +80,14 @@ public class VnfLib {
 
         vnfs.put(name.trim().toLowerCase(), chain);
 
+        // indices of new types
+        for (VNF vnf : chain) {
+            if (vnf.vnfLib != this) {
+                vnf.id = vnfsById.size();
+                vnfsById.add(vnf);
+            }
+        }
+
         // backpointers to this library & size
         for (VNF[] vnfArray : vnfs.values()) {
             for (VNF vnf : vnfArray) {
@@ -99,8 +109,19 @@ public class VnfLib {
         Objects.requireNonNull(vnf_a);
         Objects.requireNonNull(vnf_b);
         Objects.requireNonNull(pair);
+        if (vnf_a.vnfLib != this || vnf_b.vnfLib != this) {
+            throw new IllegalArgumentException("VnfPair " + vnf_a.name + "," + vnf_b.name + " contains VNFs of another library");
+        }
 
-        pairs.put(vnf_a.name + "," + vnf_b.name, pair);
+        int n = vnfsById.size();
+        if (pairs.length < n) {
+            VnfPair[][] grown = new VnfPair[n][n];
+            for (int i = 0; i < pairs.length; i++) {
+                System.arraycopy(pairs[i], 0, grown[i], 0, pairs[i].length);
+            }
+            pairs = grown;
+        }
+        pairs[vnf_a.id][vnf_b.id] = pair;
     }
 
     /**
@@ -129,7 +150,30 @@ public class VnfLib {
      * or {@code null}, if none is found
      */
     public VnfPair getPair(VNF vnf_a, VNF vnf_b) {
-        return pairs.get(vnf_a.name + "," + vnf_b.name);
+        if (vnf_a.id < 0 || vnf_a.id >= pairs.length || vnf_b.id < 0 || vnf_b.id >= pairs.length) {
+            return null;
+        }
+        return pairs[vnf_a.id][vnf_b.id];
+    }
+
+    /**
+     * Returns all known VNF types, indexed by their {@link VNF#id}.
+     *
+     * @return A new array with {@code getVnfArray()[v.id] == v} for every VNF type v of this library.
+     */
+    public VNF[] getVnfArray() {
+        return vnfsById.toArray(new VNF[vnfsById.size()]);
+    }
+
+    /**
+     * Returns the latency restrictions of all VNF pairs as a table, indexed by the {@link VNF#id}s of both types.
+     * Types without restrictions (or that were added after the last pair) are represented by null entries
+     * or lie outside of the array's bounds. The array is shared and must not be modified.
+     *
+     * @return A table with {@code getPairArray()[a.id][b.id] == getPair(a, b)}.
+     */
+    public VnfPair[][] getPairArray() {
+        return pairs;
     }
 
     /**
@@ -18,7 +18,7 @@ import java.util.regex.Pattern;
  * <p>
  * File format:
  * <pre>
- *     Number-of-nodes, Number-of-links
+ *     Number-of-nodes, Number-of-links[, directed|undirected]
  *     Node-ID-1, Resources-1.1, Resources-1.2, ...
  *     Node-ID-2, Resources-2.1, Resources-2.2, ...
  *     Node-ID-3, Resources-3.1, Resources-3.2, ...
@@ -29,6 +29,10 @@ import java.util.regex.Pattern;
  *     ...
  * </pre>
  * <p>
+ * The optional direction in the header overrides the default direction given to
+ * {@link #readFromFile(Path, VnfLib, boolean)}. In directed topologies, each link line describes a single
+ * link from the first to the second node, so that both directions may have different capacities.
+ * <p>
  * Example:
  * <pre>
  *     # Number-of-nodes, Number-of-links
@@ -50,8 +54,8 @@ public class TopologyFileReader {
     private static String FLOATPATTERN = "\\d+(?:\\.\\d+)?";
     private static String NODEPATTERN = "[^ ;,\\[\\]\\(\\)]+";
 
-    // (Anzahl Nodes) (Anzahl Links)
-    private static Pattern pHeader = Pattern.compile("(\\d+),+(\\d+)");
+    // (Anzahl Nodes) (Anzahl Links) (Direction)
+    private static Pattern pHeader = Pattern.compile("(\\d+),+(\\d+)(?: *,+ *(directed|undirected))?");
     // (Node-ID) (Cores) (RAM) (HDD)
     private static String pNodeS = "(%n%)(?: *\\((-?%f%) *, *(-?%f%)\\))?";
     private static String pNodeSResources = " *, *+((?:-1)|(?:%f%))";
@@ -70,7 +74,21 @@ public class TopologyFileReader {
      * @throws IOException If any errors during file reads occur.
      */
     public static NetworkGraph readFromFile(Path path, VnfLib vnfLib) throws IOException {
-        return readFromFile(path.toAbsolutePath().toString(), vnfLib);
+        return readFromFile(path, vnfLib, false);
+    }
+
+    /**
+     * Reads a {@link NetworkGraph} from a topology file.
+     * Format: See {@link TopologyFileReader}.
+     *
+     * @param path     Path to the topology file.
+     * @param vnfLib   The VNF library containing all instance and resource types.
+     * @param directed Whether links are directed, unless the file's header specifies it.
+     * @return NetworkGraph object with all read content.
+     * @throws IOException If any errors during file reads occur.
+     */
+    public static NetworkGraph readFromFile(Path path, VnfLib vnfLib, boolean directed) throws IOException {
+        return readFromFile(path.toAbsolutePath().toString(), vnfLib, directed);
     }
 
     /**
@@ -83,6 +101,20 @@ public class TopologyFileReader {
      * @throws IOException If any errors during file reads occur.
      */
     public static NetworkGraph readFromFile(String path, VnfLib vnfLib) throws IOException {
+        return readFromFile(path, vnfLib, false);
+    }
+
+    /**
+     * Reads a {@link NetworkGraph} from a topology file.
+     * For the file format, cf. the main class documentation {@link TopologyFileReader}.
+     *
+     * @param path     Path to the topology file.
+     * @param vnfLib   The VNF library containing all instance and resource types.
+     * @param directed Whether links are directed, unless the file's header specifies it.
+     * @return NetworkGraph object with all read content.
+     * @throws IOException If any errors during file reads occur.
+     */
+    public static NetworkGraph readFromFile(String path, VnfLib vnfLib, boolean directed) throws IOException {
         Objects.requireNonNull(vnfLib);
 
         StringBuilder pattern = new StringBuilder(pNodeS);
@@ -96,9 +128,7 @@ public class TopologyFileReader {
         int nr = 0;
         int anzNodes = 0;
         int anzLinks = 0;
-        // TODO: Select dynamically
-        NetworkGraph ng = new NetworkGraph(false);
-        ng.hasGeoCoordinates = true;
+        NetworkGraph ng = null;
 
         while ((line = lnr.readLine()) != null) {
             // Skip: empty lines and comments (# hash)
@@ -116,6 +146,8 @@ public class TopologyFileReader {
 
                 anzNodes = Integer.parseInt(mHeader.group(1));
                 anzLinks = Integer.parseInt(mHeader.group(2));
+                ng = new NetworkGraph(mHeader.group(3) == null ? directed : mHeader.group(3).equals("directed"));
+                ng.hasGeoCoordinates = true;
             }
 
             // Node lines
@@ -160,9 +192,8 @@ public class TopologyFileReader {
                     throw new IOException("node '" + mLink.group(2) + "' not found for link: " + line);
                 }
 
-                // TODO: Select dynamically
+                // Directed graphs: only n1 -> n2
                 ng.addLink(n1, n2, parseOrInfty(mLink.group(3)) / 1000.0, Double.parseDouble(mLink.group(4)));
-                //ng.addBothDirectedLinks(n1, n2, parseOrInfty(mLink.group(3)) / 1000.0, Double.parseDouble(mLink.group(4)));
             }
 
             // nr > expected number of lines
@@ -1,8 +1,11 @@
 package de.uniwue.VNFP.model.log;
 
 import de.uniwue.VNFP.algo.ParetoFrontier;
+import de.uniwue.VNFP.model.KShortestPaths;
+import de.uniwue.VNFP.model.MiddleStations;
 import de.uniwue.VNFP.model.NetworkGraph;
 import de.uniwue.VNFP.model.Objs;
+import de.uniwue.VNFP.model.ShortestPaths;
 import de.uniwue.VNFP.model.TrafficRequest;
 import de.uniwue.VNFP.model.solution.Solution;
 import de.uniwue.VNFP.util.Config;
@@ -21,7 +24,7 @@ public class ExecutionProgressObserver implements PSAEventLogger {
     private long startTime;
 
     @Override
-    public void psaStart(NetworkGraph ng, TrafficRequest[] reqs, long seed) {
+    public void psaStart(NetworkGraph ng, TrafficRequest[] reqs, long seed, int threads) {
         Config c = Config.getInstance();
         numberOfIterations = (int) Math.ceil(Math.log(c.tmin / c.tmax) / Math.log(c.rho));
         startTime = System.currentTimeMillis();
@@ -30,6 +33,23 @@ public class ExecutionProgressObserver implements PSAEventLogger {
                 ng.getNodes().size(),
                 ng.getLinks().size(),
                 reqs.length);
+        System.out.printf("Running %d chains at the same time.\n", threads);
+        // Only report tables that have already been computed (see PSA.precomputePaths()):
+        ShortestPaths dij = ng.getDijkstraPathsIfComputed();
+        ShortestPaths bfs = ng.getBfsPathsIfComputed();
+        if (dij != null && bfs != null) {
+            System.out.printf("Shortest paths: Dijkstra %.1f ms%s, BFS %.1f ms%s.\n",
+                    dij.computationTime, (dij.fromCache ? " (cached)" : ""),
+                    bfs.computationTime, (bfs.fromCache ? " (cached)" : ""));
+        }
+        MiddleStations middleStations = ng.getMiddleStationsIfComputed();
+        if (middleStations != null) {
+            System.out.printf("Best hosting nodes: %.1f ms.\n", middleStations.computationTime);
+        }
+        KShortestPaths kShortestPaths = ng.getKShortestPathsIfComputed();
+        if (kShortestPaths != null) {
+            System.out.printf("%d shortest paths per node pair: %.1f ms.\n", kShortestPaths.k, kShortestPaths.computationTime);
+        }
         System.out.println("Preparing acceptance probabilities...");
     }
 
@@ -24,8 +24,9 @@ public interface PSAEventLogger {
      * @param ng      Network Graph (problem specific argument)
      * @param reqs    All traffic requests (problem specific argument)
      * @param seed    Seed used to create the random object
+     * @param threads Number of chains that the executor of the PSA instance runs at the same time
      */
-    default void psaStart(NetworkGraph ng, TrafficRequest[] reqs, long seed) {}
+    default void psaStart(NetworkGraph ng, TrafficRequest[] reqs, long seed, int threads) {}
 
     /**
      * This method is called when a new temperature level is reached.
@@ -34,7 +34,7 @@ public class PSAResultPrinter implements PSAEventLogger {
     }
 
     @Override
-    public void psaStart(NetworkGraph ng, TrafficRequest[] reqs, long seed) {
+    public void psaStart(NetworkGraph ng, TrafficRequest[] reqs, long seed, int threads) {
         startTime = System.currentTimeMillis();
         this.seed = seed;
     }
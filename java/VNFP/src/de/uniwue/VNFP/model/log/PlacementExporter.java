@@ -172,7 +172,7 @@ public class PlacementExporter implements PSAEventLogger {
 
                         // route
                         String sep = "";
-                        for (NodeAssignment n : assig.path) {
+                        for (NodeAssignment n : assig.path()) {
                             requestOvW.write(sep);
                             requestOvW.write(n.vnf == null ? n.node.name : "["+n.node.name+"]");
                             sep = ",";
@@ -44,7 +44,7 @@ public class VnfDetailsExporter implements PSAEventLogger {
     }
 
     @Override
-    public void psaStart(NetworkGraph ng, TrafficRequest[] reqs, long seed) {
+    public void psaStart(NetworkGraph ng, TrafficRequest[] reqs, long seed, int threads) {
         try {
             w.write("solutionNumber;instanceNumber;node;vnfType;variable;value");
         }
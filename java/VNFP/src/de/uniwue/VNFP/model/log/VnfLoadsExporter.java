@@ -36,7 +36,7 @@ public class VnfLoadsExporter implements PSAEventLogger {
     }
 
     @Override
-    public void psaStart(NetworkGraph ng, TrafficRequest[] reqs, long seed) {
+    public void psaStart(NetworkGraph ng, TrafficRequest[] reqs, long seed, int threads) {
         try {
             w.write("temperature;iteration;numberOfVnfInstances;meanLoad;individualLoads");
         }
@@ -0,0 +1,150 @@
+package de.uniwue.VNFP.model.solution;
+
+import de.uniwue.VNFP.model.ProblemInstance;
+import de.uniwue.VNFP.model.VNF;
+import de.uniwue.VNFP.model.solution.overview.NodeOverview;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Precomputed information about the initial solutions of a {@link ProblemInstance},
+ * used to calculate the objectives NUMBER_OF_VNF_REPLACEMENTS and TOTAL_FLOW_MIGRATION_PENALTY.
+ * For each initial solution, it stores the number of instances per node and VNF type,
+ * and the VNF locations (node ids) of every flow, indexed by request id.
+ * <p>
+ * Both objectives are sums of contributions of single nodes (per VNF type) and single flows,
+ * so that solutions may update them incrementally.
+ * Instances are immutable after their creation.
+ */
+public final class MigrationIndex {
+    /**
+     * The initial solutions that this index was built from.
+     */
+    public final Solution[] initialSolutions;
+
+    private final int numberOfVnfs;
+    // [initial solution][node id][vnf id] -> number of instances
+    private final int[][][] instanceCounts;
+    // [initial solution][request id] -> node ids of the VNF locations, or null if the request is not assigned
+    private final int[][][] vnfLocations;
+
+    /**
+     * Builds the index for the given initial solutions.
+     *
+     * @param pi               The problem instance (used for the number of nodes and VNF types).
+     * @param initialSolutions The initial solutions.
+     */
+    public MigrationIndex(ProblemInstance pi, Solution[] initialSolutions) {
+        this.initialSolutions = Objects.requireNonNull(initialSolutions);
+        int numberOfNodes = pi.ng.getNodeArray().length;
+        this.numberOfVnfs = pi.vnfLib.getVnfArray().length;
+        this.instanceCounts = new int[initialSolutions.length][][];
+        this.vnfLocations = new int[initialSolutions.length][][];
+
+        for (int k = 0; k < initialSolutions.length; k++) {
+            Solution s = initialSolutions[k];
+
+            instanceCounts[k] = new int[numberOfNodes][];
+            for (NodeOverview nodeOv : s.nodeMap.values()) {
+                instanceCounts[k][nodeOv.node.id] = countInstances(nodeOv);
+            }
+
+            int maxId = -1;
+            for (TrafficAssignment assig : s.assignments) {
+                maxId = Math.max(maxId, assig.request.id);
+            }
+            vnfLocations[k] = new int[maxId + 1][];
+            for (TrafficAssignment assig : s.assignments) {
+                vnfLocations[k][assig.request.id] = vnfLocations(assig);
+            }
+        }
+    }
+
+    /**
+     * Adds (or subtracts) the contribution of one node to NUMBER_OF_VNF_REPLACEMENTS,
+     * i.e., the difference in the number of instances to the given initial solution, separately for every VNF type.
+     *
+     * @param k       Index of the initial solution.
+     * @param nodeOv  Overview of the node in the current solution; may be null.
+     * @param sign    +1 to add the contribution, -1 to subtract it.
+     * @param perType Number of instances that were added or removed per VNF type (indexed by VNF id); updated in place.
+     */
+    public void addReplacements(int k, NodeOverview nodeOv, int sign, int[] perType) {
+        if (nodeOv == null) return;
+
+        int[] initial = instanceCounts[k][nodeOv.node.id];
+        int[] current = countInstances(nodeOv);
+        for (int v = 0; v < numberOfVnfs; v++) {
+            perType[v] += sign * Math.abs(current[v] - (initial == null ? 0 : initial[v]));
+        }
+    }
+
+    /**
+     * Calculates NUMBER_OF_VNF_REPLACEMENTS from the per-type contributions of all nodes.
+     * Only the VNF types of the current solution (i.e., the keys of its vnfMap) are counted,
+     * so that instances of types that only the initial solution uses are not regarded as replacements.
+     *
+     * @param perType Number of instances that were added or removed per VNF type (indexed by VNF id).
+     * @param types   The VNF types of the current solution.
+     * @return Number of instances that were added or removed.
+     */
+    public int replacements(int[] perType, Collection<VNF> types) {
+        int sum = 0;
+        for (VNF v : types) {
+            sum += perType[v.id];
+        }
+        return sum;
+    }
+
+    /**
+     * @return Number of VNF types, i.e. the length of the per-type arrays of {@link #addReplacements}.
+     */
+    public int numberOfVnfs() {
+        return numberOfVnfs;
+    }
+
+    /**
+     * Calculates the contribution of one flow to TOTAL_FLOW_MIGRATION_PENALTY,
+     * i.e., the sum of all migration penalties of VNFs that are located on a different node than in the given initial solution.
+     *
+     * @param k     Index of the initial solution.
+     * @param assig Assignment of the flow in the current solution.
+     * @return The flow's migration penalty, or 0 if the request is not part of the initial solution.
+     */
+    public double migrationPenalty(int k, TrafficAssignment assig) {
+        int id = assig.request.id;
+        if (id >= vnfLocations[k].length || vnfLocations[k][id] == null) return 0.0;
+
+        int[] initial = vnfLocations[k][id];
+        VNF[] sequence = assig.request.vnfSequence;
+        double penalty = 0.0;
+        int i = 0;
+        for (NodeAssignment nAssig : assig.getVnfAssignments()) {
+            if (i >= initial.length) break;
+            if (nAssig.node.id != initial[i]) {
+                penalty += sequence[i].flowMigrationPenalty;
+            }
+            i++;
+        }
+        return penalty;
+    }
+
+    private int[] countInstances(NodeOverview nodeOv) {
+        int[] counts = new int[numberOfVnfs];
+        for (Map.Entry<VNF, VnfInstances> e : nodeOv.getVnfInstances().entrySet()) {
+            counts[e.getKey().id] = e.getValue().loads.length;
+        }
+        return counts;
+    }
+
+    private static int[] vnfLocations(TrafficAssignment assig) {
+        int[] locations = new int[assig.request.vnfSequence.length];
+        int i = 0;
+        for (NodeAssignment nAssig : assig.getVnfAssignments()) {
+            locations[i++] = nAssig.node.id;
+        }
+        return locations;
+    }
+}
@@ -0,0 +1,367 @@
+package de.uniwue.VNFP.model.solution;
+
+import de.uniwue.VNFP.model.*;
+import de.uniwue.VNFP.model.solution.overview.LinkOverview;
+import de.uniwue.VNFP.model.solution.overview.NodeOverview;
+import de.uniwue.VNFP.model.solution.overview.VnfTypeOverview;
+import de.uniwue.VNFP.util.Config;
+import de.uniwue.VNFP.util.OrderStatisticTree;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Objective values of a placement, together with all aggregates that are required to update them incrementally
+ * when assignments are removed or added (see {@link #update(Solution, SolutionDelta)}).
+ * Instances are not modified after their creation, so that they can be shared between a {@link SolutionDelta}
+ * and the {@link Solution} that it is materialised into.
+ */
+final class ObjectiveValues {
+    /**
+     * Values for every possible objective function defined by {@link Objs}.
+     */
+    final double[] vals;
+
+    private final ProblemInstance pi;
+    private final Objs obj;
+
+    private double delayIndexSum;
+    private double hopsIndexSum;
+    private double inverseLoadSum;
+    private int inverseLoadCount;
+    private OrderStatisticTree delayIndices;
+    private OrderStatisticTree hopsIndices;
+    private OrderStatisticTree inverseLoads;
+    // Migration objectives per initial solution (null if there are none):
+    private MigrationIndex migrationIndex;
+    // [initial solution][vnf id] -> added or removed instances of this type:
+    private int[][] typeReplacements;
+    private int[] replacements;
+    private double[] migrationPenalties;
+
+    /**
+     * @param pi   The solved problem instance (used for objectives and initial solutions).
+     * @param vals Initial content of the value array.
+     */
+    private ObjectiveValues(ProblemInstance pi, double[] vals) {
+        this.pi = pi;
+        this.obj = pi.objectives;
+        this.vals = vals;
+    }
+
+    /**
+     * Calculates all objective values from scratch.
+     *
+     * @param pi                  The solved problem instance.
+     * @param nodeMap             Overview of each node.
+     * @param linkMap             Overview of each link.
+     * @param vnfMap              Overview of each VNF type.
+     * @param assignments         All assignments of the placement.
+     * @param numberOfAssignments Number of elements in {@code assignments}.
+     * @return The objective values of the placement.
+     */
+    static ObjectiveValues calculate(ProblemInstance pi, Map<Node, NodeOverview> nodeMap, Map<Link, LinkOverview> linkMap,
+                                     Map<VNF, VnfTypeOverview> vnfMap, Iterable<TrafficAssignment> assignments, int numberOfAssignments) {
+        ObjectiveValues v = new ObjectiveValues(Objects.requireNonNull(pi), new double[pi.objectives.values().length]);
+        v.delayIndices = OrderStatisticTree.empty();
+        v.hopsIndices = OrderStatisticTree.empty();
+        v.inverseLoads = OrderStatisticTree.empty();
+
+        for (NodeOverview nodeOv : nodeMap.values()) {
+            v.addNodeStats(nodeOv, +1);
+        }
+        for (VnfTypeOverview vnfOv : vnfMap.values()) {
+            v.addVnfTypeStats(vnfOv, +1);
+        }
+        for (LinkOverview linkOv : linkMap.values()) {
+            v.addLinkStats(linkOv, +1);
+        }
+        for (TrafficAssignment assig : assignments) {
+            v.addAssignmentStats(assig, +1);
+            v.updateMax(assig);
+        }
+
+        v.checkMigration(pi.getMigrationIndex(), nodeMap, vnfMap, assignments);
+        v.finish(numberOfAssignments);
+        return v;
+    }
+
+    /**
+     * Calculates the objective values of a modified placement incrementally, based on the values of its parent.
+     * Only the contributions of changed overview objects and assignments are subtracted and added again.
+     * Every {@code fullRecalculationInterval} changes (see {@link Config}), all values are recalculated from scratch
+     * in order to prevent the accumulation of floating point errors.
+     *
+     * @param old   Solution from which the placement was derived. Its values must be {@code this}.
+     * @param delta Modifications of {@code old}.
+     * @return The objective values of the modified placement.
+     */
+    ObjectiveValues update(Solution old, SolutionDelta delta) {
+        int interval = Config.getInstance().fullRecalculationInterval;
+        if (interval > 0 && delta.changeCount() % interval == 0) {
+            return calculate(pi, delta.nodeMap, delta.linkMap, delta.vnfMap, delta.assignments(), delta.numberOfAssignments());
+        }
+
+        ObjectiveValues v = new ObjectiveValues(pi, Arrays.copyOf(vals, vals.length));
+        v.delayIndexSum = delayIndexSum;
+        v.hopsIndexSum = hopsIndexSum;
+        v.inverseLoadSum = inverseLoadSum;
+        v.inverseLoadCount = inverseLoadCount;
+        v.delayIndices = delayIndices;
+        v.hopsIndices = hopsIndices;
+        v.inverseLoads = inverseLoads;
+
+        for (Object key : delta.changedKeys()) {
+            if (key instanceof Node) {
+                v.addNodeStats(old.nodeMap.get(key), -1);
+                v.addNodeStats(delta.nodeMap.get(key), +1);
+            }
+            else if (key instanceof Link) {
+                v.addLinkStats(old.linkMap.get(key), -1);
+                v.addLinkStats(delta.linkMap.get(key), +1);
+            }
+            else if (key instanceof VNF) {
+                v.addVnfTypeStats(old.vnfMap.get(key), -1);
+                v.addVnfTypeStats(delta.vnfMap.get(key), +1);
+            }
+        }
+
+        boolean recalcMaxDelay = false;
+        boolean recalcMaxHops = false;
+        for (TrafficAssignment assig : delta.removedAssignments()) {
+            v.addAssignmentStats(assig, -1);
+            recalcMaxDelay |= (assig.delayIndex >= v.vals[obj.MAX_DELAY_INDEX.i]);
+            recalcMaxHops |= (assig.hopsIndex >= v.vals[obj.MAX_HOPS_INDEX.i]);
+        }
+        if (recalcMaxDelay || recalcMaxHops) {
+            if (recalcMaxDelay) v.vals[obj.MAX_DELAY_INDEX.i] = 0.0;
+            if (recalcMaxHops) v.vals[obj.MAX_HOPS_INDEX.i] = 0.0;
+            for (TrafficAssignment assig : delta.assignments()) {
+                if (recalcMaxDelay && assig.delayIndex > v.vals[obj.MAX_DELAY_INDEX.i]) v.vals[obj.MAX_DELAY_INDEX.i] = assig.delayIndex;
+                if (recalcMaxHops && assig.hopsIndex > v.vals[obj.MAX_HOPS_INDEX.i]) v.vals[obj.MAX_HOPS_INDEX.i] = assig.hopsIndex;
+            }
+        }
+        for (TrafficAssignment assig : delta.addedAssignments()) {
+            v.addAssignmentStats(assig, +1);
+            v.updateMax(assig);
+        }
+
+        v.updateMigration(this, old, delta);
+        v.finish(delta.numberOfAssignments());
+        return v;
+    }
+
+    /**
+     * Calculates the migration objectives (per initial solution) from scratch.
+     *
+     * @param index       Index of the initial solutions; may be null.
+     * @param nodeMap     Overview of each node.
+     * @param vnfMap      Overview of each VNF type.
+     * @param assignments All assignments of the placement.
+     */
+    private void checkMigration(MigrationIndex index, Map<Node, NodeOverview> nodeMap, Map<VNF, VnfTypeOverview> vnfMap,
+                                Iterable<TrafficAssignment> assignments) {
+        migrationIndex = index;
+        if (index == null) {
+            typeReplacements = null;
+            replacements = null;
+            migrationPenalties = null;
+            return;
+        }
+
+        int numberOfInitial = index.initialSolutions.length;
+        typeReplacements = new int[numberOfInitial][index.numberOfVnfs()];
+        replacements = new int[numberOfInitial];
+        migrationPenalties = new double[numberOfInitial];
+        for (int k = 0; k < numberOfInitial; k++) {
+            for (NodeOverview nodeOv : nodeMap.values()) {
+                index.addReplacements(k, nodeOv, +1, typeReplacements[k]);
+            }
+            replacements[k] = index.replacements(typeReplacements[k], vnfMap.keySet());
+            for (TrafficAssignment assig : assignments) {
+                migrationPenalties[k] += index.migrationPenalty(k, assig);
+            }
+        }
+    }
+
+    /**
+     * Updates the migration objectives (per initial solution) incrementally.
+     * Falls back to a full calculation if {@code prev} refers to other initial solutions.
+     *
+     * @param prev  Values of the parent solution.
+     * @param old   The parent solution.
+     * @param delta Modifications of {@code old}.
+     */
+    private void updateMigration(ObjectiveValues prev, Solution old, SolutionDelta delta) {
+        if (pi.initialSolutions == null) {
+            checkMigration(null, delta.nodeMap, delta.vnfMap, delta.assignments());
+            return;
+        }
+        if (prev.migrationIndex == null || prev.migrationIndex.initialSolutions != pi.initialSolutions) {
+            checkMigration(pi.getMigrationIndex(), delta.nodeMap, delta.vnfMap, delta.assignments());
+            return;
+        }
+
+        migrationIndex = prev.migrationIndex;
+        typeReplacements = new int[prev.typeReplacements.length][];
+        replacements = new int[prev.replacements.length];
+        migrationPenalties = Arrays.copyOf(prev.migrationPenalties, prev.migrationPenalties.length);
+        for (int k = 0; k < replacements.length; k++) {
+            typeReplacements[k] = Arrays.copyOf(prev.typeReplacements[k], prev.typeReplacements[k].length);
+            for (Object key : delta.changedKeys()) {
+                if (key instanceof Node) {
+                    migrationIndex.addReplacements(k, old.nodeMap.get(key), -1, typeReplacements[k]);
+                    migrationIndex.addReplacements(k, delta.nodeMap.get(key), +1, typeReplacements[k]);
+                }
+            }
+            // The set of VNF types may have grown, so the sum over all types is recalculated:
+            replacements[k] = migrationIndex.replacements(typeReplacements[k], delta.vnfMap.keySet());
+            for (TrafficAssignment assig : delta.removedAssignments()) {
+                migrationPenalties[k] -= migrationIndex.migrationPenalty(k, assig);
+            }
+            for (TrafficAssignment assig : delta.addedAssignments()) {
+                migrationPenalties[k] += migrationIndex.migrationPenalty(k, assig);
+            }
+        }
+    }
+
+    /**
+     * Adds (or subtracts) the contribution of a single node to the objective values.
+     *
+     * @param nodeOv Overview of the node; may be null.
+     * @param sign   +1 to add the contribution, -1 to subtract it.
+     */
+    private void addNodeStats(NodeOverview nodeOv, int sign) {
+        if (nodeOv == null) return;
+
+        // Check node resources
+        double[] remaining = nodeOv.remainingResources();
+        boolean violated = false;
+        for (int i = 0; i < nodeOv.node.resources.length; i++) {
+            vals[obj.TOTAL_USED_RESOURCES[i].i] += sign * (nodeOv.node.resources[i] - remaining[i]);
+            violated |= (remaining[i] < 0.0);
+        }
+        if (violated) {
+            vals[obj.NUMBER_OF_RESOURCE_VIOLATIONS.i] += sign;
+        }
+
+        // Check capacities
+        for (VnfInstances inst : nodeOv.getVnfInstances().values()) {
+            for (double d : inst.loads) {
+                vals[obj.TOTAL_ROOTED_VNF_LOADS.i] += sign * Math.sqrt(d);
+                if (violated) {
+                    vals[obj.TOTAL_OVERLOADED_VNF_CAPACITY.i] += sign * d;
+                }
+
+                double inverseLoad = inst.type.processingCapacity / d;
+                inverseLoadSum += sign * inverseLoad;
+                inverseLoadCount += sign;
+                inverseLoads = (sign > 0 ? inverseLoads.add(inverseLoad) : inverseLoads.remove(inverseLoad));
+            }
+        }
+    }
+
+    /**
+     * Adds (or subtracts) the contribution of a single VNF type to the objective values.
+     *
+     * @param vnfOv Overview of the VNF type; may be null.
+     * @param sign  +1 to add the contribution, -1 to subtract it.
+     */
+    private void addVnfTypeStats(VnfTypeOverview vnfOv, int sign) {
+        if (vnfOv == null) return;
+
+        // Check number of instances
+        int total = vnfOv.getTotal();
+        if (vnfOv.vnf.maxInstances > -1L && total > vnfOv.vnf.maxInstances) {
+            double rootedCapacity = 0.0;
+            for (VnfInstances inst : vnfOv.locations.values()) {
+                rootedCapacity += Arrays.stream(inst.loads).map(Math::sqrt).sum();
+            }
+            vals[obj.NUMBER_OF_EXCESSIVE_VNFS.i] += sign * (total - vnfOv.vnf.maxInstances);
+            vals[obj.TOTAL_ROOTED_EXCESSIVE_VNF_CAPACITY.i] += sign * rootedCapacity;
+        }
+        vals[obj.NUMBER_OF_VNF_INSTANCES.i] += sign * total;
+    }
+
+    /**
+     * Adds (or subtracts) the contribution of a single link to the objective values.
+     *
+     * @param linkOv Overview of the link; may be null.
+     * @param sign   +1 to add the contribution, -1 to subtract it.
+     */
+    private void addLinkStats(LinkOverview linkOv, int sign) {
+        // Check link bandwidth
+        if (linkOv != null && linkOv.remainingBandwidth() < 0.0) {
+            vals[obj.NUMBER_OF_CONGESTED_LINKS.i] += sign;
+        }
+    }
+
+    /**
+     * Adds (or subtracts) the contribution of a single assignment to the objective values.
+     * (Maximum values are not considered.)
+     *
+     * @param assig The assignment.
+     * @param sign  +1 to add the contribution, -1 to subtract it.
+     */
+    private void addAssignmentStats(TrafficAssignment assig, int sign) {
+        // Check delay
+        vals[obj.TOTAL_DELAY.i] += sign * assig.delay;
+        vals[obj.NUMBER_OF_HOPS.i] += sign * assig.numberOfHops;
+        delayIndexSum += sign * assig.delayIndex;
+        hopsIndexSum += sign * assig.hopsIndex;
+        delayIndices = (sign > 0 ? delayIndices.add(assig.delayIndex) : delayIndices.remove(assig.delayIndex));
+        hopsIndices = (sign > 0 ? hopsIndices.add(assig.hopsIndex) : hopsIndices.remove(assig.hopsIndex));
+
+        if (assig.delay > assig.request.expectedDelay) {
+            vals[obj.NUMBER_OF_DELAY_VIOLATIONS.i] += sign;
+        }
+    }
+
+    /**
+     * Raises the maximum delay and hops indices to the ones of the given assignment, if necessary.
+     *
+     * @param assig The assignment.
+     */
+    private void updateMax(TrafficAssignment assig) {
+        if (assig.delayIndex > vals[obj.MAX_DELAY_INDEX.i]) vals[obj.MAX_DELAY_INDEX.i] = assig.delayIndex;
+        if (assig.hopsIndex > vals[obj.MAX_HOPS_INDEX.i]) vals[obj.MAX_HOPS_INDEX.i] = assig.hopsIndex;
+    }
+
+    /**
+     * Calculates all objective values that cannot be maintained by summing up contributions
+     * (mean, median and migration values, and the unfeasibility flag).
+     * Medians are taken from the persistent order-statistic trees, which share their structure with the previous values.
+     *
+     * @param numberOfAssignments Number of assignments of the placement.
+     */
+    private void finish(int numberOfAssignments) {
+        vals[obj.UNFEASIBLE.i] = (vals[obj.NUMBER_OF_RESOURCE_VIOLATIONS.i] > 0.0
+                || vals[obj.NUMBER_OF_EXCESSIVE_VNFS.i] > 0.0
+                || vals[obj.NUMBER_OF_CONGESTED_LINKS.i] > 0.0
+                || vals[obj.NUMBER_OF_DELAY_VIOLATIONS.i] > 0.0 ? 1.0 : 0.0);
+
+        vals[obj.MEAN_INVERSE_LOAD_INDEX.i] = inverseLoadSum / inverseLoadCount;
+        vals[obj.MEDIAN_INVERSE_LOAD_INDEX.i] = inverseLoads.median();
+
+        vals[obj.MEAN_DELAY_INDEX.i] = delayIndexSum / (double) numberOfAssignments;
+        vals[obj.MEAN_HOPS_INDEX.i] = hopsIndexSum / (double) numberOfAssignments;
+
+        vals[obj.MEDIAN_DELAY_INDEX.i] = delayIndices.median();
+        vals[obj.MEDIAN_HOPS_INDEX.i] = hopsIndices.median();
+
+        if (migrationIndex != null) {
+            // Minimum over all initial solutions (or -1, if there are none):
+            vals[obj.NUMBER_OF_VNF_REPLACEMENTS.i] = -1;
+            vals[obj.TOTAL_FLOW_MIGRATION_PENALTY.i] = -1;
+            for (int k = 0; k < replacements.length; k++) {
+                if (vals[obj.NUMBER_OF_VNF_REPLACEMENTS.i] == -1 || vals[obj.NUMBER_OF_VNF_REPLACEMENTS.i] > replacements[k]) {
+                    vals[obj.NUMBER_OF_VNF_REPLACEMENTS.i] = replacements[k];
+                }
+                if (vals[obj.TOTAL_FLOW_MIGRATION_PENALTY.i] == -1 || vals[obj.TOTAL_FLOW_MIGRATION_PENALTY.i] > migrationPenalties[k]) {
+                    vals[obj.TOTAL_FLOW_MIGRATION_PENALTY.i] = migrationPenalties[k];
+                }
+            }
+        }
+    }
+}
@@ -5,8 +5,7 @@ import de.uniwue.VNFP.model.solution.overview.LinkOverview;
 import de.uniwue.VNFP.model.solution.overview.NodeOverview;
 import de.uniwue.VNFP.model.solution.overview.VnfTypeOverview;
 import de.uniwue.VNFP.util.Config;
-import de.uniwue.VNFP.util.HashWrapper;
-import de.uniwue.VNFP.util.Median;
+import de.uniwue.VNFP.util.PersistentMap;
 
 import java.io.IOException;
 import java.io.OutputStreamWriter;
@@ -47,16 +46,17 @@ public class Solution implements Comparable<Solution> {
     public final TrafficAssignment[] assignments;
     /**
      * Contains an overview for each node.
+     * The (immutable) map is shared with neighbour solutions, which only replace the overviews they modify.
      */
-    public HashMap<Node, NodeOverview> nodeMap;
+    public PersistentMap<Node, NodeOverview> nodeMap;
     /**
      * Contains an overview for each link.
      */
-    public HashMap<Link, LinkOverview> linkMap;
+    public PersistentMap<Link, LinkOverview> linkMap;
     /**
      * Contains an overview for each VNF.
      */
-    public HashMap<VNF, VnfTypeOverview> vnfMap;
+    public PersistentMap<VNF, VnfTypeOverview> vnfMap;
 
     public double creationTemperature;
     public int creationIteration;
@@ -70,6 +70,11 @@ public class Solution implements Comparable<Solution> {
 
     private double[] objectiveVector;
     private double[] unfeasibleVector;
+    // XOR of all assignments' fingerprints:
+    private long fingerprint;
+
+    // Objective values and the aggregates that are required to update them incrementally:
+    private ObjectiveValues values;
 
     /**
      * Creates a new Solution instance with the given content and calculates objective values for it.
@@ -105,16 +110,20 @@ public class Solution implements Comparable<Solution> {
         if (requests.length != assignments.length) {
             throw new IllegalArgumentException("requests and assignments have different length");
         }
-        HashSet<TrafficRequest> assignmentSet = Arrays.stream(assignments)
-                .map(a -> a.request)
-                .collect(Collectors.toCollection(HashSet<TrafficRequest>::new));
+        BitSet assignmentSet = new BitSet();
+        for (TrafficAssignment traffAss : assignments) {
+            assignmentSet.set(traffAss.request.id);
+        }
         for (TrafficRequest req : requests) {
-            if (!assignmentSet.contains(req)) {
+            if (!assignmentSet.get(req.id)) {
                 throw new IllegalArgumentException("no assignment found for request '"+req+"'");
             }
         }
 
         if (calcStats) {
+            for (TrafficAssignment traffAss : assignments) {
+                fingerprint ^= traffAss.fingerprint;
+            }
             calcStats();
         }
     }
@@ -130,6 +139,25 @@ public class Solution implements Comparable<Solution> {
         return new Solution(pi, assignments, true);
     }
 
+    /**
+     * Creates the Solution for a materialised neighbour. Overview objects and objective values are taken from the delta.
+     *
+     * @param pi          The solved problem instance (network, vnf lib, requests)
+     * @param assignments Contains one TrafficAssignment for each TrafficRequest. The order of requests and assignments must match.
+     * @param delta       The neighbour that contains these assignments.
+     * @param values      The (already calculated) objective values of the neighbour.
+     */
+    Solution(ProblemInstance pi, TrafficAssignment[] assignments, SolutionDelta delta, ObjectiveValues values) {
+        this(pi, assignments, false);
+        this.nodeMap = delta.nodeMap;
+        this.linkMap = delta.linkMap;
+        this.vnfMap = delta.vnfMap;
+        this.changed = delta.changeCount();
+        this.fingerprint = delta.getFingerprint();
+        this.values = values;
+        this.vals = values.vals;
+    }
+
     /**
      * Creates a new Solution instance with the given content and makes it unfeasible.
      *
@@ -178,60 +206,15 @@ public class Solution implements Comparable<Solution> {
      * @param assignments    A copy of the old solution's assignment array, in the same order as the requests.
      * @param lastValidIndex The last index of the remaining flows' arrays (TrafficRequests and TrafficAssignments).
      *                       Elements [0..lastValidIndex] will be kept, [lastValidIndex+1..length-1] will be removed.
-     * @return A new Solution without the given TrafficAssignments, only containing information about the remaining flows.
+     * @return A new Solution without the given TrafficAssignments, only containing information about the remaining flows
+     *         (in the order of the old solution).
      */
     public static Solution removeAssignmentsFromSolution(Solution old, TrafficRequest[] requests, TrafficAssignment[] assignments, int lastValidIndex) {
-        TrafficRequest[] reqs = new TrafficRequest[lastValidIndex+1];
-        TrafficAssignment[] assigs = new TrafficAssignment[lastValidIndex+1];
-        System.arraycopy(requests, 0, reqs, 0, lastValidIndex+1);
-        System.arraycopy(assignments, 0, assigs, 0, lastValidIndex+1);
-
-        Solution s2 = new Solution(old.pi.copyWith(reqs), assigs, false);
-
-        // Calc the stats based on the original solution
-        s2.nodeMap = new HashMap<>(old.nodeMap);
-        s2.linkMap = new HashMap<>(old.linkMap);
-        s2.vnfMap = new HashMap<>(old.vnfMap);
-        HashMap<Object, Boolean> copied = new HashMap<>();
-
+        SolutionDelta delta = new SolutionDelta(old);
         for (int i = lastValidIndex+1; i < assignments.length; i++) {
-            TrafficAssignment assig = assignments[i];
-
-            for (NodeAssignment nassig : assig.path) {
-                if (nassig.prev != null) {
-                    LinkOverview lOv = s2.linkMap.get(nassig.prev);
-                    if (copied.get(nassig.prev) == null) {
-                        lOv = lOv.copy();
-                        s2.linkMap.put(nassig.prev, lOv);
-                        copied.put(nassig.prev, true);
-                    }
-                    lOv.removeRequest(nassig.traffReq);
-                }
-                if (nassig.vnf != null) {
-                    NodeOverview nOv = s2.nodeMap.get(nassig.node);
-                    if (copied.get(nassig.node) == null) {
-                        nOv = nOv.copy();
-                        s2.nodeMap.put(nassig.node, nOv);
-                        copied.put(nassig.node, true);
-                    }
-                    nOv.removeAssignment(nassig);
-
-                    VnfTypeOverview vnfOv = s2.vnfMap.get(nassig.vnf);
-                    if (copied.get(nassig.vnf) == null) {
-                        vnfOv = vnfOv.copy();
-                        s2.vnfMap.put(nassig.vnf, vnfOv);
-                        copied.put(nassig.vnf, true);
-                    }
-                    vnfOv.removeLocation(nassig.node);
-                    vnfOv.addLocation(nassig.node, nOv.getVnfCapacities(nassig.vnf));
-                }
-            }
+            delta.removeAssignment(assignments[i]);
         }
-
-        s2.checkConstraints();
-        s2.changed = old.changed + 1;
-
-        return s2;
+        return delta.toSolution();
     }
 
     /**
@@ -243,65 +226,11 @@ public class Solution implements Comparable<Solution> {
      * @return A new Solution including the given TrafficAssignments in its statistics
      */
     public static Solution addAssignmentsToSolution(Solution old, TrafficAssignment... newAssigs) {
-        TrafficRequest[] reqs = new TrafficRequest[old.requests.length + newAssigs.length];
-        TrafficAssignment[] assigs = new TrafficAssignment[old.assignments.length + newAssigs.length];
-        System.arraycopy(old.requests, 0, reqs, 0, old.requests.length);
-        System.arraycopy(old.assignments, 0, assigs, 0, old.assignments.length);
-
-        for (int i = 0; i < newAssigs.length; i++) {
-            reqs[old.requests.length + i] = newAssigs[i].request;
-            assigs[old.assignments.length + i] = newAssigs[i];
-        }
-
-        // Prevent additive floating point arithmetic errors by frequently recalculating from scratch.
-        //if (old.changed >= 0) {
-        //    return new Solution(old.graph, reqs, assigs, true);
-        //}
-
-        Solution s2 = new Solution(old.pi.copyWith(reqs), assigs, false);
-
-        // Calc the stats based on the original solution
-        s2.nodeMap = new HashMap<>(old.nodeMap);
-        s2.linkMap = new HashMap<>(old.linkMap);
-        s2.vnfMap = new HashMap<>(old.vnfMap);
-        HashMap<Object, Boolean> copied = new HashMap<>();
-
+        SolutionDelta delta = new SolutionDelta(old);
         for (TrafficAssignment assig : newAssigs) {
-            for (NodeAssignment nassig : assig.path) {
-                if (nassig.prev != null) {
-                    LinkOverview lOv = s2.linkMap.get(nassig.prev);
-                    if (copied.get(nassig.prev) == null) {
-                        lOv = lOv.copy();
-                        s2.linkMap.put(nassig.prev, lOv);
-                        copied.put(nassig.prev, true);
-                    }
-                    lOv.addRequest(nassig.traffReq);
-                }
-                if (nassig.vnf != null) {
-                    NodeOverview nOv = s2.nodeMap.get(nassig.node);
-                    if (copied.get(nassig.node) == null) {
-                        nOv = nOv.copy();
-                        s2.nodeMap.put(nassig.node, nOv);
-                        copied.put(nassig.node, true);
-                    }
-                    nOv.addAssignment(nassig);
-
-                    VnfTypeOverview vnfOv = s2.vnfMap.get(nassig.vnf);
-                    if (copied.get(nassig.vnf) == null) {
-                        vnfOv = (vnfOv == null ? new VnfTypeOverview(nassig.vnf) : vnfOv.copy());
-                        s2.vnfMap.put(nassig.vnf, vnfOv);
-                        copied.put(nassig.vnf, true);
-                    }
-                    vnfOv.removeLocation(nassig.node);
-                    vnfOv.addLocation(nassig.node, nOv.getVnfCapacities(nassig.vnf));
-                }
-            }
+            delta.addAssignment(assig);
         }
-
-        s2.checkConstraints();
-        s2.changed = old.changed + 1;
-
-        return s2;
+        return delta.toSolution();
     }
 
     /**
@@ -384,21 +313,22 @@ public class Solution implements Comparable<Solution> {
         // Assignments:
         for (TrafficAssignment assig : assignments) {
             double delay = 0.0;
-            String[] path = new String[assig.path.length];
-            for (int i = 0; i < assig.path.length; i++) {
-                NodeAssignment nAssig = assig.path[i];
+            String[] path = new String[assig.pathLength()];
+            for (int i = 0; i < assig.pathLength(); i++) {
+                VNF vnf = assig.getVnf(i);
+                Link prev = assig.getPrev(i);
 
-                if (nAssig.vnf != null) delay += nAssig.vnf.delay;
-                if (nAssig.prev != null) delay += nAssig.prev.delay;
+                if (vnf != null) delay += vnf.delay;
+                if (prev != null) delay += prev.delay;
 
-                path[i] = nAssig.node.name;
-                if (nAssig.vnf != null) path[i] = "(" + path[i] + ")";
+                path[i] = assig.getNode(i).name;
+                if (vnf != null) path[i] = "(" + path[i] + ")";
             }
 
             if (delay > assig.request.expectedDelay) w.write("* ");
             else w.write("  ");
 
-            w.write("delay=" + delay + " hops=" + assig.path.length + " for " + Arrays.toString(path) + "   " + assig);
+            w.write("delay=" + delay + " hops=" + assig.pathLength() + " for " + Arrays.toString(path) + "   " + assig);
             w.write("\n");
         }
     }
@@ -409,22 +339,25 @@ public class Solution implements Comparable<Solution> {
     private void calcStats() {
         if (nodeMap == null) {
             // Create overview objects for each node and link:
-            nodeMap = new HashMap<>();
-            linkMap = new HashMap<>();
-            vnfMap = new HashMap<>();
-            for (Node n : graph.getNodes().values()) {
+            HashMap<Node, NodeOverview> nodeMap = new HashMap<>();
+            HashMap<Link, LinkOverview> linkMap = new HashMap<>();
+            HashMap<VNF, VnfTypeOverview> vnfMap = new HashMap<>();
+            for (Node n : graph.getNodeArray()) {
                 nodeMap.put(n, new NodeOverview(n));
-                n.getNeighbors().forEach(l -> {
-                    if (!linkMap.containsKey(l)) linkMap.put(l, new LinkOverview(l));
-                });
+            }
+            for (Link l : graph.getLinkArray()) {
+                linkMap.put(l, new LinkOverview(l));
             }
 
             // Fill overview objects with the placement's assignments:
             for (TrafficAssignment assig : assignments) {
-                for (NodeAssignment nAssig : assig.path) {
+                for (NodeAssignment nAssig : assig.getVnfAssignments()) {
                     nodeMap.get(nAssig.node).addAssignment(nAssig);
-                    if (nAssig.prev != null) {
-                        linkMap.get(nAssig.prev).addRequest(assig.request);
+                }
+                for (int i = 0; i < assig.pathLength(); i++) {
+                    Link prev = assig.getPrev(i);
+                    if (prev != null) {
+                        linkMap.get(prev).addRequest(assig.request);
                     }
                 }
             }
@@ -441,136 +374,36 @@ public class Solution implements Comparable<Solution> {
                 }
             }
 
+            this.nodeMap = PersistentMap.copyOf(nodeMap);
+            this.linkMap = PersistentMap.copyOf(linkMap);
+            this.vnfMap = PersistentMap.copyOf(vnfMap);
             checkConstraints();
         }
     }
 
     /**
-     * Uses previously generated overview objects and calculates objective values.
+     * Uses previously generated overview objects and calculates objective values from scratch.
      */
     private void checkConstraints() {
-        // Double[0] = Number of VNFs, Double[1] = sum(sqrt(capacity)
-        HashMap<VNF, Double[]> numberOfVnfsPerType = new HashMap<>();
-        ArrayList<Double> loads = new ArrayList<>();
-
-        for (NodeOverview nodeOv : nodeMap.values()) {
-            for (int i = 0; i < nodeOv.node.resources.length; i++) {
-                vals[obj.TOTAL_USED_RESOURCES[i].i] += nodeOv.node.resources[i] - nodeOv.remainingResources()[i];
-            }
-
-            // Check node resources
-            if (Arrays.stream(nodeOv.remainingResources()).anyMatch(d -> d < 0.0)) {
-                vals[obj.UNFEASIBLE.i] = 1.0;
-                vals[obj.NUMBER_OF_RESOURCE_VIOLATIONS.i]++;
-            }
-
-            for (VnfInstances inst : nodeOv.getVnfInstances().values()) {
-                // Check capacities
-                for (double d : inst.loads) {
-                    vals[obj.TOTAL_ROOTED_VNF_LOADS.i] += Math.sqrt(d);
-                    if (Arrays.stream(nodeOv.remainingResources()).anyMatch(v -> v < 0.0)) {
-                        vals[obj.TOTAL_OVERLOADED_VNF_CAPACITY.i] += d;
-                    }
-
-                    loads.add(inst.type.processingCapacity / d);
-                }
-
-                // Save number & capacities of instances
-                Double[] current = numberOfVnfsPerType.get(inst.type);
-                if (current == null) current = new Double[]{0.0, 0.0};
-                current[0] += inst.loads.length;
-                current[1] += Arrays.stream(inst.loads).map(Math::sqrt).sum();
-                numberOfVnfsPerType.put(inst.type, current);
-            }
-        }
-        vals[obj.MEAN_INVERSE_LOAD_INDEX.i] = loads.stream().mapToDouble(Double::doubleValue).sum() / loads.size();
-        vals[obj.MEDIAN_INVERSE_LOAD_INDEX.i] = Median.median(loads.stream().mapToDouble(Double::doubleValue).toArray());
-
-        // Check number of instances
-        for (Map.Entry<VNF, Double[]> e : numberOfVnfsPerType.entrySet()) {
-            if (e.getKey().maxInstances > -1L && Math.round(e.getValue()[0]) > e.getKey().maxInstances) {
-                vals[obj.NUMBER_OF_EXCESSIVE_VNFS.i] += (e.getValue()[0] - e.getKey().maxInstances);
-                vals[obj.TOTAL_ROOTED_EXCESSIVE_VNF_CAPACITY.i] += e.getValue()[1];
-                vals[obj.UNFEASIBLE.i] = 1.0;
-            }
-            vals[obj.NUMBER_OF_VNF_INSTANCES.i] += e.getValue()[0];
-        }
+        values = ObjectiveValues.calculate(pi, nodeMap, linkMap, vnfMap, Arrays.asList(assignments), assignments.length);
+        vals = values.vals;
+    }
 
-        // Check link bandwidth
-        for (LinkOverview linkOv : linkMap.values()) {
-            if (linkOv.remainingBandwidth() < 0.0) {
-                vals[obj.UNFEASIBLE.i] = 1.0;
-                vals[obj.NUMBER_OF_CONGESTED_LINKS.i]++;
-            }
+    /**
+     * @return Objective values including all aggregates for incremental updates.
+     */
+    ObjectiveValues values() {
+        if (values == null) {
+            throw new IllegalStateException("objective values have not been calculated");
         }
+        return values;
+    }
 
-        // Check delay
-        double delayIndex = 0.0;
-        double hopsIndex = 0.0;
-        for (TrafficAssignment assig : assignments) {
-            vals[obj.TOTAL_DELAY.i] += assig.delay;
-            vals[obj.NUMBER_OF_HOPS.i] += assig.numberOfHops;
-            delayIndex += assig.delayIndex;
-            hopsIndex += assig.hopsIndex;
-            if (assig.delayIndex > vals[obj.MAX_DELAY_INDEX.i]) vals[obj.MAX_DELAY_INDEX.i] = assig.delayIndex;
-            if (assig.hopsIndex > vals[obj.MAX_HOPS_INDEX.i]) vals[obj.MAX_HOPS_INDEX.i] = assig.hopsIndex;
-
-            if (assig.delay > assig.request.expectedDelay) {
-                vals[obj.UNFEASIBLE.i] = 1.0;
-                vals[obj.NUMBER_OF_DELAY_VIOLATIONS.i]++;
-            }
-        }
-        vals[obj.MEAN_DELAY_INDEX.i] = delayIndex / (double) assignments.length;
-        vals[obj.MEAN_HOPS_INDEX.i] = hopsIndex / (double) assignments.length;
-
-        vals[obj.MEDIAN_DELAY_INDEX.i] = Median.median(Arrays.stream(assignments).mapToDouble(a -> a.delayIndex).toArray());
-        vals[obj.MEDIAN_HOPS_INDEX.i] = Median.median(Arrays.stream(assignments).mapToDouble(a -> a.hopsIndex).toArray());
-
-		if (pi.initialSolutions != null) {
-			// Number of VNF Replacements
-			vals[obj.NUMBER_OF_VNF_REPLACEMENTS.i] = -1;
-			for (Solution s : pi.initialSolutions) {
-				double replacements = 0;
-				for (Node n : nodeMap.keySet()) {
-					for (VNF v : vnfMap.keySet()) {
-						VnfInstances inst1 = nodeMap.get(n).getVnfCapacities(v);
-						VnfInstances inst2 = s.nodeMap.get(n).getVnfCapacities(v);
-
-						replacements += Math.abs(inst1.loads.length - inst2.loads.length);
-					}
-				}
-				if (vals[obj.NUMBER_OF_VNF_REPLACEMENTS.i] == -1 || vals[obj.NUMBER_OF_VNF_REPLACEMENTS.i] > replacements) {
-					vals[obj.NUMBER_OF_VNF_REPLACEMENTS.i] = replacements;
-				}
-			}
-
-			// Prepare assignments map
-			HashMap<HashWrapper, TrafficAssignment> assigMap = new HashMap<>();
-			for (TrafficAssignment assig : assignments) {
-				assigMap.put(new HashWrapper(assig.request), assig);
-			}
-
-			// Flow Migration Penalty
-			vals[obj.TOTAL_FLOW_MIGRATION_PENALTY.i] = -1;
-			for (Solution s : pi.initialSolutions) {
-				double penalty = 0;
-				for (TrafficAssignment assig : s.assignments) {
-					TrafficAssignment assig2 = assigMap.get(new HashWrapper(assig.request));
-					if (assig2 != null) {
-						Node[] assigPath = Arrays.stream(assig.path).filter(n -> n.vnf != null).map(n -> n.node).toArray(Node[]::new);
-						Node[] assig2Path = Arrays.stream(assig2.path).filter(n -> n.vnf != null).map(n -> n.node).toArray(Node[]::new);
-						for (int i = 0; i < assigPath.length; i++) {
-							if (!assigPath[i].equals(assig2Path[i])) {
-								penalty += assig.request.vnfSequence[i].flowMigrationPenalty;
-							}
-						}
-					}
-				}
-				if (vals[obj.TOTAL_FLOW_MIGRATION_PENALTY.i] == -1 || vals[obj.TOTAL_FLOW_MIGRATION_PENALTY.i] > penalty) {
-					vals[obj.TOTAL_FLOW_MIGRATION_PENALTY.i] = penalty;
-				}
-			}
-		}
+    /**
+     * @return Number of modifications since the initial solution (used to schedule full recalculations).
+     */
+    int changeCount() {
+        return changed;
     }
 
     /**
@@ -599,6 +432,18 @@ public class Solution implements Comparable<Solution> {
         return unfeasibleVector;
     }
 
+    /**
+     * Returns a 64-bit fingerprint of this placement, i.e., the XOR of the {@link TrafficAssignment#fingerprint}s
+     * of all assignments. It does not depend on the order of the assignments and is maintained incrementally
+     * by {@link SolutionDelta}. Equal placements have equal fingerprints; different placements collide
+     * with negligible probability only.
+     *
+     * @return 64-bit placement fingerprint (0 for unfeasible dummy solutions and empty placements).
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
     /**
      * @return true, if this Solution is feasible; otherwise: false.
      */
@@ -659,6 +504,7 @@ public class Solution implements Comparable<Solution> {
 
         Solution solution = (Solution) o;
 
+        if (fingerprint != solution.fingerprint) return false;
         if (!Arrays.equals(getUnfeasibleVector(), solution.getUnfeasibleVector())) return false;
         if (!Arrays.equals(getObjectiveVector(), solution.getObjectiveVector())) return false;
 
@@ -674,9 +520,6 @@ public class Solution implements Comparable<Solution> {
 
     @Override
     public int hashCode() {
-        int result = Arrays.hashCode(assignments);
-        result = 31 * result + Arrays.hashCode(getUnfeasibleVector());
-        result = 31 * result + Arrays.hashCode(getObjectiveVector());
-        return result;
+        return Long.hashCode(fingerprint);
     }
 }
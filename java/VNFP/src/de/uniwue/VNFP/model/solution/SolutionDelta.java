@@ -0,0 +1,352 @@
+package de.uniwue.VNFP.model.solution;
+
+import de.uniwue.VNFP.model.*;
+import de.uniwue.VNFP.model.solution.overview.LinkOverview;
+import de.uniwue.VNFP.model.solution.overview.NodeOverview;
+import de.uniwue.VNFP.model.solution.overview.VnfTypeOverview;
+import de.uniwue.VNFP.util.Config;
+import de.uniwue.VNFP.util.PersistentMap;
+
+import java.util.*;
+
+/**
+ * A neighbour of a {@link Solution} that is described by the assignments removed from and added to its parent.
+ * Overview objects are copied from the parent on their first modification only, and the objective values are
+ * updated incrementally (and only once, when they are requested).
+ * The request and assignment arrays, and thus the actual {@link Solution} object, are only created
+ * by {@link #toSolution()}, e.g. when the neighbour is accepted or enters a Pareto frontier.
+ * <p>
+ * After {@link #toSolution()} has been called, the overview objects are shared with the created Solution
+ * and this delta cannot be modified anymore.
+ */
+public final class SolutionDelta {
+    /**
+     * The solution from which this neighbour is derived.
+     */
+    public final Solution parent;
+    /**
+     * The network graph with available resources.
+     */
+    public final NetworkGraph graph;
+    /**
+     * Contains an overview for each node. Must not be modified from outside.
+     */
+    public PersistentMap<Node, NodeOverview> nodeMap;
+    /**
+     * Contains an overview for each link. Must not be modified from outside.
+     */
+    public PersistentMap<Link, LinkOverview> linkMap;
+    /**
+     * Contains an overview for each VNF. Must not be modified from outside.
+     */
+    public PersistentMap<VNF, VnfTypeOverview> vnfMap;
+
+    // Keys of all overview objects that were copied from the parent:
+    private final ArrayList<Object> changed;
+    // Assignments of the parent that are not part of this neighbour (indexed by request id):
+    private final BitSet removedIds;
+    private final ArrayList<TrafficAssignment> removed;
+    // Assignments that are not part of the parent (by request id):
+    private final LinkedHashMap<Integer, TrafficAssignment> added;
+
+    private long fingerprint;
+    private ObjectiveValues values;
+    private double[] objectiveVector;
+    private double[] unfeasibleVector;
+    private Solution solution;
+
+    /**
+     * Creates a neighbour that equals the given solution.
+     *
+     * @param parent The solution to be altered.
+     */
+    public SolutionDelta(Solution parent) {
+        this.parent = Objects.requireNonNull(parent);
+        if (parent.assignments == null) {
+            throw new IllegalArgumentException("parent is an unfeasible dummy solution");
+        }
+        this.graph = parent.graph;
+        this.nodeMap = parent.nodeMap;
+        this.linkMap = parent.linkMap;
+        this.vnfMap = parent.vnfMap;
+        this.changed = new ArrayList<>();
+        this.removedIds = new BitSet();
+        this.removed = new ArrayList<>();
+        this.added = new LinkedHashMap<>();
+        this.fingerprint = parent.getFingerprint();
+    }
+
+    /**
+     * Removes an assignment, which is either part of the parent or has been added to this neighbour before.
+     * Statistics (VNF loads, resource demands, ...) are updated accordingly.
+     *
+     * @param assig The assignment to remove.
+     */
+    public void removeAssignment(TrafficAssignment assig) {
+        checkModifiable();
+        int id = assig.request.id;
+        if (added.get(id) == assig) {
+            added.remove(id);
+        }
+        else {
+            if (removedIds.get(id)) {
+                throw new IllegalArgumentException("assignment for request " + id + " has already been removed");
+            }
+            removedIds.set(id);
+            removed.add(assig);
+        }
+        fingerprint ^= assig.fingerprint;
+
+        for (int i = 0; i < assig.pathLength(); i++) {
+            Link prev = assig.getPrev(i);
+            if (prev != null) {
+                linkOverview(prev).removeRequest(assig.request);
+            }
+        }
+        for (NodeAssignment nassig : assig.getVnfAssignments()) {
+            NodeOverview nOv = nodeOverview(nassig.node);
+            nOv.removeAssignment(nassig);
+
+            VnfTypeOverview vnfOv = vnfTypeOverview(nassig.vnf);
+            vnfOv.removeLocation(nassig.node);
+            vnfOv.addLocation(nassig.node, nOv.getVnfCapacities(nassig.vnf));
+        }
+        invalidate();
+    }
+
+    /**
+     * Adds an assignment for a request that is not part of this neighbour.
+     * Statistics (VNF loads, resource demands, ...) are updated accordingly.
+     *
+     * @param assig The new assignment.
+     */
+    public void addAssignment(TrafficAssignment assig) {
+        checkModifiable();
+        if (added.putIfAbsent(assig.request.id, assig) != null) {
+            throw new IllegalArgumentException("request " + assig.request.id + " has already been added");
+        }
+        fingerprint ^= assig.fingerprint;
+
+        for (int i = 0; i < assig.pathLength(); i++) {
+            Link prev = assig.getPrev(i);
+            if (prev != null) {
+                linkOverview(prev).addRequest(assig.request);
+            }
+        }
+        for (NodeAssignment nassig : assig.getVnfAssignments()) {
+            NodeOverview nOv = nodeOverview(nassig.node);
+            nOv.addAssignment(nassig);
+
+            VnfTypeOverview vnfOv = vnfTypeOverview(nassig.vnf);
+            vnfOv.removeLocation(nassig.node);
+            vnfOv.addLocation(nassig.node, nOv.getVnfCapacities(nassig.vnf));
+        }
+        invalidate();
+    }
+
+    /**
+     * @return The number of assignments (and requests) of this neighbour.
+     */
+    public int numberOfAssignments() {
+        return parent.assignments.length - removed.size() + added.size();
+    }
+
+    /**
+     * @return true, if this neighbour equals its parent (no assignments were removed or added).
+     */
+    public boolean isUnchanged() {
+        return removed.isEmpty() && added.isEmpty();
+    }
+
+    /**
+     * Returns the fingerprint of this neighbour's placement (see {@link Solution#getFingerprint()}).
+     * It is updated in O(1) per added or removed assignment.
+     *
+     * @return 64-bit placement fingerprint.
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Returns the values of all objective functions defined by {@link Objs}.
+     * They are calculated on the first call after a modification. Must not be modified.
+     *
+     * @return Objective values of this neighbour.
+     */
+    public double[] getVals() {
+        return values().vals;
+    }
+
+    /**
+     * Returns the point in the objective space that this neighbour belongs to (see {@link Solution#getObjectiveVector()}).
+     *
+     * @return Selected objective values.
+     */
+    public double[] getObjectiveVector() {
+        if (objectiveVector == null) {
+            objectiveVector = Config.getInstance().objectiveVector(parent.obj, getVals());
+        }
+        return objectiveVector;
+    }
+
+    /**
+     * Returns special objective values for unfeasible neighbours (see {@link Solution#getUnfeasibleVector()}).
+     *
+     * @return Selected objective values.
+     */
+    public double[] getUnfeasibleVector() {
+        if (unfeasibleVector == null) {
+            unfeasibleVector = Config.getInstance().unfeasibleVector(getVals());
+        }
+        return unfeasibleVector;
+    }
+
+    /**
+     * @return true, if this neighbour is feasible; otherwise: false.
+     */
+    public boolean isFeasible() {
+        return getVals()[parent.obj.UNFEASIBLE.i] == 0.0;
+    }
+
+    /**
+     * Creates the Solution object for this neighbour (only once; later calls return the same object).
+     * Remaining assignments keep the order of the parent, added assignments are appended.
+     * Afterwards, this delta cannot be modified anymore.
+     *
+     * @return The Solution that equals this neighbour.
+     */
+    public Solution toSolution() {
+        if (solution == null) {
+            if (isUnchanged() && changed.isEmpty()) {
+                solution = parent;
+                return solution;
+            }
+
+            int n = numberOfAssignments();
+            TrafficRequest[] reqs = new TrafficRequest[n];
+            TrafficAssignment[] assigs = new TrafficAssignment[n];
+            int i = 0;
+            for (TrafficAssignment assig : assignments()) {
+                reqs[i] = assig.request;
+                assigs[i] = assig;
+                i++;
+            }
+
+            solution = new Solution(parent.pi.copyWith(reqs), assigs, this, values());
+        }
+        return solution;
+    }
+
+    /**
+     * @return Number of modifications since the initial solution (used to schedule full recalculations).
+     */
+    int changeCount() {
+        return parent.changeCount() + 1;
+    }
+
+    /**
+     * @return Keys (Nodes, Links and VNFs) of all overview objects that differ from the parent.
+     */
+    Collection<Object> changedKeys() {
+        return changed;
+    }
+
+    /**
+     * @return Assignments of the parent that are not part of this neighbour.
+     */
+    Collection<TrafficAssignment> removedAssignments() {
+        return removed;
+    }
+
+    /**
+     * @return Assignments of this neighbour that are not part of the parent.
+     */
+    Collection<TrafficAssignment> addedAssignments() {
+        return added.values();
+    }
+
+    /**
+     * @return All assignments of this neighbour (remaining ones of the parent, then added ones).
+     */
+    Iterable<TrafficAssignment> assignments() {
+        return () -> new Iterator<TrafficAssignment>() {
+            private final Iterator<TrafficAssignment> addedIt = added.values().iterator();
+            private int i = nextRemaining(0);
+
+            private int nextRemaining(int from) {
+                TrafficAssignment[] a = parent.assignments;
+                while (from < a.length && removedIds.get(a[from].request.id)) {
+                    from++;
+                }
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return i < parent.assignments.length || addedIt.hasNext();
+            }
+
+            @Override
+            public TrafficAssignment next() {
+                if (i < parent.assignments.length) {
+                    TrafficAssignment assig = parent.assignments[i];
+                    i = nextRemaining(i + 1);
+                    return assig;
+                }
+                return addedIt.next();
+            }
+        };
+    }
+
+    private ObjectiveValues values() {
+        if (values == null) {
+            values = parent.values().update(parent, this);
+        }
+        return values;
+    }
+
+    private void invalidate() {
+        values = null;
+        objectiveVector = null;
+        unfeasibleVector = null;
+    }
+
+    private void checkModifiable() {
+        if (solution != null) {
+            throw new IllegalStateException("delta has already been turned into a solution");
+        }
+    }
+
+    // The following methods return a modifiable overview, which is copied from the parent on its first modification:
+
+    private LinkOverview linkOverview(Link l) {
+        LinkOverview lOv = linkMap.get(l);
+        if (lOv == parent.linkMap.get(l)) {
+            lOv = lOv.copy();
+            linkMap = linkMap.plus(l, lOv);
+            changed.add(l);
+        }
+        return lOv;
+    }
+
+    private NodeOverview nodeOverview(Node n) {
+        NodeOverview nOv = nodeMap.get(n);
+        if (nOv == parent.nodeMap.get(n)) {
+            nOv = nOv.copy();
+            nodeMap = nodeMap.plus(n, nOv);
+            changed.add(n);
+        }
+        return nOv;
+    }
+
+    private VnfTypeOverview vnfTypeOverview(VNF vnf) {
+        VnfTypeOverview vnfOv = vnfMap.get(vnf);
+        if (vnfOv == parent.vnfMap.get(vnf)) {
+            vnfOv = (vnfOv == null ? new VnfTypeOverview(vnf) : vnfOv.copy());
+            vnfMap = vnfMap.plus(vnf, vnfOv);
+            changed.add(vnf);
+        }
+        return vnfOv;
+    }
+}
@@ -1,16 +1,26 @@
 package de.uniwue.VNFP.model.solution;
 
+import de.uniwue.VNFP.model.Link;
 import de.uniwue.VNFP.model.NetworkGraph;
+import de.uniwue.VNFP.model.Node;
 import de.uniwue.VNFP.model.TrafficRequest;
 import de.uniwue.VNFP.model.VNF;
+import de.uniwue.VNFP.util.Zobrist;
 
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 
 /**
  * This class represents a solution for a single {@link TrafficRequest} {@code req}.
  * It contains a path from {@code req.ingress} to {@code req.egress}, including an assignment of {@link VNF}s
- * to nodes. The internal representation of hops and assignments is given by an array of {@link NodeAssignment}s.
+ * to nodes.
+ * <p>
+ * The path is stored in a compact form: the ids of all nodes and of the links towards the previous nodes,
+ * and the positions of all applied VNFs. {@link NodeAssignment} objects are only kept for the VNF locations
+ * (as they are referenced by the {@link de.uniwue.VNFP.model.solution.overview.NodeOverview}s);
+ * {@link #path()} provides a view on the whole path that creates the remaining ones on the fly.
  *
  * @author alex
  */
@@ -19,13 +29,6 @@ public class TrafficAssignment {
      * The corresponding TrafficRequest that is solved by this object.
      */
     public final TrafficRequest request;
-    /**
-     * Contains NodeAssignments representing tuples {@code (Node, VNF)}
-     * which indicate the path from {@code request.ingress} to {@code request.egress}
-     * (inclusive), as well as applied {@link VNF}s on the nodes.
-     * Can contain a single node multiple times if multiple VNFs are applied there.
-     */
-    public final NodeAssignment[] path;
     /**
      * The network topology.
      */
@@ -46,6 +49,20 @@ public class TrafficAssignment {
      * Relation between this solution's hop count and the shortest possible.
      */
     public final double hopsIndex;
+    /**
+     * Zobrist fingerprint of this assignment: XOR of the keys of all (request, VNF position, node) triples
+     * and a hash of the route (see {@link Zobrist}).
+     */
+    public final long fingerprint;
+
+    // Ids of all nodes on the path from request.ingress to request.egress (inclusive):
+    private final int[] nodeIds;
+    // Ids of the links towards the previous nodes (-1 for the ingress, or if the previous node was the same):
+    private final int[] linkIds;
+    // Path indices of all applied VNFs (ascending):
+    private final int[] vnfPositions;
+    // NodeAssignments of all applied VNFs, in the same order:
+    private final NodeAssignment[] vnfAssignments;
 
     /**
      * Creates a new TrafficAssignment instance with the given content.
@@ -53,58 +70,262 @@ public class TrafficAssignment {
      * @param request The corresponding TrafficRequest that is solved by this object.
      * @param path    Contains NodeAssignments representing tuples {@code (Node, VNF)}
      *                which indicate the path from {@code request.ingress} to {@code request.egress}.
+     *                Can contain a single node multiple times if multiple VNFs are applied there.
      * @param ng      The network topology.
      */
     public TrafficAssignment(TrafficRequest request, NodeAssignment[] path, NetworkGraph ng) {
         this.request = Objects.requireNonNull(request);
-        this.path = Objects.requireNonNull(path);
         this.ng = Objects.requireNonNull(ng);
-        double d = 0.0;
-        double hops = 0.0;
+        Objects.requireNonNull(path);
+        if (path.length == 0) {
+            throw new IllegalArgumentException("path is empty");
+        }
 
+        this.nodeIds = new int[path.length];
+        this.linkIds = new int[path.length];
+        int numberOfVnfs = 0;
         for (int i = 0; i < path.length; i++) {
             NodeAssignment nAssig = path[i];
+            nodeIds[i] = idOf(nAssig.node);
+            linkIds[i] = (nAssig.prev == null ? -1 : idOf(nAssig.prev));
+            if (nAssig.vnf != null) numberOfVnfs++;
+
+            // Check links:
+            if (i != 0) {
+                Node prevNode = path[i-1].node;
+                if (nAssig.node.equals(prevNode)) continue;
+                if (ng.getAdjacency().findLink(nodeIds[i-1], nodeIds[i]) >= 0) continue;
+
+                throw new IllegalArgumentException("no link exists between " + prevNode.name + " and " + nAssig.node.name);
+            }
+        }
+
+        this.vnfPositions = new int[numberOfVnfs];
+        this.vnfAssignments = new NodeAssignment[numberOfVnfs];
+        int j = 0;
+        for (int i = 0; i < path.length; i++) {
+            if (path[i].vnf != null) {
+                vnfPositions[j] = i;
+                vnfAssignments[j] = path[i];
+                j++;
+            }
+        }
+
+        double[] dh = init();
+        this.delay = dh[0];
+        this.numberOfHops = dh[1];
+        this.delayIndex = this.delay / (request.getShortestDelay(ng) + request.getVnfDelay());
+        this.hopsIndex = this.numberOfHops / request.getShortestHops(ng);
+        this.fingerprint = fingerprint();
+    }
+
+    /**
+     * @param request      The corresponding TrafficRequest that is solved by this object.
+     * @param nodeIds      Ids of all nodes on the path.
+     * @param linkIds      Ids of the links towards the previous nodes (or -1).
+     * @param vnfPositions Path indices of {@code request.vnfSequence}'s VNFs (ascending).
+     * @param ng           The network topology.
+     */
+    private TrafficAssignment(TrafficRequest request, int[] nodeIds, int[] linkIds, int[] vnfPositions, NetworkGraph ng) {
+        this.request = Objects.requireNonNull(request);
+        this.ng = Objects.requireNonNull(ng);
+        this.nodeIds = Objects.requireNonNull(nodeIds);
+        this.linkIds = Objects.requireNonNull(linkIds);
+        this.vnfPositions = Objects.requireNonNull(vnfPositions);
+        if (nodeIds.length == 0 || nodeIds.length != linkIds.length || vnfPositions.length != request.vnfSequence.length) {
+            throw new IllegalArgumentException("array length mismatch: nodeIds.length = " + nodeIds.length
+                    + ", linkIds.length = " + linkIds.length + ", vnfPositions.length = " + vnfPositions.length);
+        }
+
+        Node[] nodes = ng.getNodeArray();
+        this.vnfAssignments = new NodeAssignment[vnfPositions.length];
+        for (int j = 0; j < vnfPositions.length; j++) {
+            int i = vnfPositions[j];
+            vnfAssignments[j] = new NodeAssignment(nodes[nodeIds[i]], request.vnfSequence[j], (linkIds[i] < 0 ? null : ng.getLinkArray()[linkIds[i]]));
+        }
+
+        double[] dh = init();
+        this.delay = dh[0];
+        this.numberOfHops = dh[1];
+        this.delayIndex = this.delay / (request.getShortestDelay(ng) + request.getVnfDelay());
+        this.hopsIndex = this.numberOfHops / request.getShortestHops(ng);
+        this.fingerprint = fingerprint();
+    }
+
+    /**
+     * Creates a new TrafficAssignment instance from its compact representation, for a path whose
+     * consecutive nodes are known to be adjacent, e.g. because it was stitched together from
+     * {@link de.uniwue.VNFP.model.PathSegment}s. In contrast to the constructor, the existence of links is not checked.
+     * The arrays are not copied and must not be modified afterwards.
+     *
+     * @param request      The corresponding TrafficRequest that is solved by this object.
+     * @param nodeIds      Ids of all nodes on the path from {@code request.ingress} to {@code request.egress} (inclusive).
+     * @param linkIds      Ids of the links towards the previous nodes (-1 for the ingress, or if the previous node was the same).
+     * @param vnfPositions Path indices of {@code request.vnfSequence}'s VNFs (ascending).
+     * @param ng           The network topology.
+     * @return A new TrafficAssignment instance with the given content.
+     */
+    public static TrafficAssignment fromValidatedPath(TrafficRequest request, int[] nodeIds, int[] linkIds, int[] vnfPositions, NetworkGraph ng) {
+        return new TrafficAssignment(request, nodeIds, linkIds, vnfPositions, ng);
+    }
 
-            // Set reverse pointers:
+    /**
+     * Sets the reverse pointers of the VNF assignments, checks ingress and egress,
+     * and sums up delay and number of hops.
+     *
+     * @return {delay, numberOfHops}
+     */
+    private double[] init() {
+        for (NodeAssignment nAssig : vnfAssignments) {
             nAssig.traffReq = request;
             nAssig.traffAss = this;
+        }
 
-            if (nAssig.vnf != null){
-                d += nAssig.vnf.delay;
+        Link[] links = ng.getLinkArray();
+        double d = 0.0;
+        double hops = 0.0;
+        int j = 0;
+        for (int i = 0; i < nodeIds.length; i++) {
+            if (j < vnfPositions.length && vnfPositions[j] == i) {
+                d += vnfAssignments[j].vnf.delay;
+                j++;
             }
-            if (nAssig.prev != null) {
-                d += nAssig.prev.delay;
+            if (linkIds[i] >= 0) {
+                d += links[linkIds[i]].delay;
                 hops++;
             }
+        }
 
-            // Check links:
-            if (i != 0) {
-                int _i = i;
-                if (nAssig.node.equals(path[i-1].node)) continue;
-                if (path[i-1].node.getNeighbors().stream()
-                        .anyMatch(l -> l.getOther(path[_i-1].node).equals(nAssig.node))) continue;
+        Node[] nodes = ng.getNodeArray();
+        if (!nodes[nodeIds[0]].equals(request.ingress)) {
+            throw new IllegalArgumentException("first node in path ("+nodes[nodeIds[0]].name+") does not equal ingress ("+request.ingress.name+")");
+        }
+        if (!nodes[nodeIds[nodeIds.length - 1]].equals(request.egress)) {
+            throw new IllegalArgumentException("last node in path ("+nodes[nodeIds[nodeIds.length - 1]].name+") does not equal egress ("+request.egress.name+")");
+        }
+        return new double[]{d, hops};
+    }
 
-                throw new IllegalArgumentException("no link exists between " + path[i-1].node.name + " and " + nAssig.node.name);
-            }
+    /**
+     * @return Zobrist fingerprint of the VNF locations, combined with a hash of the route.
+     */
+    private long fingerprint() {
+        long f = 0L;
+        for (int j = 0; j < vnfPositions.length; j++) {
+            f ^= Zobrist.key(request.id, j, nodeIds[vnfPositions[j]]);
         }
-        this.delay = d;
-        this.numberOfHops = hops;
-        this.delayIndex = this.delay / (request.getShortestDelay(ng.getDijkstraBackpointers()) + Arrays.stream(request.vnfSequence).mapToDouble(vnf -> vnf.delay).sum());
-        this.hopsIndex = hops / request.getShortestHops(ng.getBfsBackpointers());
 
-        if (!path[0].node.equals(request.ingress)) {
-            throw new IllegalArgumentException("first node in path ("+path[0].node.name+") does not equal ingress ("+request.ingress.name+")");
+        // Different routes for the same VNF locations have to be distinguished as well:
+        long route = request.id;
+        for (int linkId : linkIds) {
+            route = 31 * route + linkId;
         }
-        if (!path[path.length - 1].node.equals(request.egress)) {
-            throw new IllegalArgumentException("last node in path ("+path[path.length - 1].node.name+") does not equal egress ("+request.egress.name+")");
+        return f ^ Zobrist.mix(route);
+    }
+
+    private int idOf(Node n) {
+        Node[] nodes = ng.getNodeArray();
+        if (n.id < 0 || n.id >= nodes.length || nodes[n.id] != n) {
+            throw new IllegalArgumentException("node " + n.name + " is not part of the network graph");
+        }
+        return n.id;
+    }
+
+    private int idOf(Link l) {
+        Link[] links = ng.getLinkArray();
+        if (l.id < 0 || l.id >= links.length || links[l.id] != l) {
+            throw new IllegalArgumentException("link " + l + " is not part of the network graph");
         }
+        return l.id;
+    }
+
+    /**
+     * @return Number of entries in the path from {@code request.ingress} to {@code request.egress} (inclusive).
+     */
+    public int pathLength() {
+        return nodeIds.length;
+    }
+
+    /**
+     * @param i Index inside the path (0 <= i < pathLength()).
+     * @return The i-th node of the path.
+     */
+    public Node getNode(int i) {
+        return ng.getNodeArray()[nodeIds[i]];
+    }
+
+    /**
+     * @param i Index inside the path (0 <= i < pathLength()).
+     * @return The link towards the previous node, or null for the ingress or if the previous node was the same.
+     */
+    public Link getPrev(int i) {
+        return (linkIds[i] < 0 ? null : ng.getLinkArray()[linkIds[i]]);
+    }
+
+    /**
+     * @param i Index inside the path (0 <= i < pathLength()).
+     * @return The VNF that is applied on the i-th entry of the path, or null.
+     */
+    public VNF getVnf(int i) {
+        int j = Arrays.binarySearch(vnfPositions, i);
+        return (j < 0 ? null : vnfAssignments[j].vnf);
+    }
+
+    /**
+     * Returns the NodeAssignments of all VNF locations, in order of the path. Must not be modified.
+     *
+     * @return All NodeAssignments with {@code vnf != null}.
+     */
+    public NodeAssignment[] getVnfAssignments() {
+        return vnfAssignments;
+    }
+
+    /**
+     * Returns a view on the path from {@code request.ingress} to {@code request.egress} (inclusive),
+     * as well as applied {@link VNF}s on the nodes. The NodeAssignments of VNF locations are the ones of
+     * {@link #getVnfAssignments()}; all others are created during the iteration.
+     *
+     * @return The path as NodeAssignments representing tuples {@code (Node, VNF)}.
+     */
+    public Iterable<NodeAssignment> path() {
+        return () -> new Iterator<NodeAssignment>() {
+            private final Node[] nodes = ng.getNodeArray();
+            private int i = 0;
+            private int j = 0;
+
+            @Override
+            public boolean hasNext() {
+                return i < nodeIds.length;
+            }
+
+            @Override
+            public NodeAssignment next() {
+                if (i >= nodeIds.length) throw new NoSuchElementException();
+
+                NodeAssignment nAssig;
+                if (j < vnfPositions.length && vnfPositions[j] == i) {
+                    nAssig = vnfAssignments[j++];
+                }
+                else {
+                    nAssig = new NodeAssignment(nodes[nodeIds[i]], null, getPrev(i));
+                    nAssig.traffReq = request;
+                    nAssig.traffAss = TrafficAssignment.this;
+                }
+                i++;
+                return nAssig;
+            }
+        };
     }
 
     @Override
     public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (NodeAssignment nAssig : path()) {
+            sb.append(sb.length() == 0 ? "[" : ", ").append(nAssig);
+        }
         return "TrafficAssignment{" +
                 "request=" + request +
-                ", path=" + Arrays.toString(path) +
+                ", path=" + sb.append("]") +
                 '}';
     }
 
@@ -115,12 +336,16 @@ public class TrafficAssignment {
 
         TrafficAssignment that = (TrafficAssignment) o;
 
+        if (fingerprint != that.fingerprint) return false;
         if (!request.equals(that.request)) return false;
-        return Arrays.equals(path, that.path);
+        if (!Arrays.equals(nodeIds, that.nodeIds)) return false;
+        if (!Arrays.equals(linkIds, that.linkIds)) return false;
+        if (!Arrays.equals(vnfPositions, that.vnfPositions)) return false;
+        return Arrays.equals(vnfAssignments, that.vnfAssignments);
     }
 
     @Override
     public int hashCode() {
-        return 31 * request.hashCode() + Arrays.hashCode(path);
+        return Long.hashCode(fingerprint);
     }
 }
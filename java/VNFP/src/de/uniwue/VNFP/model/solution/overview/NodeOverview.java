@@ -22,7 +22,9 @@ public class NodeOverview {
     public final Node node;
 
     private HashSet<NodeAssignment> assignments;
-    private HashMap<VNF, VnfInstances> vnfInstances = null;
+    private HashMap<VNF, VnfPacking> packings;
+    private HashSet<VNF> modifiedTypes;
+    private HashMap<VNF, VnfInstances> vnfInstances;
     private double[] remainingResources;
 
     /**
@@ -33,6 +35,9 @@ public class NodeOverview {
     public NodeOverview(Node node) {
         this.node = Objects.requireNonNull(node);
         this.assignments = new HashSet<>();
+        this.packings = new HashMap<>();
+        this.modifiedTypes = new HashSet<>();
+        this.vnfInstances = new HashMap<>();
         this.remainingResources = Arrays.copyOf(node.resources, node.resources.length);
     }
 
@@ -48,7 +53,12 @@ public class NodeOverview {
         }
         if (assignment.vnf != null) {
             if (assignments.add(Objects.requireNonNull(assignment))) {
-                vnfInstances = null;
+                VnfPacking p = packings.get(assignment.vnf);
+                if (p == null) {
+                    p = VnfPacking.empty(assignment.vnf);
+                }
+                packings.put(assignment.vnf, p.plus(assignment.traffReq));
+                modifiedTypes.add(assignment.vnf);
             }
         }
     }
@@ -64,7 +74,14 @@ public class NodeOverview {
         }
         if (assignment.vnf != null) {
             if (assignments.remove(Objects.requireNonNull(assignment))) {
-                vnfInstances = null;
+                VnfPacking p = packings.get(assignment.vnf).minus(assignment.traffReq);
+                if (p.isEmpty()) {
+                    packings.remove(assignment.vnf);
+                }
+                else {
+                    packings.put(assignment.vnf, p);
+                }
+                modifiedTypes.add(assignment.vnf);
             }
         }
     }
@@ -76,7 +93,7 @@ public class NodeOverview {
      * @return Remaining computational resources for this node.
      */
     public double[] remainingResources() {
-        if (vnfInstances == null) {
+        if (!modifiedTypes.isEmpty()) {
             // This method also calculates remainingCpu:
             getVnfInstances();
         }
@@ -105,68 +122,36 @@ public class NodeOverview {
     }
 
     /**
-     * This method solves the bin packing problem by means of a first fit approximation
-     * to assess the number of required VNF instances for all assigned demands.
+     * This method solves the bin packing problem to assess the number of required VNF instances
+     * for all assigned demands. The sorted demands are maintained incrementally for every VNF type,
+     * and only modified VNF types are packed again by first fit decreasing (see {@link VnfPacking}).
+     * The result therefore only depends on the assigned flows. Unmodified VNF types are not touched at all.
      *
      * @return A map containing workloads for instances.
      */
     public HashMap<VNF, VnfInstances> getVnfInstances() {
-        if (vnfInstances != null) {
+        if (modifiedTypes.isEmpty()) {
             return vnfInstances;
         }
-        vnfInstances = new HashMap<>();
-
-        // Gather requests for different instance types:
-        HashMap<VNF, ArrayList<TrafficRequest>> allRequests = new HashMap<>();
-        for (NodeAssignment assignment : assignments) {
-            if (assignment.vnf != null) {
-                ArrayList<TrafficRequest> requestList = allRequests.computeIfAbsent(assignment.vnf, k -> new ArrayList<>());
-                requestList.add(assignment.traffReq);
-            }
-        }
 
-        // Solve bin packing for each VNF type:
-        for (Map.Entry<VNF, ArrayList<TrafficRequest>> entry : allRequests.entrySet()) {
-            double binSize = entry.getKey().processingCapacity;
-            ArrayList<Double> bins = new ArrayList<>();
-            ArrayList<ArrayList<TrafficRequest>> mappedRequests = new ArrayList<>();
-            // Sort bandwidth demands (desc):
-            entry.getValue().sort(Comparator.reverseOrder());
-
-            for (TrafficRequest req : entry.getValue()) {
-                boolean platzGefunden = false;
-                int aktuellerBin = 0;
-                while (!platzGefunden) {
-                    // Current bin does not exist? -> Create new one, add request:
-                    if (aktuellerBin == bins.size()) {
-                        bins.add(req.bandwidthDemand);
-
-                        ArrayList<TrafficRequest> l = new ArrayList<>();
-                        l.add(req);
-                        mappedRequests.add(l);
-
-                        platzGefunden = true;
-                    }
-                    // Request fits into current bin:
-                    else if (bins.get(aktuellerBin) + req.bandwidthDemand <= binSize) {
-                        bins.set(aktuellerBin, bins.get(aktuellerBin) + req.bandwidthDemand);
-                        mappedRequests.get(aktuellerBin).add(req);
-                        platzGefunden = true;
-                    }
-                    // Request does not fit, but more bins exist:
-                    else {
-                        aktuellerBin++;
-                    }
-                }
+        for (VNF vnf : modifiedTypes) {
+            vnfInstances.remove(vnf);
+            VnfPacking p = packings.get(vnf);
+            if (p != null) {
+                p = p.pack();
+                packings.put(vnf, p);
+                vnfInstances.put(vnf, p.toVnfInstances(node));
             }
-            // bins.size() equals the number of required instances.
-            vnfInstances.put(entry.getKey(), new VnfInstances(node, entry.getKey(), bins, mappedRequests));
         }
-        // Also set remainingResources:
+        modifiedTypes.clear();
+
+        // Also set remainingResources (into a new array, since copies share the previous one):
+        remainingResources = new double[node.resources.length];
         for (int i = 0; i < remainingResources.length; i++) {
             int finalI = i;
             remainingResources[i] = node.resources[i] - vnfInstances.values().stream().mapToDouble(e -> e.loads.length * e.type.reqResources[finalI]).sum();
         }
+
         return vnfInstances;
     }
 
@@ -179,9 +164,10 @@ public class NodeOverview {
         NodeOverview nOver = new NodeOverview(node);
 
         nOver.assignments.addAll(assignments);
-        if (vnfInstances != null) {
-            nOver.vnfInstances = new HashMap<>(vnfInstances);
-        }
+        // (Packings and VnfInstances are immutable and may therefore be shared)
+        nOver.packings.putAll(packings);
+        nOver.modifiedTypes.addAll(modifiedTypes);
+        nOver.vnfInstances.putAll(vnfInstances);
         nOver.remainingResources = remainingResources;
 
         return nOver;
@@ -0,0 +1,190 @@
+package de.uniwue.VNFP.model.solution.overview;
+
+import de.uniwue.VNFP.model.Node;
+import de.uniwue.VNFP.model.TrafficRequest;
+import de.uniwue.VNFP.model.VNF;
+import de.uniwue.VNFP.model.solution.VnfInstances;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Immutable assignment of the bandwidth demands of one VNF type (on one node) to instances of this type (bins).
+ * The demands are kept sorted (descending bandwidth, ties by request id), so that single flows can be added
+ * and removed without sorting all demands again. The bins are derived from this array by first fit decreasing
+ * (see {@link #pack()}), so that the packing only depends on the assigned flows, not on the order
+ * in which they were added or removed.
+ */
+final class VnfPacking {
+    /**
+     * The packed VNF type.
+     */
+    final VNF type;
+    /**
+     * Sum of all demands inside each bin, or null if the bins have not been computed yet. Must not be modified.
+     */
+    final double[] loads;
+    /**
+     * Requests inside each bin, or null if the bins have not been computed yet. Must not be modified.
+     */
+    final TrafficRequest[][] flows;
+    /**
+     * All requests in the order of first fit decreasing.
+     */
+    private final TrafficRequest[] sorted;
+
+    /**
+     * @param type   The packed VNF type.
+     * @param sorted All requests in the order of first fit decreasing.
+     * @param loads  Sum of all demands inside each bin (or null).
+     * @param flows  Requests inside each bin (or null).
+     */
+    private VnfPacking(VNF type, TrafficRequest[] sorted, double[] loads, TrafficRequest[][] flows) {
+        this.type = type;
+        this.sorted = sorted;
+        this.loads = loads;
+        this.flows = flows;
+    }
+
+    /**
+     * @param type The VNF type.
+     * @return A packing without any demands.
+     */
+    static VnfPacking empty(VNF type) {
+        return new VnfPacking(Objects.requireNonNull(type), new TrafficRequest[0], new double[0], new TrafficRequest[0][]);
+    }
+
+    /**
+     * @return true, if no demands are packed.
+     */
+    boolean isEmpty() {
+        return sorted.length == 0;
+    }
+
+    /**
+     * Inserts a demand at its position in the order of first fit decreasing.
+     * The bins of the result are not computed yet (see {@link #pack()}).
+     *
+     * @param req The request whose demand is added.
+     * @return A new packing containing the given request.
+     */
+    VnfPacking plus(TrafficRequest req) {
+        int i = position(req);
+        if (i < 0) i = -i - 1;
+
+        TrafficRequest[] newSorted = new TrafficRequest[sorted.length + 1];
+        System.arraycopy(sorted, 0, newSorted, 0, i);
+        newSorted[i] = req;
+        System.arraycopy(sorted, i, newSorted, i + 1, sorted.length - i);
+        return new VnfPacking(type, newSorted, null, null);
+    }
+
+    /**
+     * Removes one occurrence of a demand.
+     * The bins of the result are not computed yet (see {@link #pack()}).
+     *
+     * @param req The request whose demand is removed.
+     * @return A new packing without the given request.
+     * @throws IllegalArgumentException If the request is not contained in this packing.
+     */
+    VnfPacking minus(TrafficRequest req) {
+        int i = position(req);
+        if (i < 0 || sorted[i] != req) {
+            throw new IllegalArgumentException("request " + req.id + " is not assigned to " + type.name);
+        }
+
+        TrafficRequest[] newSorted = new TrafficRequest[sorted.length - 1];
+        System.arraycopy(sorted, 0, newSorted, 0, i);
+        System.arraycopy(sorted, i + 1, newSorted, i, newSorted.length - i);
+        return new VnfPacking(type, newSorted, null, null);
+    }
+
+    /**
+     * Packs all demands by first fit decreasing, if not done yet.
+     *
+     * @return A packing with computed bins.
+     */
+    VnfPacking pack() {
+        if (loads != null) {
+            return this;
+        }
+
+        double[] binLoads = new double[sorted.length];
+        int[] binSizes = new int[sorted.length];
+        int[] binOf = new int[sorted.length];
+        int numberOfBins = 0;
+        for (int r = 0; r < sorted.length; r++) {
+            double demand = sorted[r].bandwidthDemand;
+            int b = 0;
+            while (b < numberOfBins && binLoads[b] + demand > type.processingCapacity) {
+                b++;
+            }
+            if (b == numberOfBins) {
+                numberOfBins++;
+            }
+            binLoads[b] += demand;
+            binSizes[b]++;
+            binOf[r] = b;
+        }
+
+        TrafficRequest[][] newFlows = new TrafficRequest[numberOfBins][];
+        for (int b = 0; b < numberOfBins; b++) {
+            newFlows[b] = new TrafficRequest[binSizes[b]];
+            binSizes[b] = 0;
+        }
+        for (int r = 0; r < sorted.length; r++) {
+            newFlows[binOf[r]][binSizes[binOf[r]]++] = sorted[r];
+        }
+        return new VnfPacking(type, sorted, Arrays.copyOf(binLoads, numberOfBins), newFlows);
+    }
+
+    /**
+     * @param node The node that hosts the instances.
+     * @return A VnfInstances object that shares the arrays of this packing.
+     * @throws IllegalStateException If the bins have not been computed yet.
+     */
+    VnfInstances toVnfInstances(Node node) {
+        if (loads == null) {
+            throw new IllegalStateException("packing of " + type.name + " has not been computed yet");
+        }
+        return new VnfInstances(node, type, loads, flows);
+    }
+
+    /**
+     * Binary search for the given request in the order of first fit decreasing.
+     * If the request is contained several times, any of its positions may be returned.
+     *
+     * @param req The request.
+     * @return Index of the request, or <tt>(-(insertion point) - 1)</tt> if it is not contained.
+     */
+    private int position(TrafficRequest req) {
+        int low = 0;
+        int high = sorted.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int c = compare(sorted[mid], req);
+            if (c < 0) low = mid + 1;
+            else if (c > 0) high = mid - 1;
+            else if (sorted[mid] == req) return mid;
+            else {
+                // Distinct request objects with the same id and demand; search them linearly:
+                for (int i = mid; i >= 0 && compare(sorted[i], req) == 0; i--) {
+                    if (sorted[i] == req) return i;
+                }
+                for (int i = mid + 1; i < sorted.length && compare(sorted[i], req) == 0; i++) {
+                    if (sorted[i] == req) return i;
+                }
+                return -mid - 1;
+            }
+        }
+        return -low - 1;
+    }
+
+    /**
+     * Order of first fit decreasing: descending bandwidth demand, ties by ascending request id.
+     */
+    private static int compare(TrafficRequest a, TrafficRequest b) {
+        int c = Double.compare(b.bandwidthDemand, a.bandwidthDemand);
+        return (c != 0 ? c : Integer.compare(a.id, b.id));
+    }
+}
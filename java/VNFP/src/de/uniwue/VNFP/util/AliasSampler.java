@@ -0,0 +1,83 @@
+package de.uniwue.VNFP.util;
+
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Draws indices {@code 0..n-1} with probabilities proportional to given weights in {@code O(1)} per draw,
+ * using Vose's alias method. Construction takes {@code O(n)}. Immutable and thread-safe.
+ */
+public final class AliasSampler {
+    private final double[] prob;
+    private final int[] alias;
+
+    /**
+     * @param weights Non-negative weights (at least one of them positive).
+     */
+    public AliasSampler(double[] weights) {
+        Objects.requireNonNull(weights);
+        int n = weights.length;
+        if (n == 0) throw new IllegalArgumentException("weights is empty");
+
+        double sum = 0.0;
+        for (double w : weights) {
+            if (!(w >= 0.0) || w == Double.POSITIVE_INFINITY) throw new IllegalArgumentException("invalid weight " + w);
+            sum += w;
+        }
+        if (sum <= 0.0) throw new IllegalArgumentException("all weights are 0");
+
+        prob = new double[n];
+        alias = new int[n];
+
+        // Scale weights to an average of 1 and split them into small and large ones:
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int ns = 0;
+        int nl = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / sum;
+            if (scaled[i] < 1.0) small[ns++] = i;
+            else large[nl++] = i;
+        }
+
+        // Fill every small column with a part of a large one:
+        while (ns > 0 && nl > 0) {
+            int s = small[--ns];
+            int l = large[--nl];
+            prob[s] = scaled[s];
+            alias[s] = l;
+            scaled[l] = (scaled[l] + scaled[s]) - 1.0;
+            if (scaled[l] < 1.0) small[ns++] = l;
+            else large[nl++] = l;
+        }
+
+        // Remaining columns are full (up to rounding errors):
+        while (nl > 0) {
+            int l = large[--nl];
+            prob[l] = 1.0;
+            alias[l] = l;
+        }
+        while (ns > 0) {
+            int s = small[--ns];
+            prob[s] = 1.0;
+            alias[s] = s;
+        }
+    }
+
+    /**
+     * @return Number of indices.
+     */
+    public int size() {
+        return prob.length;
+    }
+
+    /**
+     * @param r Object for random number generation.
+     * @return A random index, drawn with probability proportional to its weight.
+     */
+    public int sample(Random r) {
+        int i = r.nextInt(prob.length);
+        return (r.nextDouble() < prob[i] ? i : alias[i]);
+    }
+}
@@ -17,15 +17,23 @@ import java.util.*;
 /**
  * Loads and provides values from a Config file.
  * Saves a config file with default values in the classpath if none is provided.
+ * <p>
+ * All evaluation methods may be called concurrently: the formulas are compiled into immutable
+ * expressions, and if the JavaScript engine is required after all, every thread uses its own engine.
  *
  * @author alex
  */
 public class Config {
-    private static Config instance;
+    private static volatile Config instance;
 
     private final ScriptEngine js;
     private final String configContent;
-    private boolean resourceObjInjected;
+    // The JavaScript globals (t, i, ...) are mutable, so every thread that has to execute the script uses its own engine:
+    private final ThreadLocal<ScriptEngine> engines;
+    private volatile int[] resourceIndices;
+    private volatile Map<String, Integer> objectiveIndices;
+    private volatile ToDoubleArrayFunction objectiveFunction;
+    private volatile ToDoubleArrayFunction unfeasibleFunction;
 
     // PSA Config:
     public final int s;
@@ -34,6 +42,22 @@ public class Config {
     public final double tmin;
     public final double rho;
     public final double runtime;
+    // Number of incremental changes after which a solution's objective values are recalculated from scratch (0 = never):
+    public final int fullRecalculationInterval;
+    // Number of recently visited placements (per chain) whose re-evaluation is skipped (0 = disabled):
+    public final int visitedCacheSize;
+    // Number of precomputed loopless paths per node pair among which neighbours route their flows (1 = shortest paths only):
+    public final int kShortestPaths;
+    // Whether neighbours of solutions with congested links route their flows around links without residual bandwidth:
+    public final boolean residualRouting;
+    // Whether every chain runs through the temperature levels on its own, without waiting for the other chains:
+    public final boolean asyncCooling;
+    // Number of chains that are processed by the same task (0 = one task per thread):
+    public final int solutionBatchSize;
+    // Number of threads of the pool shared by all PSA runs (0 = number of available processors):
+    public final int threads;
+    // Number of neighbours that each chain draws (in parallel) per iteration, of which at most one is accepted:
+    public final int neighboursPerIteration;
 
     // Base path for every input- and output-file:
     public final Path inBasePath;
@@ -43,6 +67,8 @@ public class Config {
     public final Path topologyFile;
     public final Path vnfLibFile;
     public final Path requestsFile;
+    // Whether the topology's links are directed (unless its header specifies the direction):
+    public final boolean directedTopology;
 
     // Output:
     public final boolean executionProgress;
@@ -62,6 +88,7 @@ public class Config {
     public final Path weightVectors;
     public final Path rankingVectors;
     public final Path existingPlacementFlows;
+    public final Path shortestPathCache;
 
     // Weights:
     public final boolean useWeights;
@@ -72,21 +99,30 @@ public class Config {
     public enum PSAPreparationModes { RAND, SHORT_PSA, LEAST_DELAY, LEAST_CPU, EXISTING }
     public final PSAPreparationModes prepMode;
 
+    // Compiled formulas for pReassignVnf, pNewInstance, acceptWorse and acceptIncomparable:
+    public final CoolingSchedule coolingSchedule;
+
     /**
      * @return A global (singleton) Config instance. If none is present yet, the default Config will be used.
      */
     public static Config getInstance() {
-        if (instance == null) {
-            instance = getInstance(Config.class.getClassLoader().getResourceAsStream("config.js"));
+        Config c = instance;
+        if (c == null) {
+            synchronized (Config.class) {
+                c = instance;
+                if (c == null) {
+                    c = getInstance(Config.class.getClassLoader().getResourceAsStream("config.js"));
+                }
+            }
         }
-        return instance;
+        return c;
     }
 
     /**
      * @param configStream The content of the config.
      * @return A global (singleton) Config instance.
      */
-    public static Config getInstance(InputStream configStream) {
+    public static synchronized Config getInstance(InputStream configStream) {
         if (instance != null) {
             System.out.println("Repeated call of Config.getInstance(InputStream configStream); existing instance will be overwritten.");
         }
@@ -100,36 +136,10 @@ public class Config {
     public Config(InputStream configStream) {
         Objects.requireNonNull(configStream);
 
-        js = new ScriptEngineManager().getEngineByName("JavaScript");
-
-        try {
-            configContent = new Scanner(configStream, "utf-8").useDelimiter("\\Z").next();
-
-            for (PSAPreparationModes mode : PSAPreparationModes.values()) {
-                js.put(mode.name(), mode);
-            }
-
-            js.eval("function convertArray(type, arr) {\n" +
-                    "  var jArr = java.lang.reflect.Array.newInstance(type, arr.length);\n" +
-                    "  for (var i = 0; i < arr.length; i++) {\n" +
-                    "    jArr[i] = arr[i];\n" +
-                    "  }\n" +
-                    "  return jArr;\n" +
-                    "};\n" +
-                    "function objectiveVectorDouble(v) { return convertArray(java.lang.Double.TYPE, objectiveVector(v)); }\n" +
-                    "function unfeasibleVectorDouble(v) { return convertArray(java.lang.Double.TYPE, unfeasibleVector(v)); }");
-
-            js.eval("t = 0");
-            js.eval("i = 0");
-            js.eval("better = 0");
-            js.eval("incomp = 0");
-            js.eval("runtime = 0");
-            js.eval("n = 0");
-            js.eval(configContent);
-        }
-        catch (ScriptException e) {
-            throw new RuntimeException(e);
-        }
+        configContent = new Scanner(configStream, "utf-8").useDelimiter("\\Z").next();
+        js = createEngine();
+        engines = ThreadLocal.withInitial(this::createEngine);
+        engines.set(js);
 
         s = getAsInt(js, "s");
         m = getAsInt(js, "m");
@@ -137,6 +147,26 @@ public class Config {
         tmin = getAsDouble(js, "tmin");
         rho = getAsDouble(js, "rho");
         runtime = getAsDouble(js, "runtime");
+        fullRecalculationInterval = (js.get("fullRecalculationInterval") == null ? 0 : getAsInt(js, "fullRecalculationInterval"));
+        visitedCacheSize = (js.get("visitedCacheSize") == null ? 0 : getAsInt(js, "visitedCacheSize"));
+        kShortestPaths = (js.get("kShortestPaths") == null ? 1 : getAsInt(js, "kShortestPaths"));
+        if (kShortestPaths < 1) {
+            throw new IllegalArgumentException("kShortestPaths must be at least 1");
+        }
+        residualRouting = (js.get("residualRouting") != null && getAsBoolean(js, "residualRouting"));
+        asyncCooling = (js.get("asyncCooling") != null && getAsBoolean(js, "asyncCooling"));
+        solutionBatchSize = (js.get("solutionBatchSize") == null ? 1 : getAsInt(js, "solutionBatchSize"));
+        if (solutionBatchSize < 0) {
+            throw new IllegalArgumentException("solutionBatchSize must not be negative");
+        }
+        threads = (js.get("threads") == null ? 0 : getAsInt(js, "threads"));
+        if (threads < 0) {
+            throw new IllegalArgumentException("threads must not be negative");
+        }
+        neighboursPerIteration = (js.get("neighboursPerIteration") == null ? 1 : getAsInt(js, "neighboursPerIteration"));
+        if (neighboursPerIteration < 1) {
+            throw new IllegalArgumentException("neighboursPerIteration must be at least 1");
+        }
 
         Object prepModeTemp = js.get("prepMode");
         if (!(prepModeTemp instanceof PSAPreparationModes)) {
@@ -150,6 +180,7 @@ public class Config {
         topologyFile = inBasePath.resolve(getAsString(js, "topologyFile"));
         vnfLibFile = inBasePath.resolve(getAsString(js, "vnfLibFile"));
         requestsFile = inBasePath.resolve(getAsString(js, "requestsFile"));
+        directedTopology = (js.get("directedTopology") != null && getAsBoolean(js, "directedTopology"));
 
         executionProgress = (js.get("executionProgress") == null || getAsBoolean(js, "executionProgress"));
         showGui = (js.get("showGui") != null && getAsBoolean(js, "showGui"));
@@ -167,6 +198,7 @@ public class Config {
         solutionOrder = (js.get("solutionOrder") == null ? null : outBasePath.resolve(getAsString(js, "solutionOrder")));
         weightVectors = (js.get("weightVectors") == null ? null : outBasePath.resolve(getAsString(js, "weightVectors")));
         rankingVectors = (js.get("rankingVectors") == null ? null : outBasePath.resolve(getAsString(js, "rankingVectors")));
+        shortestPathCache = (js.get("shortestPathCache") == null ? null : outBasePath.resolve(getAsString(js, "shortestPathCache")));
         existingPlacementFlows = (prepMode != PSAPreparationModes.EXISTING ? null : Paths.get(getAsString(js, "existingPlacementFlows")));
 
         useWeights = getAsBoolean(js, "useWeights");
@@ -176,6 +208,7 @@ public class Config {
         // Get those values once to ensure they are available:
         double pReassignVnf = getAsDouble(js, "pReassignVnf");
         double pNewInstance = getAsDouble(js, "pNewInstance");
+        coolingSchedule = new CoolingSchedule(this, configContent, js::get);
 //        try {
 //            ((Invocable) js).invokeFunction("objectiveVector", (Object) new double[new Objs(new String[0]).values().length + 20]);
 //        }
@@ -185,28 +218,60 @@ public class Config {
     }
 
     /**
-     * Executes the config's formula for 'pReassignVnf' with the given
-     * temperature as JavaScript-variable 't'.
+     * Creates a new JavaScript engine and executes the config file inside of it.
      *
-     * @param currentTemperature The current temperature level of the PSA algorithm.
-     * @param tempIndex          The index of the current temperature iteration (0 <= tempIndex < numberOfTemperatureLevels).
-     * @return The value of 'pReassignVnf' after executing config with the given temperature.
+     * @return JavaScript engine containing all variables of the config file.
      */
-    public double pReassignVnf(double currentTemperature, int tempIndex) {
+    private ScriptEngine createEngine() {
+        ScriptEngine js = new ScriptEngineManager().getEngineByName("JavaScript");
+
         try {
-            js.eval("i = " + tempIndex);
-            js.eval("t = " + currentTemperature);
+            for (PSAPreparationModes mode : PSAPreparationModes.values()) {
+                js.put(mode.name(), mode);
+            }
+
+            js.eval("function convertArray(type, arr) {\n" +
+                    "  var jArr = java.lang.reflect.Array.newInstance(type, arr.length);\n" +
+                    "  for (var i = 0; i < arr.length; i++) {\n" +
+                    "    jArr[i] = arr[i];\n" +
+                    "  }\n" +
+                    "  return jArr;\n" +
+                    "};\n" +
+                    "function objectiveVectorDouble(v) { return convertArray(java.lang.Double.TYPE, objectiveVector(v)); }\n" +
+                    "function unfeasibleVectorDouble(v) { return convertArray(java.lang.Double.TYPE, unfeasibleVector(v)); }");
+
+            js.eval("t = 0");
+            js.eval("i = 0");
+            js.eval("better = 0");
+            js.eval("incomp = 0");
+            js.eval("runtime = 0");
+            js.eval("n = 0");
             js.eval(configContent);
         }
         catch (ScriptException e) {
             throw new RuntimeException(e);
         }
 
-        return getAsDouble(js, "pReassignVnf");
+        if (resourceIndices != null) {
+            putResources(js);
+        }
+        return js;
+    }
+
+    /**
+     * Evaluates the config's formula for 'pReassignVnf' with the given
+     * temperature as JavaScript-variable 't'.
+     *
+     * @param currentTemperature The current temperature level of the PSA algorithm.
+     * @param tempIndex          The index of the current temperature iteration (0 <= tempIndex < numberOfTemperatureLevels).
+     * @return The value of 'pReassignVnf' after executing config with the given temperature.
+     */
+    public double pReassignVnf(double currentTemperature, int tempIndex) {
+        return coolingSchedule.evaluate(CoolingSchedule.Formula.P_REASSIGN_VNF, currentTemperature, tempIndex, 0, 0, 0);
     }
 
     /**
-     * Executes the config's formula for 'pNewInstance' with the given
+     * Evaluates the config's formula for 'pNewInstance' with the given
      * temperature as JavaScript-variable 't'.
      *
      * @param currentTemperature The current temperature level of the PSA algorithm.
@@ -214,20 +279,11 @@ public class Config {
      * @return The value of 'pNewInstance' after executing config with the given temperature.
      */
     public double pNewInstance(double currentTemperature, int tempIndex) {
-        try {
-            js.eval("i = " + tempIndex);
-            js.eval("t = " + currentTemperature);
-            js.eval(configContent);
-        }
-        catch (ScriptException e) {
-            throw new RuntimeException(e);
-        }
-
-        return getAsDouble(js, "pNewInstance");
+        return coolingSchedule.evaluate(CoolingSchedule.Formula.P_NEW_INSTANCE, currentTemperature, tempIndex, 0, 0, 0);
     }
 
     /**
-     * Executes the config's formula for 'acceptWorse' with the given
+     * Evaluates the config's formula for 'acceptWorse' with the given
      * temperature and number of dominating / incomparable solutions.
      *
      * @param tempLevel     The current temperature level of the PSA algorithm.
@@ -238,23 +294,11 @@ public class Config {
      * @return The value of 'acceptWorse' after executing config with the given parameters.
      */
     public double acceptWorse(double tempLevel, int tempIndex, int better, int incomp, int numIterations) {
-        try {
-            js.eval("t = " + tempLevel);
-            js.eval("i = " + tempIndex);
-            js.eval("better = " + better);
-            js.eval("incomp = " + incomp);
-            js.eval("n = " + numIterations);
-            js.eval(configContent);
-        }
-        catch (ScriptException e) {
-            throw new RuntimeException(e);
-        }
-
-        return getAsDouble(js, "acceptWorse");
+        return coolingSchedule.evaluate(CoolingSchedule.Formula.ACCEPT_WORSE, tempLevel, tempIndex, better, incomp, numIterations);
     }
 
     /**
-     * Executes the config's formula for 'acceptIncomparable' with the given
+     * Evaluates the config's formula for 'acceptIncomparable' with the given
      * temperature and number of dominating / incomparable solutions.
      *
      * @param tempLevel     The current temperature level of the PSA algorithm.
@@ -265,6 +309,24 @@ public class Config {
      * @return The value of 'acceptIncomparable' after executing config with the given parameters.
      */
     public double acceptIncomparable(double tempLevel, int tempIndex, int better, int incomp, int numIterations) {
+        return coolingSchedule.evaluate(CoolingSchedule.Formula.ACCEPT_INCOMPARABLE, tempLevel, tempIndex, better, incomp, numIterations);
+    }
+
+    /**
+     * Executes the entire config with the given parameters and returns the value of a single variable.
+     * Used by the {@link CoolingSchedule} if its formulas cannot be compiled.
+     * The script is executed in the calling thread's own engine.
+     *
+     * @param key           Name of the variable.
+     * @param tempLevel     The current temperature level of the PSA algorithm.
+     * @param tempIndex     The index of the current temperature iteration (0 <= tempIndex < numberOfTemperatureLevels).
+     * @param better        The number of generated better neighbours in the last temperature iteration.
+     * @param incomp        The number of generated incomparable neighbours in the last temperature iteration.
+     * @param numIterations The number of iterations during the last temperature level.
+     * @return The value of the variable after executing config with the given parameters.
+     */
+    double evalScript(String key, double tempLevel, int tempIndex, int better, int incomp, int numIterations) {
+        ScriptEngine js = engines.get();
         try {
             js.eval("t = " + tempLevel);
             js.eval("i = " + tempIndex);
@@ -277,7 +339,7 @@ public class Config {
             throw new RuntimeException(e);
         }
 
-        return getAsDouble(js, "acceptIncomparable");
+        return getAsDouble(js, key);
     }
 
     /**
@@ -369,18 +431,27 @@ public class Config {
      */
     public double[] objectiveVector(Solution s) {
         Objects.requireNonNull(s);
-        Objs objs = s.obj;
-        injectResources(objs);
+        return objectiveVector(s.obj, s.vals);
+    }
 
-        Object o = null;
-        try {
-            o = ((Invocable) js).invokeFunction("objectiveVectorDouble", (Object) s.vals);
-        }
-        catch (ScriptException | NoSuchMethodException e) {
-            throw new RuntimeException(e);
+    /**
+     * Calls the config file's objectiveVector-function with the given value-array
+     * and returns the resulting array.
+     *
+     * @param obj  Objectives library of the problem instance (used for resource names).
+     * @param vals Values for every objective function defined by <tt>obj</tt>.
+     * @return Objective function vector (feasible case) for these values.
+     */
+    public double[] objectiveVector(Objs obj, double[] vals) {
+        Objects.requireNonNull(obj);
+        Objects.requireNonNull(vals);
+        ToDoubleArrayFunction f = objectiveFunction;
+        if (f == null) {
+            injectResources(obj);
+            f = objectiveFunction;
         }
 
-        return (double[]) o;
+        return f.applyAsDoubleArray(vals);
     }
 
     /**
@@ -393,8 +464,23 @@ public class Config {
     public double[] unfeasibleVector(double[] vals) {
         Objects.requireNonNull(vals);
 
+        ToDoubleArrayFunction f = unfeasibleFunction;
+        return (f != null ? f.applyAsDoubleArray(vals) : invokeScript("unfeasibleVectorDouble", vals));
+    }
+
+    /**
+     * Calls one of the config file's vector-functions with the given value-array,
+     * using the calling thread's own engine.
+     *
+     * @param function Name of the JavaScript function.
+     * @param vals     Raw objective function values from a Solution-Object.
+     * @return The result-array of the function.
+     */
+    private double[] invokeScript(String function, double[] vals) {
         try {
-            return (double[]) ((Invocable) js).invokeFunction("unfeasibleVectorDouble", (Object) vals);
+            ScriptEngine js = engines.get();
+            if (resourceIndices != null) putResources(js);
+            return (double[]) ((Invocable) js).invokeFunction(function, (Object) vals);
         }
         catch (ScriptException | NoSuchMethodException e) {
             throw new RuntimeException(e);
@@ -404,17 +490,99 @@ public class Config {
     /**
      * This method checks whether the node resource indices (TOTAL_DELAY, ...) were already
      * injected into the javascript environment as variables, and does so if required.
+     * Afterwards, the objective vector functions are compiled.
      *
      * @param objs All objectives, including the node resources array.
      */
-    private void injectResources(Objs objs) {
-        if (!resourceObjInjected) {
-            js.put("TOTAL_USED_RESOURCES", Arrays.stream(objs.TOTAL_USED_RESOURCES).mapToInt(o -> o.i).toArray());
+    private synchronized void injectResources(Objs objs) {
+        if (objectiveFunction == null) {
+            HashMap<String, Integer> names = new HashMap<>();
             for (Objs.Obj o : objs.values()) {
-                js.put(o.name, o.i);
+                names.put(o.name, o.i);
+            }
+            objectiveIndices = Collections.unmodifiableMap(names);
+            resourceIndices = Arrays.stream(objs.TOTAL_USED_RESOURCES).mapToInt(o -> o.i).toArray();
+            putResources(engines.get());
+
+            unfeasibleFunction = compileVectorFunction("unfeasibleVector", objs);
+            objectiveFunction = compileVectorFunction("objectiveVector", objs);
+        }
+    }
+
+    /**
+     * Injects the node resource indices into the given engine, if it does not contain them yet.
+     *
+     * @param js JavaScript-Engine of the current thread.
+     */
+    private void putResources(ScriptEngine js) {
+        if (js.get("TOTAL_USED_RESOURCES") == null) {
+            js.put("TOTAL_USED_RESOURCES", resourceIndices.clone());
+            objectiveIndices.forEach(js::put);
+        }
+    }
+
+    /**
+     * Compiles one of the config file's vector-functions into a Java function, so that the JavaScript engine
+     * is not involved during the evaluation of solutions.
+     * The result is compared with the engine's result for some probe vectors.
+     * If the function cannot be compiled (or the results differ), the engine is invoked instead.
+     *
+     * @param function Name of the JavaScript function.
+     * @param objs     All objectives, including the node resources array.
+     * @return A function calculating the same vectors as the JavaScript function.
+     */
+    private ToDoubleArrayFunction compileVectorFunction(String function, Objs objs) {
+        ToDoubleArrayFunction script = vals -> invokeScript(function + "Double", vals);
+
+        Map<String, Integer> names = objectiveIndices;
+        int[] resources = resourceIndices;
+
+        ToDoubleArrayFunction compiled;
+        try {
+            String source = String.valueOf(engines.get().eval(function + ".toString()"));
+            compiled = ExpressionParser.toArrayFunction(ExpressionParser.parseArrayFunction(source, new ExpressionParser.Resolver() {
+                @Override
+                public Expression resolve(String name) {
+                    Integer i = names.get(name);
+                    return (i == null ? null : Expression.constant(i));
+                }
+
+                @Override
+                public Expression resolveIndexed(String name, Expression index) {
+                    if (!name.equals("TOTAL_USED_RESOURCES") || !index.isConstant()) return null;
+                    double d = index.eval(null);
+                    if (d != Math.rint(d) || d < 0 || d >= resources.length) return null;
+                    return Expression.constant(resources[(int) d]);
+                }
+            }));
+        }
+        catch (ScriptException | IllegalArgumentException e) {
+            System.out.println("Config: " + function + " could not be compiled (" + e.getMessage() + "); using the JavaScript engine instead.");
+            return script;
+        }
+
+        // Compare both implementations with distinct values for every objective:
+        int length = objs.values().length;
+        double[][] probes = new double[2][length];
+        for (int i = 0; i < length; i++) {
+            probes[0][i] = i + 1.0;
+            probes[1][i] = 1.0 / (i + 3.0) + (i % 2);
+        }
+        for (double[] probe : probes) {
+            double[] expected = script.applyAsDoubleArray(probe);
+            double[] actual = compiled.applyAsDoubleArray(probe);
+            boolean equal = (expected.length == actual.length);
+            for (int i = 0; equal && i < expected.length; i++) {
+                equal = Double.compare(expected[i], actual[i]) == 0
+                        || Math.abs(expected[i] - actual[i]) <= 1e-9 * Math.max(Math.abs(expected[i]), Math.abs(actual[i]));
+            }
+            if (!equal) {
+                System.out.println("Config: compiled " + function + " differs from the JavaScript result; using the JavaScript engine instead.");
+                return script;
             }
-            resourceObjInjected = true;
         }
+
+        return compiled;
     }
 
     /**
@@ -0,0 +1,220 @@
+package de.uniwue.VNFP.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Provides the config file's formulas for 'pReassignVnf', 'pNewInstance', 'acceptWorse' and 'acceptIncomparable'.
+ * The formulas are compiled into {@link Expression}s once, so that the PSA algorithm does not have to execute
+ * the config script in every temperature level. If the config file cannot be compiled (e.g. because it uses
+ * control flow statements), every value is obtained from the JavaScript engine instead.
+ * <p>
+ * All values that only depend on the temperature are precomputed by {@link #levels(double, double, double)}.
+ */
+public class CoolingSchedule {
+    /**
+     * All formulas of the config file that depend on the state of the algorithm.
+     */
+    public enum Formula {
+        P_REASSIGN_VNF("pReassignVnf"),
+        P_NEW_INSTANCE("pNewInstance"),
+        ACCEPT_WORSE("acceptWorse"),
+        ACCEPT_INCOMPARABLE("acceptIncomparable");
+
+        public final String variable;
+
+        Formula(String variable) {
+            this.variable = variable;
+        }
+    }
+
+    // Indices of the JavaScript variables inside the expressions' input arrays:
+    private static final int T = 0;
+    private static final int I = 1;
+    private static final int BETTER = 2;
+    private static final int INCOMP = 3;
+    private static final int N = 4;
+    private static final String[] INPUTS = {"t", "i", "better", "incomp", "n"};
+
+    private final Config config;
+    private final Expression[] formulas;
+
+    /**
+     * Compiles the formulas of the given config file.
+     *
+     * @param config        Config that is used to execute the script if the formulas cannot be compiled.
+     * @param configContent The content of the config file.
+     * @param engineValues  Provides the values of variables after the script has been executed by the JavaScript engine.
+     */
+    CoolingSchedule(Config config, String configContent, Function<String, Object> engineValues) {
+        this.config = Objects.requireNonNull(config);
+        this.formulas = compile(Objects.requireNonNull(configContent), Objects.requireNonNull(engineValues));
+    }
+
+    /**
+     * Symbolically executes the config script and checks the resulting formulas against the JavaScript engine.
+     *
+     * @param configContent The content of the config file.
+     * @param engineValues  Provides the values of variables after the script has been executed by the JavaScript engine.
+     * @return The compiled formulas (in order of {@link Formula#values()}), or null if the config cannot be compiled.
+     */
+    private Expression[] compile(String configContent, Function<String, Object> engineValues) {
+        HashMap<String, Expression> initial = new HashMap<>();
+        for (int i = 0; i < INPUTS.length; i++) {
+            initial.put(INPUTS[i], Expression.variable(i));
+        }
+        initial.put("runtime", Expression.constant(0.0));
+
+        Expression[] compiled = new Expression[Formula.values().length];
+        try {
+            Map<String, Expression> env = ExpressionParser.interpretAssignments(configContent, initial, engineValues);
+            for (Formula f : Formula.values()) {
+                compiled[f.ordinal()] = env.get(f.variable);
+                if (compiled[f.ordinal()] == null) {
+                    throw new IllegalArgumentException("'" + f.variable + "' depends on unsupported expressions");
+                }
+            }
+        }
+        catch (IllegalArgumentException e) {
+            System.out.println("Config: cooling schedule could not be compiled (" + e.getMessage() + "); using the JavaScript engine instead.");
+            return null;
+        }
+
+        // Compare with the engine's results for some probe states:
+        double tmax = config.tmax;
+        double[][] probes = {
+                {tmax, 0, 10, 5, 100},
+                {tmax * config.rho, 1, 3, 17, 40},
+                {config.tmin, 7, 0, 0, 0},
+                {(tmax + config.tmin) / 2.0, 3, 25, 0, 50}
+        };
+        for (double[] x : probes) {
+            for (Formula f : Formula.values()) {
+                double expected = config.evalScript(f.variable, x[T], (int) x[I], (int) x[BETTER], (int) x[INCOMP], (int) x[N]);
+                double actual = compiled[f.ordinal()].eval(x);
+                if (Double.compare(expected, actual) != 0 && Math.abs(expected - actual) > 1e-9 * Math.max(Math.abs(expected), Math.abs(actual))) {
+                    System.out.println("Config: compiled '" + f.variable + "' differs from the JavaScript result; using the JavaScript engine instead.");
+                    return null;
+                }
+            }
+        }
+
+        return compiled;
+    }
+
+    /**
+     * @return true, if all formulas were compiled and the JavaScript engine is not used.
+     */
+    public boolean isCompiled() {
+        return formulas != null;
+    }
+
+    /**
+     * Evaluates one of the config's formulas.
+     *
+     * @param f             The formula.
+     * @param t             The current temperature level of the PSA algorithm.
+     * @param i             The index of the current temperature iteration (0 <= i < numberOfTemperatureLevels).
+     * @param better        The number of generated better neighbours in the last temperature iteration.
+     * @param incomp        The number of generated incomparable neighbours in the last temperature iteration.
+     * @param numIterations The number of iterations during the last temperature level.
+     * @return The value of the formula for the given parameters.
+     */
+    public double evaluate(Formula f, double t, int i, int better, int incomp, int numIterations) {
+        Objects.requireNonNull(f);
+        if (formulas == null) {
+            return config.evalScript(f.variable, t, i, better, incomp, numIterations);
+        }
+        return formulas[f.ordinal()].eval(new double[]{t, i, better, incomp, numIterations});
+    }
+
+    /**
+     * Precomputes all temperature levels of a PSA run.
+     * The temperatures are derived exactly like in the PSA main loop (t = tmax, t = t * rho, ..., while t > tmin).
+     *
+     * @param tmax Starting temperature.
+     * @param tmin Final temperature (exclusive).
+     * @param rho  Cooling factor.
+     * @return All temperature levels, in order of execution.
+     */
+    public Level[] levels(double tmax, double tmin, double rho) {
+        if (tmax > tmin && rho >= 1.0) {
+            throw new IllegalArgumentException("rho = " + rho + " does not decrease the temperature");
+        }
+
+        ArrayList<Level> levels = new ArrayList<>();
+        double t = tmax;
+        while (t > tmin) {
+            levels.add(level(t, levels.size()));
+            t = t * rho;
+        }
+        return levels.toArray(new Level[levels.size()]);
+    }
+
+    /**
+     * Computes a single temperature level.
+     *
+     * @param t The temperature.
+     * @param i The index of the temperature iteration (0 <= i < numberOfTemperatureLevels).
+     * @return The temperature level.
+     */
+    public Level level(double t, int i) {
+        return new Level(t, i);
+    }
+
+    /**
+     * Contains the values of all formulas for a single temperature level.
+     * The acceptance probabilities still depend on the statistics of the previous level
+     * and are therefore evaluated from expressions in which t and i have been folded.
+     */
+    public class Level {
+        public final double t;
+        public final int index;
+        public final double pReassignVnf;
+        public final double pNewInstance;
+        private final Expression acceptWorse;
+        private final Expression acceptIncomparable;
+
+        /**
+         * @param t The temperature.
+         * @param i The index of the temperature iteration.
+         */
+        private Level(double t, int i) {
+            this.t = t;
+            this.index = i;
+            this.pReassignVnf = evaluate(Formula.P_REASSIGN_VNF, t, i, 0, 0, 0);
+            this.pNewInstance = evaluate(Formula.P_NEW_INSTANCE, t, i, 0, 0, 0);
+            this.acceptWorse = (formulas == null ? null : formulas[Formula.ACCEPT_WORSE.ordinal()].bind(T, t).bind(I, i));
+            this.acceptIncomparable = (formulas == null ? null : formulas[Formula.ACCEPT_INCOMPARABLE.ordinal()].bind(T, t).bind(I, i));
+        }
+
+        /**
+         * @param better        The number of generated better neighbours in the last temperature iteration.
+         * @param incomp        The number of generated incomparable neighbours in the last temperature iteration.
+         * @param numIterations The number of iterations during the last temperature level.
+         * @return The value of 'acceptWorse' for this temperature level.
+         */
+        public double acceptWorse(int better, int incomp, int numIterations) {
+            if (acceptWorse == null) {
+                return evaluate(Formula.ACCEPT_WORSE, t, index, better, incomp, numIterations);
+            }
+            return acceptWorse.eval(new double[]{t, index, better, incomp, numIterations});
+        }
+
+        /**
+         * @param better        The number of generated better neighbours in the last temperature iteration.
+         * @param incomp        The number of generated incomparable neighbours in the last temperature iteration.
+         * @param numIterations The number of iterations during the last temperature level.
+         * @return The value of 'acceptIncomparable' for this temperature level.
+         */
+        public double acceptIncomparable(int better, int incomp, int numIterations) {
+            if (acceptIncomparable == null) {
+                return evaluate(Formula.ACCEPT_INCOMPARABLE, t, index, better, incomp, numIterations);
+            }
+            return acceptIncomparable.eval(new double[]{t, index, better, incomp, numIterations});
+        }
+    }
+}
@@ -0,0 +1,442 @@
+package de.uniwue.VNFP.util;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Immutable arithmetic expression tree, usually compiled from a (small) part of the config file's JavaScript code
+ * by the {@link ExpressionParser}. Variables are referenced by index into an input array.
+ * Since instances never change after their creation, they may be evaluated concurrently.
+ * <p>
+ * JavaScript semantics are mirrored for numbers: booleans are represented by 1.0 / 0.0,
+ * and logical operators return one of their operands.
+ */
+public abstract class Expression {
+    /**
+     * Evaluates this expression.
+     *
+     * @param x Values of all variables, indexed as given during parsing.
+     * @return The result of this expression.
+     */
+    public abstract double eval(double[] x);
+
+    /**
+     * Replaces a variable by a constant value and folds all resulting constant subexpressions.
+     *
+     * @param index Index of the variable.
+     * @param value Value of the variable.
+     * @return A (possibly) simplified expression that no longer depends on {@code x[index]}.
+     */
+    public abstract Expression bind(int index, double value);
+
+    /**
+     * @return true, if this expression does not depend on any variables.
+     */
+    public boolean isConstant() {
+        return false;
+    }
+
+    /**
+     * Creates a constant expression.
+     *
+     * @param value The value of the expression.
+     * @return Expression that always evaluates to {@code value}.
+     */
+    public static Expression constant(double value) {
+        return new Constant(value);
+    }
+
+    /**
+     * Creates an expression that returns the value of an input variable.
+     *
+     * @param index Index of the variable inside the input array.
+     * @return Expression that evaluates to {@code x[index]}.
+     */
+    public static Expression variable(int index) {
+        if (index < 0) {
+            throw new IllegalArgumentException("index = " + index);
+        }
+        return new Variable(index);
+    }
+
+    /**
+     * Creates a unary operation. Constant operands are folded right away.
+     *
+     * @param op      The operator.
+     * @param operand The operand.
+     * @return Expression representing {@code op operand}.
+     */
+    public static Expression unary(UnaryOp op, Expression operand) {
+        Expression e = new Unary(Objects.requireNonNull(op), Objects.requireNonNull(operand));
+        return (operand.isConstant() ? constant(e.eval(null)) : e);
+    }
+
+    /**
+     * Creates a binary operation. Constant operands are folded right away,
+     * as well as logical operators whose result is determined by a constant left operand.
+     *
+     * @param op The operator.
+     * @param a  Left operand.
+     * @param b  Right operand.
+     * @return Expression representing {@code a op b}.
+     */
+    public static Expression binary(BinaryOp op, Expression a, Expression b) {
+        if (a.isConstant() && (op == BinaryOp.AND || op == BinaryOp.OR)) {
+            return (truthy(a.eval(null)) == (op == BinaryOp.AND) ? b : a);
+        }
+        Expression e = new Binary(Objects.requireNonNull(op), Objects.requireNonNull(a), Objects.requireNonNull(b));
+        return (a.isConstant() && b.isConstant() ? constant(e.eval(null)) : e);
+    }
+
+    /**
+     * Creates a conditional expression {@code cond ? a : b}.
+     * A constant condition is folded right away.
+     *
+     * @param cond Condition.
+     * @param a    Result if the condition is truthy.
+     * @param b    Result otherwise.
+     * @return Expression representing {@code cond ? a : b}.
+     */
+    public static Expression conditional(Expression cond, Expression a, Expression b) {
+        Objects.requireNonNull(cond);
+        Objects.requireNonNull(a);
+        Objects.requireNonNull(b);
+        if (cond.isConstant()) {
+            return (truthy(cond.eval(null)) ? a : b);
+        }
+        return new Conditional(cond, a, b);
+    }
+
+    /**
+     * Creates a call of a (JavaScript) Math function.
+     * Constant arguments are folded right away.
+     *
+     * @param f    The function.
+     * @param args All arguments.
+     * @return Expression representing {@code f(args)}.
+     */
+    public static Expression call(MathFunction f, Expression... args) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(args);
+        if (!f.acceptsArguments(args.length)) {
+            throw new IllegalArgumentException("Math." + f.jsName + " does not accept " + args.length + " arguments");
+        }
+        Expression e = new Call(f, Arrays.copyOf(args, args.length));
+        return (Arrays.stream(args).allMatch(Expression::isConstant) ? constant(e.eval(null)) : e);
+    }
+
+    /**
+     * Mirrors JavaScript's conversion of numbers into booleans.
+     *
+     * @param d Numeric value.
+     * @return false for 0 and NaN, true otherwise.
+     */
+    static boolean truthy(double d) {
+        return d != 0.0 && !Double.isNaN(d);
+    }
+
+    /**
+     * All supported unary operators.
+     */
+    public enum UnaryOp {
+        NEGATE("-") {
+            double apply(double a) { return -a; }
+        },
+        PLUS("+") {
+            double apply(double a) { return a; }
+        },
+        NOT("!") {
+            double apply(double a) { return truthy(a) ? 0.0 : 1.0; }
+        };
+
+        final String symbol;
+
+        UnaryOp(String symbol) {
+            this.symbol = symbol;
+        }
+
+        abstract double apply(double a);
+    }
+
+    /**
+     * All supported binary operators.
+     * Logical AND / OR are included for completeness, but are evaluated lazily by the Binary node.
+     */
+    public enum BinaryOp {
+        ADD("+") {
+            double apply(double a, double b) { return a + b; }
+        },
+        SUBTRACT("-") {
+            double apply(double a, double b) { return a - b; }
+        },
+        MULTIPLY("*") {
+            double apply(double a, double b) { return a * b; }
+        },
+        DIVIDE("/") {
+            double apply(double a, double b) { return a / b; }
+        },
+        REMAINDER("%") {
+            double apply(double a, double b) { return a % b; }
+        },
+        LESS("<") {
+            double apply(double a, double b) { return a < b ? 1.0 : 0.0; }
+        },
+        LESS_EQUAL("<=") {
+            double apply(double a, double b) { return a <= b ? 1.0 : 0.0; }
+        },
+        GREATER(">") {
+            double apply(double a, double b) { return a > b ? 1.0 : 0.0; }
+        },
+        GREATER_EQUAL(">=") {
+            double apply(double a, double b) { return a >= b ? 1.0 : 0.0; }
+        },
+        EQUAL("==") {
+            double apply(double a, double b) { return a == b ? 1.0 : 0.0; }
+        },
+        NOT_EQUAL("!=") {
+            double apply(double a, double b) { return a != b ? 1.0 : 0.0; }
+        },
+        AND("&&") {
+            double apply(double a, double b) { return truthy(a) ? b : a; }
+        },
+        OR("||") {
+            double apply(double a, double b) { return truthy(a) ? a : b; }
+        };
+
+        final String symbol;
+
+        BinaryOp(String symbol) {
+            this.symbol = symbol;
+        }
+
+        abstract double apply(double a, double b);
+    }
+
+    /**
+     * All supported functions of JavaScript's Math object.
+     */
+    public enum MathFunction {
+        ABS("abs", 1), SQRT("sqrt", 1), CBRT("cbrt", 1), EXP("exp", 1),
+        LOG("log", 1), LOG10("log10", 1), LOG2("log2", 1),
+        FLOOR("floor", 1), CEIL("ceil", 1), ROUND("round", 1), SIGN("sign", 1),
+        POW("pow", 2), MIN("min", -1), MAX("max", -1);
+
+        final String jsName;
+        private final int numArgs;
+
+        MathFunction(String jsName, int numArgs) {
+            this.jsName = jsName;
+            this.numArgs = numArgs;
+        }
+
+        /**
+         * @param name Name of the function inside the JavaScript Math object, e.g. "max".
+         * @return The corresponding function, or null if it is not supported.
+         */
+        public static MathFunction fromJsName(String name) {
+            for (MathFunction f : values()) {
+                if (f.jsName.equals(name)) return f;
+            }
+            return null;
+        }
+
+        boolean acceptsArguments(int n) {
+            return numArgs == -1 || numArgs == n;
+        }
+
+        double apply(double[] a) {
+            switch (this) {
+                case ABS: return Math.abs(a[0]);
+                case SQRT: return Math.sqrt(a[0]);
+                case CBRT: return Math.cbrt(a[0]);
+                case EXP: return Math.exp(a[0]);
+                case LOG: return Math.log(a[0]);
+                case LOG10: return Math.log10(a[0]);
+                case LOG2: return Math.log(a[0]) / Math.log(2.0);
+                case FLOOR: return Math.floor(a[0]);
+                case CEIL: return Math.ceil(a[0]);
+                case ROUND: return (Double.isNaN(a[0]) || Double.isInfinite(a[0]) ? a[0] : Math.floor(a[0] + 0.5));
+                case SIGN: return Math.signum(a[0]);
+                case POW: return Math.pow(a[0], a[1]);
+                case MIN: {
+                    double m = Double.POSITIVE_INFINITY;
+                    for (double d : a) m = Math.min(m, d);
+                    return m;
+                }
+                case MAX: {
+                    double m = Double.NEGATIVE_INFINITY;
+                    for (double d : a) m = Math.max(m, d);
+                    return m;
+                }
+                default: throw new IllegalStateException(name());
+            }
+        }
+    }
+
+    private static class Constant extends Expression {
+        private final double value;
+
+        Constant(double value) {
+            this.value = value;
+        }
+
+        @Override
+        public double eval(double[] x) {
+            return value;
+        }
+
+        @Override
+        public Expression bind(int index, double value) {
+            return this;
+        }
+
+        @Override
+        public boolean isConstant() {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(value);
+        }
+    }
+
+    private static class Variable extends Expression {
+        private final int index;
+
+        Variable(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public double eval(double[] x) {
+            return x[index];
+        }
+
+        @Override
+        public Expression bind(int index, double value) {
+            return (this.index == index ? constant(value) : this);
+        }
+
+        @Override
+        public String toString() {
+            return "x[" + index + "]";
+        }
+    }
+
+    private static class Unary extends Expression {
+        private final UnaryOp op;
+        private final Expression a;
+
+        Unary(UnaryOp op, Expression a) {
+            this.op = op;
+            this.a = a;
+        }
+
+        @Override
+        public double eval(double[] x) {
+            return op.apply(a.eval(x));
+        }
+
+        @Override
+        public Expression bind(int index, double value) {
+            return unary(op, a.bind(index, value));
+        }
+
+        @Override
+        public String toString() {
+            return op.symbol + "(" + a + ")";
+        }
+    }
+
+    private static class Binary extends Expression {
+        private final BinaryOp op;
+        private final Expression a;
+        private final Expression b;
+
+        Binary(BinaryOp op, Expression a, Expression b) {
+            this.op = op;
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        public double eval(double[] x) {
+            double left = a.eval(x);
+            // Short-circuit evaluation:
+            if (op == BinaryOp.AND && !truthy(left)) return left;
+            if (op == BinaryOp.OR && truthy(left)) return left;
+            return op.apply(left, b.eval(x));
+        }
+
+        @Override
+        public Expression bind(int index, double value) {
+            return binary(op, a.bind(index, value), b.bind(index, value));
+        }
+
+        @Override
+        public String toString() {
+            return "(" + a + " " + op.symbol + " " + b + ")";
+        }
+    }
+
+    private static class Conditional extends Expression {
+        private final Expression cond;
+        private final Expression a;
+        private final Expression b;
+
+        Conditional(Expression cond, Expression a, Expression b) {
+            this.cond = cond;
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        public double eval(double[] x) {
+            return truthy(cond.eval(x)) ? a.eval(x) : b.eval(x);
+        }
+
+        @Override
+        public Expression bind(int index, double value) {
+            return conditional(cond.bind(index, value), a.bind(index, value), b.bind(index, value));
+        }
+
+        @Override
+        public String toString() {
+            return "(" + cond + " ? " + a + " : " + b + ")";
+        }
+    }
+
+    private static class Call extends Expression {
+        private final MathFunction f;
+        private final Expression[] args;
+
+        Call(MathFunction f, Expression[] args) {
+            this.f = f;
+            this.args = args;
+        }
+
+        @Override
+        public double eval(double[] x) {
+            double[] values = new double[args.length];
+            for (int i = 0; i < args.length; i++) {
+                values[i] = args[i].eval(x);
+            }
+            return f.apply(values);
+        }
+
+        @Override
+        public Expression bind(int index, double value) {
+            Expression[] bound = new Expression[args.length];
+            for (int i = 0; i < args.length; i++) {
+                bound[i] = args[i].bind(index, value);
+            }
+            return call(f, bound);
+        }
+
+        @Override
+        public String toString() {
+            return "Math." + f.jsName + Arrays.toString(args).replace('[', '(').replace(']', ')');
+        }
+    }
+}
@@ -0,0 +1,620 @@
+package de.uniwue.VNFP.util;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Recursive descent parser for the arithmetic subset of JavaScript that is used inside the config file.
+ * Supported are numbers, identifiers, array accesses ({@code v[X]}), the usual arithmetic, relational and
+ * logical operators, the conditional operator and calls of {@code Math} functions.
+ * <p>
+ * Identifiers are resolved by a {@link Resolver} during parsing. Every unsupported construct
+ * (strings, function calls, unknown identifiers, ...) results in an {@link IllegalArgumentException},
+ * so that the caller may fall back to the JavaScript engine.
+ */
+public class ExpressionParser {
+    /**
+     * Translates identifiers of the source code into expressions.
+     */
+    public interface Resolver {
+        /**
+         * @param name Name of the identifier.
+         * @return Expression for the identifier, or null if it is unknown.
+         */
+        Expression resolve(String name);
+
+        /**
+         * @param name  Name of the indexed identifier.
+         * @param index Parsed index expression.
+         * @return Expression for {@code name[index]}, or null if it is unknown.
+         */
+        default Expression resolveIndexed(String name, Expression index) {
+            return null;
+        }
+    }
+
+    private enum Type { NUMBER, STRING, IDENT, OP, END }
+
+    private static class Token {
+        final Type type;
+        final String text;
+        final int pos;
+        final boolean newlineBefore;
+
+        Token(Type type, String text, int pos, boolean newlineBefore) {
+            this.type = type;
+            this.text = text;
+            this.pos = pos;
+            this.newlineBefore = newlineBefore;
+        }
+
+        @Override
+        public String toString() {
+            return (type == Type.END ? "end of input" : "'" + text + "'");
+        }
+    }
+
+    // Longer operators must precede their prefixes:
+    private static final String[] OPERATORS = {
+            "===", "!==", "==", "!=", "<=", ">=", "&&", "||",
+            "+", "-", "*", "/", "%", "<", ">", "!", "?", ":", "(", ")", "[", "]", "{", "}", ",", ";", "=", "."
+    };
+
+    private final Token[] tokens;
+    private final Resolver resolver;
+    private int p;
+
+    /**
+     * Tokenizes the given source code. Comments are skipped.
+     *
+     * @param source   JavaScript source code.
+     * @param resolver Used for resolving all identifiers.
+     */
+    public ExpressionParser(String source, Resolver resolver) {
+        this(tokenize(Objects.requireNonNull(source)), resolver);
+    }
+
+    /**
+     * @param tokens   Tokens to parse, terminated by an END-token.
+     * @param resolver Used for resolving all identifiers.
+     */
+    private ExpressionParser(Token[] tokens, Resolver resolver) {
+        this.tokens = tokens;
+        this.resolver = Objects.requireNonNull(resolver);
+    }
+
+    /**
+     * Parses a single expression that must span the entire source.
+     *
+     * @param source   JavaScript source code.
+     * @param resolver Used for resolving all identifiers.
+     * @return The parsed expression.
+     */
+    public static Expression parse(String source, Resolver resolver) {
+        ExpressionParser parser = new ExpressionParser(source, resolver);
+        Expression e = parser.expression();
+        parser.skipOptional(";");
+        parser.expectEnd();
+        return e;
+    }
+
+    /**
+     * Parses the source of a function with exactly one parameter that returns an array literal, e.g.
+     * {@code function objectiveVector(v) { return [ v[A], v[B] + v[C] ] }}.
+     * Accesses of the parameter with a constant index are compiled into {@link Expression#variable(int)},
+     * all other identifiers are handed to the resolver.
+     *
+     * @param source   The function's source code (as returned by JavaScript's {@code toString()}).
+     * @param resolver Used for resolving all other identifiers.
+     * @return One expression per array entry.
+     */
+    public static Expression[] parseArrayFunction(String source, Resolver resolver) {
+        Objects.requireNonNull(resolver);
+        ExpressionParser header = new ExpressionParser(source, resolver);
+        header.expect("function");
+        if (header.peek().type == Type.IDENT) header.next();
+        header.expect("(");
+        String param = header.expectIdent();
+        header.expect(")");
+
+        ExpressionParser parser = new ExpressionParser(source, new Resolver() {
+            @Override
+            public Expression resolve(String name) {
+                return (name.equals(param) ? null : resolver.resolve(name));
+            }
+
+            @Override
+            public Expression resolveIndexed(String name, Expression index) {
+                if (!name.equals(param)) {
+                    return resolver.resolveIndexed(name, index);
+                }
+                if (!index.isConstant() || index.eval(null) != Math.rint(index.eval(null)) || index.eval(null) < 0) {
+                    return null;
+                }
+                return Expression.variable((int) index.eval(null));
+            }
+        });
+        parser.p = header.p;
+
+        parser.expect("{");
+        parser.expect("return");
+        parser.expect("[");
+        ArrayList<Expression> list = new ArrayList<>();
+        if (!parser.skipOptional("]")) {
+            do {
+                list.add(parser.expression());
+            } while (parser.skipOptional(","));
+            parser.expect("]");
+        }
+        parser.skipOptional(";");
+        parser.expect("}");
+        parser.expectEnd();
+
+        return list.toArray(new Expression[list.size()]);
+    }
+
+    /**
+     * Combines multiple expressions into a single function, e.g. for objective vectors.
+     *
+     * @param expressions The array's entries.
+     * @return Function that evaluates every expression on the given input array.
+     */
+    public static ToDoubleArrayFunction toArrayFunction(Expression[] expressions) {
+        Expression[] e = Arrays.copyOf(expressions, expressions.length);
+        return vals -> {
+            double[] result = new double[e.length];
+            for (int i = 0; i < e.length; i++) {
+                result[i] = e[i].eval(vals);
+            }
+            return result;
+        };
+    }
+
+    /**
+     * Symbolically executes a script that consists of top-level assignments (e.g. the config file)
+     * and returns the resulting expression of every assigned variable.
+     * Function declarations are skipped. Assignments whose right-hand side cannot be compiled are
+     * replaced by their value from the {@code engineValues}, if that value is a number that is assigned
+     * exactly once and does not depend on any non-constant variable. Otherwise, the variable is mapped to null.
+     *
+     * @param source       JavaScript source code.
+     * @param initial      Expressions of all variables that are defined before the script is executed.
+     * @param engineValues Provides the values of variables after the script has been executed by a JavaScript engine.
+     * @return Expressions of all variables after executing the script; null for variables that could not be compiled.
+     * @throws IllegalArgumentException If the script contains statements other than assignments and function declarations.
+     */
+    public static Map<String, Expression> interpretAssignments(String source, Map<String, Expression> initial, Function<String, Object> engineValues) {
+        Objects.requireNonNull(initial);
+        Objects.requireNonNull(engineValues);
+        Token[] tokens = tokenize(Objects.requireNonNull(source));
+
+        // Split the script into statements:
+        HashSet<String> functions = new HashSet<>();
+        ArrayList<String> targets = new ArrayList<>();
+        ArrayList<Token[]> rhs = new ArrayList<>();
+        HashMap<String, Integer> assignments = new HashMap<>();
+        int p = 0;
+        while (tokens[p].type != Type.END) {
+            Token t = tokens[p];
+            if (t.type == Type.OP && t.text.equals(";")) {
+                p++;
+            }
+            else if (t.type == Type.IDENT && t.text.equals("function")) {
+                if (tokens[p + 1].type != Type.IDENT) throw error("Expected function name", tokens[p + 1]);
+                functions.add(tokens[p + 1].text);
+                p = skipBlock(tokens, skipBlock(tokens, p + 2, "(", ")"), "{", "}");
+            }
+            else {
+                if (t.type == Type.IDENT && (t.text.equals("var") || t.text.equals("let") || t.text.equals("const"))) {
+                    t = tokens[++p];
+                }
+                if (t.type != Type.IDENT || !tokens[p + 1].text.equals("=") || tokens[p + 1].type != Type.OP) {
+                    throw error("Unsupported statement " + t, t);
+                }
+                int start = p + 2;
+                p = start;
+                int depth = 0;
+                while (tokens[p].type != Type.END) {
+                    Token c = tokens[p];
+                    if (depth == 0 && p > start && (c.text.equals(";") && c.type == Type.OP || c.newlineBefore && !continuesExpression(c))) {
+                        break;
+                    }
+                    if (c.type == Type.OP && (c.text.equals("(") || c.text.equals("[") || c.text.equals("{"))) depth++;
+                    if (c.type == Type.OP && (c.text.equals(")") || c.text.equals("]") || c.text.equals("}"))) depth--;
+                    p++;
+                }
+                Token[] expr = Arrays.copyOfRange(tokens, start, p + 1);
+                expr[expr.length - 1] = new Token(Type.END, "", tokens[p].pos, false);
+
+                targets.add(t.text);
+                rhs.add(expr);
+                assignments.merge(t.text, 1, Integer::sum);
+            }
+        }
+
+        // Execute all assignments:
+        HashMap<String, Expression> env = new HashMap<>(initial);
+        Resolver resolver = name -> (functions.contains(name) ? null : env.get(name));
+        for (int k = 0; k < targets.size(); k++) {
+            String target = targets.get(k);
+            Token[] expr = rhs.get(k);
+            Expression e;
+            try {
+                ExpressionParser parser = new ExpressionParser(expr, resolver);
+                e = parser.expression();
+                parser.expectEnd();
+            }
+            catch (IllegalArgumentException ex) {
+                // Only use the engine's value if the right-hand side cannot depend on non-constant variables:
+                boolean constant = (assignments.get(target) == 1);
+                for (int j = 0; constant && j < expr.length; j++) {
+                    Token c = expr[j];
+                    boolean member = (j > 0 && expr[j - 1].type == Type.OP && expr[j - 1].text.equals("."));
+                    if (c.type == Type.IDENT && !member) {
+                        Expression known = env.get(c.text);
+                        constant = !functions.contains(c.text) && known != null && known.isConstant();
+                    }
+                }
+                Object value = (constant ? engineValues.apply(target) : null);
+                e = (value instanceof Number ? Expression.constant(((Number) value).doubleValue()) : null);
+            }
+            env.put(target, e);
+        }
+
+        return env;
+    }
+
+    /**
+     * Skips a balanced block of tokens.
+     *
+     * @param tokens All tokens.
+     * @param p      Position of the opening token.
+     * @param open   Text of the opening token.
+     * @param close  Text of the closing token.
+     * @return Position after the matching closing token.
+     */
+    private static int skipBlock(Token[] tokens, int p, String open, String close) {
+        if (tokens[p].type != Type.OP || !tokens[p].text.equals(open)) {
+            throw error("Expected '" + open + "', found " + tokens[p], tokens[p]);
+        }
+        int depth = 0;
+        do {
+            if (tokens[p].type == Type.END) throw error("Expected '" + close + "', found " + tokens[p], tokens[p]);
+            if (tokens[p].type == Type.OP && tokens[p].text.equals(open)) depth++;
+            if (tokens[p].type == Type.OP && tokens[p].text.equals(close)) depth--;
+            p++;
+        } while (depth > 0);
+        return p;
+    }
+
+    /**
+     * Mirrors JavaScript's automatic semicolon insertion: a line break only terminates a statement
+     * if the next token cannot continue the current expression.
+     *
+     * @param t The first token after a line break.
+     * @return true if the token continues the current expression.
+     */
+    private static boolean continuesExpression(Token t) {
+        return t.type == Type.OP && !t.text.equals("!") && !t.text.equals("{") && !t.text.equals("}");
+    }
+
+    // Grammar:
+    // expression  = or ['?' expression ':' expression]
+    // or          = and {'||' and}
+    // and         = equality {'&&' equality}
+    // equality    = relational {('=='|'!='|'==='|'!==') relational}
+    // relational  = additive {('<'|'<='|'>'|'>=') additive}
+    // additive    = multiplicative {('+'|'-') multiplicative}
+    // multiplic.  = unary {('*'|'/'|'%') unary}
+    // unary       = ('-'|'+'|'!') unary | primary
+    // primary     = NUMBER | '(' expression ')' | 'Math' '.' IDENT ['(' args ')'] | IDENT ['[' expression ']']
+
+    /**
+     * Parses an expression, starting at the current token.
+     *
+     * @return The parsed expression.
+     */
+    public Expression expression() {
+        Expression cond = or();
+        if (skipOptional("?")) {
+            Expression a = expression();
+            expect(":");
+            Expression b = expression();
+            return Expression.conditional(cond, a, b);
+        }
+        return cond;
+    }
+
+    private Expression or() {
+        Expression e = and();
+        while (skipOptional("||")) {
+            e = Expression.binary(Expression.BinaryOp.OR, e, and());
+        }
+        return e;
+    }
+
+    private Expression and() {
+        Expression e = equality();
+        while (skipOptional("&&")) {
+            e = Expression.binary(Expression.BinaryOp.AND, e, equality());
+        }
+        return e;
+    }
+
+    private Expression equality() {
+        Expression e = relational();
+        while (true) {
+            if (skipOptional("==") || skipOptional("===")) {
+                e = Expression.binary(Expression.BinaryOp.EQUAL, e, relational());
+            }
+            else if (skipOptional("!=") || skipOptional("!==")) {
+                e = Expression.binary(Expression.BinaryOp.NOT_EQUAL, e, relational());
+            }
+            else {
+                return e;
+            }
+        }
+    }
+
+    private Expression relational() {
+        Expression e = additive();
+        while (true) {
+            if (skipOptional("<")) e = Expression.binary(Expression.BinaryOp.LESS, e, additive());
+            else if (skipOptional("<=")) e = Expression.binary(Expression.BinaryOp.LESS_EQUAL, e, additive());
+            else if (skipOptional(">")) e = Expression.binary(Expression.BinaryOp.GREATER, e, additive());
+            else if (skipOptional(">=")) e = Expression.binary(Expression.BinaryOp.GREATER_EQUAL, e, additive());
+            else return e;
+        }
+    }
+
+    private Expression additive() {
+        Expression e = multiplicative();
+        while (true) {
+            if (skipOptional("+")) e = Expression.binary(Expression.BinaryOp.ADD, e, multiplicative());
+            else if (skipOptional("-")) e = Expression.binary(Expression.BinaryOp.SUBTRACT, e, multiplicative());
+            else return e;
+        }
+    }
+
+    private Expression multiplicative() {
+        Expression e = unary();
+        while (true) {
+            if (skipOptional("*")) e = Expression.binary(Expression.BinaryOp.MULTIPLY, e, unary());
+            else if (skipOptional("/")) e = Expression.binary(Expression.BinaryOp.DIVIDE, e, unary());
+            else if (skipOptional("%")) e = Expression.binary(Expression.BinaryOp.REMAINDER, e, unary());
+            else return e;
+        }
+    }
+
+    private Expression unary() {
+        if (skipOptional("-")) return Expression.unary(Expression.UnaryOp.NEGATE, unary());
+        if (skipOptional("+")) return Expression.unary(Expression.UnaryOp.PLUS, unary());
+        if (skipOptional("!")) return Expression.unary(Expression.UnaryOp.NOT, unary());
+        return primary();
+    }
+
+    private Expression primary() {
+        Token t = next();
+
+        if (t.type == Type.NUMBER) {
+            return Expression.constant(parseNumber(t));
+        }
+        if (t.type == Type.OP && t.text.equals("(")) {
+            Expression e = expression();
+            expect(")");
+            return e;
+        }
+        if (t.type == Type.IDENT && t.text.equals("Math")) {
+            expect(".");
+            String name = expectIdent();
+            if (!skipOptional("(")) {
+                switch (name) {
+                    case "PI": return Expression.constant(Math.PI);
+                    case "E": return Expression.constant(Math.E);
+                    case "LN2": return Expression.constant(Math.log(2.0));
+                    case "LN10": return Expression.constant(Math.log(10.0));
+                    default: throw error("Unsupported constant Math." + name, t);
+                }
+            }
+            Expression.MathFunction f = Expression.MathFunction.fromJsName(name);
+            if (f == null) {
+                throw error("Unsupported function Math." + name, t);
+            }
+            ArrayList<Expression> args = new ArrayList<>();
+            if (!skipOptional(")")) {
+                do {
+                    args.add(expression());
+                } while (skipOptional(","));
+                expect(")");
+            }
+            return Expression.call(f, args.toArray(new Expression[args.size()]));
+        }
+        if (t.type == Type.IDENT) {
+            switch (t.text) {
+                case "true": return Expression.constant(1.0);
+                case "false": return Expression.constant(0.0);
+                case "Infinity": return Expression.constant(Double.POSITIVE_INFINITY);
+                case "NaN": return Expression.constant(Double.NaN);
+            }
+
+            Expression e;
+            if (skipOptional("[")) {
+                Expression index = expression();
+                expect("]");
+                e = resolver.resolveIndexed(t.text, index);
+            }
+            else {
+                e = resolver.resolve(t.text);
+            }
+            if (e == null) {
+                throw error("Unknown identifier " + t.text, t);
+            }
+            return e;
+        }
+
+        if (t.type == Type.STRING) {
+            throw error("Unsupported string " + t.text, t);
+        }
+        throw error("Unexpected " + t, t);
+    }
+
+    /**
+     * @return The current token, without consuming it.
+     */
+    private Token peek() {
+        return tokens[p];
+    }
+
+    /**
+     * @return The current token, which will be consumed.
+     */
+    private Token next() {
+        Token t = tokens[p];
+        if (t.type != Type.END) p++;
+        return t;
+    }
+
+    /**
+     * Consumes the current token if it matches the given text.
+     *
+     * @param text Expected token text.
+     * @return true if the token was consumed.
+     */
+    private boolean skipOptional(String text) {
+        Token t = tokens[p];
+        if ((t.type == Type.IDENT || t.type == Type.OP) && t.text.equals(text)) {
+            p++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Consumes the current token, which must match the given text.
+     *
+     * @param text Expected token text.
+     */
+    private void expect(String text) {
+        if (!skipOptional(text)) {
+            throw error("Expected '" + text + "', found " + peek(), peek());
+        }
+    }
+
+    /**
+     * Consumes the current token, which must be an identifier.
+     *
+     * @return The identifier's name.
+     */
+    private String expectIdent() {
+        Token t = next();
+        if (t.type != Type.IDENT) {
+            throw error("Expected identifier, found " + t, t);
+        }
+        return t.text;
+    }
+
+    /**
+     * Ensures that every token was consumed.
+     */
+    public void expectEnd() {
+        if (peek().type != Type.END) {
+            throw error("Unexpected " + peek(), peek());
+        }
+    }
+
+    private static IllegalArgumentException error(String message, Token t) {
+        return new IllegalArgumentException(message + " at position " + t.pos);
+    }
+
+    private static double parseNumber(Token t) {
+        try {
+            if (t.text.startsWith("0x") || t.text.startsWith("0X")) {
+                return Long.parseLong(t.text.substring(2), 16);
+            }
+            return Double.parseDouble(t.text);
+        }
+        catch (NumberFormatException e) {
+            throw error("Invalid number " + t, t);
+        }
+    }
+
+    /**
+     * Splits the source code into tokens, skipping whitespace and comments.
+     *
+     * @param s JavaScript source code.
+     * @return All tokens, terminated by an END-token.
+     */
+    private static Token[] tokenize(String s) {
+        List<Token> list = new ArrayList<>();
+        int i = 0;
+        boolean newline = false;
+
+        outer:
+        while (i < s.length()) {
+            char c = s.charAt(i);
+
+            if (Character.isWhitespace(c)) {
+                newline |= (c == '\n' || c == '\r');
+                i++;
+                continue;
+            }
+            else if (s.startsWith("//", i)) {
+                while (i < s.length() && s.charAt(i) != '\n') i++;
+                continue;
+            }
+            else if (s.startsWith("/*", i)) {
+                int end = s.indexOf("*/", i + 2);
+                if (end == -1) throw new IllegalArgumentException("Unterminated comment at position " + i);
+                newline |= s.substring(i, end).contains("\n");
+                i = end + 2;
+                continue;
+            }
+            else if (Character.isDigit(c) || (c == '.' && i + 1 < s.length() && Character.isDigit(s.charAt(i + 1)))) {
+                int start = i;
+                if (s.startsWith("0x", i) || s.startsWith("0X", i)) {
+                    i += 2;
+                    while (i < s.length() && Character.digit(s.charAt(i), 16) != -1) i++;
+                }
+                else {
+                    while (i < s.length() && (Character.isDigit(s.charAt(i)) || s.charAt(i) == '.')) i++;
+                    if (i < s.length() && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+                        i++;
+                        if (i < s.length() && (s.charAt(i) == '+' || s.charAt(i) == '-')) i++;
+                        while (i < s.length() && Character.isDigit(s.charAt(i))) i++;
+                    }
+                }
+                list.add(new Token(Type.NUMBER, s.substring(start, i), start, newline));
+            }
+            else if (c == '"' || c == '\'') {
+                int start = i++;
+                while (i < s.length() && s.charAt(i) != c) {
+                    if (s.charAt(i) == '\\') i++;
+                    i++;
+                }
+                if (i >= s.length()) throw new IllegalArgumentException("Unterminated string at position " + start);
+                i++;
+                list.add(new Token(Type.STRING, s.substring(start, i), start, newline));
+            }
+            else if (Character.isJavaIdentifierStart(c)) {
+                int start = i;
+                while (i < s.length() && Character.isJavaIdentifierPart(s.charAt(i))) i++;
+                list.add(new Token(Type.IDENT, s.substring(start, i), start, newline));
+            }
+            else {
+                for (String op : OPERATORS) {
+                    if (s.startsWith(op, i)) {
+                        list.add(new Token(Type.OP, op, i, newline));
+                        i += op.length();
+                        newline = false;
+                        continue outer;
+                    }
+                }
+                throw new IllegalArgumentException("Unsupported character '" + c + "' at position " + i);
+            }
+            newline = false;
+        }
+
+        list.add(new Token(Type.END, "", s.length(), newline));
+        return list.toArray(new Token[list.size()]);
+    }
+}
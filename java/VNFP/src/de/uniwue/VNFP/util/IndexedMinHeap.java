@@ -0,0 +1,129 @@
+package de.uniwue.VNFP.util;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Binary min-heap over the integers {@code 0..capacity-1} with double keys.
+ * Each element is contained at most once; its key can be decreased in {@code O(log n)}.
+ * Uses primitive arrays only, so no objects are allocated after construction.
+ * Not thread-safe.
+ */
+public class IndexedMinHeap {
+    private final int[] heap;
+    private final int[] pos;
+    private final double[] keys;
+    private int size;
+
+    /**
+     * Creates an empty heap.
+     *
+     * @param capacity Number of possible elements ({@code 0..capacity-1}).
+     */
+    public IndexedMinHeap(int capacity) {
+        this.heap = new int[capacity];
+        this.pos = new int[capacity];
+        this.keys = new double[capacity];
+        Arrays.fill(pos, -1);
+    }
+
+    /**
+     * @return true, if the heap contains no elements.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all elements in {@code O(size)}.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            pos[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    /**
+     * @param v Element.
+     * @return true, if v is currently contained.
+     */
+    public boolean contains(int v) {
+        return pos[v] >= 0;
+    }
+
+    /**
+     * Inserts the given element, or decreases its key if it is already contained.
+     * Nothing happens if the element is contained with a smaller or equal key.
+     *
+     * @param v   Element.
+     * @param key New key of v.
+     */
+    public void insertOrDecrease(int v, double key) {
+        int i = pos[v];
+        if (i < 0) {
+            i = size++;
+            heap[i] = v;
+            pos[v] = i;
+        }
+        else if (key >= keys[v]) {
+            return;
+        }
+        keys[v] = key;
+        siftUp(i);
+    }
+
+    /**
+     * Removes the element with the smallest key.
+     *
+     * @return The removed element.
+     */
+    public int poll() {
+        if (size == 0) throw new NoSuchElementException();
+
+        int min = heap[0];
+        pos[min] = -1;
+        size--;
+        if (size > 0) {
+            heap[0] = heap[size];
+            pos[heap[0]] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    private void siftUp(int i) {
+        int v = heap[i];
+        double key = keys[v];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            int p = heap[parent];
+            if (keys[p] <= key) break;
+            heap[i] = p;
+            pos[p] = i;
+            i = parent;
+        }
+        heap[i] = v;
+        pos[v] = i;
+    }
+
+    private void siftDown(int i) {
+        int v = heap[i];
+        double key = keys[v];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int c = heap[child];
+            if (child + 1 < size && keys[heap[child + 1]] < keys[c]) {
+                child++;
+                c = heap[child];
+            }
+            if (key <= keys[c]) break;
+            heap[i] = c;
+            pos[c] = i;
+            i = child;
+        }
+        heap[i] = v;
+        pos[v] = i;
+    }
+}
@@ -0,0 +1,205 @@
+package de.uniwue.VNFP.util;
+
+/**
+ * Persistent (immutable) multiset of double values that supports order statistics, e.g. the median.
+ * Implemented as a treap whose priorities are derived from the values' hashes, so that every
+ * modification copies only O(log n) nodes (in expectation) and shares all others with the previous version.
+ * Instances may therefore be passed from a solution to its neighbours without copying.
+ */
+public final class OrderStatisticTree {
+    private static final OrderStatisticTree EMPTY = new OrderStatisticTree(null);
+
+    private final TreeNode root;
+
+    /**
+     * @param root Root of the (immutable) treap; null for an empty tree.
+     */
+    private OrderStatisticTree(TreeNode root) {
+        this.root = root;
+    }
+
+    /**
+     * @return An empty tree.
+     */
+    public static OrderStatisticTree empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @param values Initial values.
+     * @return A tree containing all given values.
+     */
+    public static OrderStatisticTree of(double[] values) {
+        OrderStatisticTree t = EMPTY;
+        for (double v : values) {
+            t = t.add(v);
+        }
+        return t;
+    }
+
+    /**
+     * @return The number of values (including duplicates) in this tree.
+     */
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * Inserts a value. This tree stays unchanged.
+     *
+     * @param value The new value.
+     * @return A new tree that additionally contains the given value.
+     */
+    public OrderStatisticTree add(double value) {
+        return new OrderStatisticTree(insert(root, value, priority(value)));
+    }
+
+    /**
+     * Removes one occurrence of a value. This tree stays unchanged.
+     *
+     * @param value The value to remove.
+     * @return A new tree without one occurrence of the given value.
+     * @throws IllegalArgumentException If the value is not contained in this tree.
+     */
+    public OrderStatisticTree remove(double value) {
+        return new OrderStatisticTree(delete(root, value));
+    }
+
+    /**
+     * Finds the i-th smallest value (starting with 0).
+     *
+     * @param i Rank of the value.
+     * @return The i-th smallest value.
+     */
+    public double select(int i) {
+        if (i < 0 || i >= size()) {
+            throw new IndexOutOfBoundsException("i=" + i + ", size=" + size());
+        }
+
+        TreeNode n = root;
+        while (true) {
+            int leftSize = size(n.left);
+            if (i < leftSize) {
+                n = n.left;
+            }
+            else if (i < leftSize + n.count) {
+                return n.value;
+            }
+            else {
+                i -= leftSize + n.count;
+                n = n.right;
+            }
+        }
+    }
+
+    /**
+     * Returns the ((n-1)/2)-th smallest value, where n = size(), like {@link Median#median(double[])}.
+     *
+     * @return The median, or 0.0 if this tree is empty.
+     */
+    public double median() {
+        int n = size();
+        return (n == 0 ? 0.0 : select((n - 1) / 2));
+    }
+
+    /**
+     * Immutable node of the treap. Duplicate values are stored in a single node.
+     */
+    private static final class TreeNode {
+        final double value;
+        final int priority;
+        final int count;
+        final int size;
+        final TreeNode left;
+        final TreeNode right;
+
+        TreeNode(double value, int priority, int count, TreeNode left, TreeNode right) {
+            this.value = value;
+            this.priority = priority;
+            this.count = count;
+            this.size = count + size(left) + size(right);
+            this.left = left;
+            this.right = right;
+        }
+
+        TreeNode withChildren(TreeNode left, TreeNode right) {
+            return new TreeNode(value, priority, count, left, right);
+        }
+
+        TreeNode withCount(int count) {
+            return new TreeNode(value, priority, count, left, right);
+        }
+    }
+
+    private static int size(TreeNode n) {
+        return (n == null ? 0 : n.size);
+    }
+
+    /**
+     * @param value A value.
+     * @return Pseudo-random (but deterministic) priority of the value.
+     */
+    private static int priority(double value) {
+        long h = Double.doubleToLongBits(value);
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return (int) (h ^ (h >>> 33));
+    }
+
+    private static TreeNode insert(TreeNode n, double value, int priority) {
+        if (n == null) {
+            return new TreeNode(value, priority, 1, null, null);
+        }
+
+        int c = Double.compare(value, n.value);
+        if (c == 0) {
+            return n.withCount(n.count + 1);
+        }
+        if (c < 0) {
+            TreeNode l = insert(n.left, value, priority);
+            // Rotate right, if the new node has a higher priority:
+            if (l.priority > n.priority) {
+                return l.withChildren(l.left, n.withChildren(l.right, n.right));
+            }
+            return n.withChildren(l, n.right);
+        }
+        else {
+            TreeNode r = insert(n.right, value, priority);
+            // Rotate left, if the new node has a higher priority:
+            if (r.priority > n.priority) {
+                return r.withChildren(n.withChildren(n.left, r.left), r.right);
+            }
+            return n.withChildren(n.left, r);
+        }
+    }
+
+    private static TreeNode delete(TreeNode n, double value) {
+        if (n == null) {
+            throw new IllegalArgumentException("value " + value + " is not contained");
+        }
+
+        int c = Double.compare(value, n.value);
+        if (c < 0) {
+            return n.withChildren(delete(n.left, value), n.right);
+        }
+        if (c > 0) {
+            return n.withChildren(n.left, delete(n.right, value));
+        }
+        if (n.count > 1) {
+            return n.withCount(n.count - 1);
+        }
+        return merge(n.left, n.right);
+    }
+
+    /**
+     * Merges two treaps, where every value of {@code a} is smaller than every value of {@code b}.
+     */
+    private static TreeNode merge(TreeNode a, TreeNode b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.priority > b.priority) {
+            return a.withChildren(a.left, merge(a.right, b));
+        }
+        return b.withChildren(merge(a, b.left), b.right);
+    }
+}
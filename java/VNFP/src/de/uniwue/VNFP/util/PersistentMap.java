@@ -0,0 +1,323 @@
+package de.uniwue.VNFP.util;
+
+import java.util.*;
+
+/**
+ * Persistent (immutable) hash map, implemented as a hash array mapped trie (HAMT).
+ * {@link #plus(Object, Object)} returns a new map that shares all untouched parts of the trie with this one,
+ * so that deriving a modified map costs O(log32 n) instead of copying all n entries.
+ * <p>
+ * All mutating methods of the {@link Map} interface throw an {@link UnsupportedOperationException}.
+ *
+ * @param <K> Type of the keys.
+ * @param <V> Type of the values.
+ */
+public final class PersistentMap<K, V> extends AbstractMap<K, V> {
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(BitmapNode.EMPTY, 0);
+    private static final Object NOT_FOUND = new Object();
+
+    private final TrieNode root;
+    private final int size;
+    private Set<Entry<K, V>> entrySet;
+
+    /**
+     * @param root Root node of the trie.
+     * @param size Number of entries in the trie.
+     */
+    private PersistentMap(TrieNode root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * @param <K> Type of the keys.
+     * @param <V> Type of the values.
+     * @return An empty map.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    /**
+     * @param map Entries of the new map.
+     * @param <K> Type of the keys.
+     * @param <V> Type of the values.
+     * @return A persistent map with the same entries as the given map.
+     */
+    public static <K, V> PersistentMap<K, V> copyOf(Map<? extends K, ? extends V> map) {
+        PersistentMap<K, V> m = empty();
+        for (Entry<? extends K, ? extends V> e : map.entrySet()) {
+            m = m.plus(e.getKey(), e.getValue());
+        }
+        return m;
+    }
+
+    /**
+     * Associates the given key with the given value. This map stays unchanged.
+     *
+     * @param key   The key (must not be null).
+     * @param value The value (must not be null).
+     * @return A new map containing the given mapping, or this map if it already contained it.
+     */
+    public PersistentMap<K, V> plus(K key, V value) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+
+        boolean[] added = new boolean[1];
+        TrieNode newRoot = root.plus(0, spread(key.hashCode()), key, value, added);
+        if (newRoot == root) return this;
+        return new PersistentMap<>(newRoot, added[0] ? size + 1 : size);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (key == null) return null;
+        Object v = root.find(0, spread(key.hashCode()), key);
+        return (v == NOT_FOUND ? null : (V) v);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key != null && root.find(0, spread(key.hashCode()), key) != NOT_FOUND;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Entry<K, V>>() {
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    return new TrieIterator<>(root);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    /**
+     * Distributes the bits of (possibly badly distributed) hash codes, e.g. the ones of links.
+     *
+     * @param h Hash code of a key.
+     * @return Hash used inside the trie.
+     */
+    private static int spread(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Immutable node of the trie.
+     */
+    private static abstract class TrieNode {
+        /**
+         * @param shift Number of hash bits consumed by the parent nodes.
+         * @param hash  Hash of the key.
+         * @param key   The key.
+         * @return The key's value, or NOT_FOUND.
+         */
+        abstract Object find(int shift, int hash, Object key);
+
+        /**
+         * @param shift Number of hash bits consumed by the parent nodes.
+         * @param hash  Hash of the key.
+         * @param key   The key.
+         * @param value The value.
+         * @param added Set to true if a new entry was created.
+         * @return A new node containing the mapping, or this node if it already contained it.
+         */
+        abstract TrieNode plus(int shift, int hash, Object key, Object value, boolean[] added);
+    }
+
+    /**
+     * Node with up to 32 slots, where occupied slots are indicated by a bitmap.
+     * Every slot takes two array entries: (key, value) for entries, or (null, child) for subtries.
+     */
+    private static final class BitmapNode extends TrieNode {
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        final int bitmap;
+        final Object[] array;
+
+        BitmapNode(int bitmap, Object[] array) {
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key) {
+            int bit = 1 << ((hash >>> shift) & 31);
+            if ((bitmap & bit) == 0) return NOT_FOUND;
+
+            int idx = 2 * Integer.bitCount(bitmap & (bit - 1));
+            Object k = array[idx];
+            Object v = array[idx + 1];
+            if (k == null) return ((TrieNode) v).find(shift + 5, hash, key);
+            return (key.equals(k) ? v : NOT_FOUND);
+        }
+
+        @Override
+        TrieNode plus(int shift, int hash, Object key, Object value, boolean[] added) {
+            int bit = 1 << ((hash >>> shift) & 31);
+            int idx = 2 * Integer.bitCount(bitmap & (bit - 1));
+
+            // Free slot:
+            if ((bitmap & bit) == 0) {
+                Object[] a = new Object[array.length + 2];
+                System.arraycopy(array, 0, a, 0, idx);
+                a[idx] = key;
+                a[idx + 1] = value;
+                System.arraycopy(array, idx, a, idx + 2, array.length - idx);
+                added[0] = true;
+                return new BitmapNode(bitmap | bit, a);
+            }
+
+            Object k = array[idx];
+            Object v = array[idx + 1];
+            // Subtrie:
+            if (k == null) {
+                TrieNode child = ((TrieNode) v).plus(shift + 5, hash, key, value, added);
+                return (child == v ? this : with(idx + 1, child));
+            }
+            // Same key:
+            if (key.equals(k)) {
+                return (value == v ? this : with(idx + 1, value));
+            }
+            // Different key in the same slot -> push both into a new subtrie:
+            added[0] = true;
+            TrieNode child = createNode(shift + 5, k, v, hash, key, value);
+            Object[] a = array.clone();
+            a[idx] = null;
+            a[idx + 1] = child;
+            return new BitmapNode(bitmap, a);
+        }
+
+        private BitmapNode with(int idx, Object o) {
+            Object[] a = array.clone();
+            a[idx] = o;
+            return new BitmapNode(bitmap, a);
+        }
+
+        private static TrieNode createNode(int shift, Object k1, Object v1, int h2, Object k2, Object v2) {
+            int h1 = spread(k1.hashCode());
+            if (h1 == h2) {
+                return new CollisionNode(h1, new Object[]{k1, v1, k2, v2});
+            }
+            boolean[] added = new boolean[1];
+            return EMPTY.plus(shift, h1, k1, v1, added).plus(shift, h2, k2, v2, added);
+        }
+    }
+
+    /**
+     * Node for keys whose (full) hashes are equal.
+     */
+    private static final class CollisionNode extends TrieNode {
+        final int hash;
+        final Object[] array;
+
+        CollisionNode(int hash, Object[] array) {
+            this.hash = hash;
+            this.array = array;
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) return array[i + 1];
+            }
+            return NOT_FOUND;
+        }
+
+        @Override
+        TrieNode plus(int shift, int hash, Object key, Object value, boolean[] added) {
+            if (hash != this.hash) {
+                // Nest this node into a bitmap node that distinguishes both hashes:
+                BitmapNode parent = new BitmapNode(1 << ((this.hash >>> shift) & 31), new Object[]{null, this});
+                return parent.plus(shift, hash, key, value, added);
+            }
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) {
+                    if (array[i + 1] == value) return this;
+                    Object[] a = array.clone();
+                    a[i + 1] = value;
+                    return new CollisionNode(hash, a);
+                }
+            }
+            Object[] a = Arrays.copyOf(array, array.length + 2);
+            a[array.length] = key;
+            a[array.length + 1] = value;
+            added[0] = true;
+            return new CollisionNode(hash, a);
+        }
+    }
+
+    /**
+     * Depth-first iterator over all entries of a trie.
+     */
+    private static final class TrieIterator<K, V> implements Iterator<Entry<K, V>> {
+        private final ArrayDeque<Object[]> arrays = new ArrayDeque<>();
+        private final ArrayDeque<Integer> positions = new ArrayDeque<>();
+        private Object[] array;
+        private int pos;
+        private Entry<K, V> next;
+
+        TrieIterator(TrieNode root) {
+            array = arrayOf(root);
+            pos = 0;
+            advance();
+        }
+
+        private static Object[] arrayOf(TrieNode n) {
+            return (n instanceof BitmapNode ? ((BitmapNode) n).array : ((CollisionNode) n).array);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            next = null;
+            while (next == null) {
+                if (pos >= array.length) {
+                    if (arrays.isEmpty()) return;
+                    array = arrays.pop();
+                    pos = positions.pop();
+                    continue;
+                }
+                Object k = array[pos];
+                Object v = array[pos + 1];
+                pos += 2;
+                if (k == null) {
+                    arrays.push(array);
+                    positions.push(pos);
+                    array = arrayOf((TrieNode) v);
+                    pos = 0;
+                }
+                else {
+                    next = new SimpleImmutableEntry<>((K) k, (V) v);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (next == null) throw new NoSuchElementException();
+            Entry<K, V> e = next;
+            advance();
+            return e;
+        }
+    }
+}
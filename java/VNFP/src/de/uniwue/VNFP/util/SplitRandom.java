@@ -0,0 +1,84 @@
+package de.uniwue.VNFP.util;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * A {@link Random} whose numbers are taken from a {@link SplittableRandom} stream.
+ * In contrast to {@link Random}, no atomic seed is updated per draw, and independent streams
+ * can be split off deterministically (e.g. one per chain and temperature level).
+ * So as long as every instance is used by a single thread only, a seeded run does not depend on thread scheduling.
+ * Not thread-safe.
+ */
+public final class SplitRandom extends Random {
+    private static final long serialVersionUID = 1L;
+
+    private final SplittableRandom stream;
+
+    /**
+     * @param seed Seed of the stream.
+     */
+    public SplitRandom(long seed) {
+        this(new SplittableRandom(seed));
+    }
+
+    /**
+     * @param stream Source of all numbers (not copied).
+     */
+    private SplitRandom(SplittableRandom stream) {
+        super(0L);
+        this.stream = stream;
+    }
+
+    /**
+     * Splits off a new, independent stream. The parent stream advances deterministically.
+     *
+     * @return A new instance with its own stream.
+     */
+    public SplitRandom split() {
+        return new SplitRandom(stream.split());
+    }
+
+    @Override
+    protected int next(int bits) {
+        return stream.nextInt() >>> (32 - bits);
+    }
+
+    @Override
+    public int nextInt() {
+        return stream.nextInt();
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        return stream.nextInt(bound);
+    }
+
+    @Override
+    public long nextLong() {
+        return stream.nextLong();
+    }
+
+    @Override
+    public boolean nextBoolean() {
+        return stream.nextBoolean();
+    }
+
+    @Override
+    public double nextDouble() {
+        return stream.nextDouble();
+    }
+
+    /**
+     * Not supported, since the stream cannot be reset.
+     *
+     * @param seed Ignored.
+     */
+    @Override
+    public synchronized void setSeed(long seed) {
+        // Called by Random's constructor only:
+        if (stream != null) {
+            throw new UnsupportedOperationException("the seed of a SplitRandom cannot be changed");
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package de.uniwue.VNFP.util;
+
+/**
+ * Represents a function that maps a value-array onto a new double array,
+ * e.g. the objective vector of a solution from its raw objective values.
+ * Implementations must not modify the input array.
+ */
+@FunctionalInterface
+public interface ToDoubleArrayFunction {
+    /**
+     * Applies this function to the given value-array.
+     *
+     * @param vals Input values (e.g. {@code Solution.vals}).
+     * @return A new array with the function result.
+     */
+    double[] applyAsDoubleArray(double[] vals);
+}
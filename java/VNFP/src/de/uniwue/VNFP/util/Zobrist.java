@@ -0,0 +1,38 @@
+package de.uniwue.VNFP.util;
+
+/**
+ * Keys for Zobrist-style fingerprints of placements.
+ * A placement's fingerprint is the XOR of the keys of all its (request, VNF position, node) triples,
+ * so it can be updated in O(1) per change by XOR-ing the old and the new key.
+ * <p>
+ * Keys are derived from the triple with a 64-bit mixing function (the finalizer of SplitMix64)
+ * instead of being drawn into a table, so they need no memory and are identical in every run.
+ */
+public final class Zobrist {
+    private static final long SEED = 0x6A09E667F3BCC909L;
+
+    private Zobrist() {
+    }
+
+    /**
+     * @param request  Id of the traffic request.
+     * @param position Index inside the request's VNF sequence.
+     * @param node     Id of the node that hosts the VNF.
+     * @return The pseudo-random 64-bit key of this triple.
+     */
+    public static long key(int request, int position, int node) {
+        return mix(mix(mix(SEED ^ request) ^ position) ^ node);
+    }
+
+    /**
+     * Scrambles the bits of the given value (bijective).
+     *
+     * @param z Arbitrary value.
+     * @return Mixed value.
+     */
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}